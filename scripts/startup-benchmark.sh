@@ -0,0 +1,84 @@
+#!/usr/bin/env bash
+# Measures time to the first successful request and resident memory right after it for four startup modes:
+# plain JVM, Spring AOT, class data sharing (CDS) and AOT with CDS. Builds the application with the aot profile,
+# unpacks it into a plain classpath (CDS can not archive classes from nested jars) and creates one CDS archive per
+# mode from a training run that stops right after the context refreshed. Two more JVM runs also read the OpenAPI
+# document, once the file generated by the build and once scanned at runtime by springdoc, to compare the two.
+#
+# Usage: scripts/startup-benchmark.sh [runs per mode, default 5]
+# Linux only, RSS is read from /proc. Needs curl.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+MAIN_CLASS=org.example.clearsolutionstest.ClearSolutionsTestApplication
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK=$ROOT/target/startup-benchmark
+PROBE_URL="http://localhost:$PORT/api/v1/users?from=2000-01-01&to=2000-12-31"
+
+cd "$ROOT"
+sh ./mvnw -q -Paot -DskipTests package
+rm -rf "$WORK" && mkdir -p "$WORK/unpacked"
+JAR=$(ls target/*.jar | grep -v plain | head -1)
+(cd "$WORK/unpacked" && jar xf "$ROOT/$JAR")
+jar cf "$WORK/application.jar" -C "$WORK/unpacked/BOOT-INF/classes" .
+CLASSPATH="$WORK/application.jar"
+for lib in $(ls "$WORK"/unpacked/BOOT-INF/lib/*.jar | sort); do
+    CLASSPATH="$CLASSPATH:$lib"
+done
+
+train() {
+    local archive=$1
+    shift
+    java -XX:ArchiveClassesAtExit="$archive" -Dspring.context.exit=onRefresh "$@" -cp "$CLASSPATH" "$MAIN_CLASS" \
+        > "$archive.log" 2>&1
+}
+
+train "$WORK/jit.jsa"
+train "$WORK/aot.jsa" -Dspring.aot.enabled=true
+
+now_millis() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+# Prints "<millis to first successful request> <rss kB>". With DOCS_URL set the time and memory include reading it.
+measure() {
+    local started pid elapsed rss
+    started=$(now_millis)
+    java "$@" -cp "$CLASSPATH" "$MAIN_CLASS" --server.port="$PORT" > "$WORK/run.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "$PROBE_URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "Application exited, see $WORK/run.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    if [[ -n "${DOCS_URL:-}" ]]; then
+        curl -sf -o /dev/null "$DOCS_URL"
+    fi
+    elapsed=$(($(now_millis) - started))
+    rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+    kill "$pid" && wait "$pid" 2>/dev/null || true
+    echo "$elapsed $rss"
+}
+
+report() {
+    local mode=$1
+    shift
+    local total_millis=0 total_rss=0 result
+    for ((run = 0; run < RUNS; run++)); do
+        result=$(measure "$@")
+        total_millis=$((total_millis + ${result% *}))
+        total_rss=$((total_rss + ${result#* }))
+    done
+    printf "%-10s %12d %12d\n" "$mode" $((total_millis / RUNS)) $((total_rss / RUNS / 1024))
+}
+
+printf "%-10s %12s %12s\n" "mode" "first req ms" "rss MB"
+report "jit"
+report "aot" -Dspring.aot.enabled=true
+report "cds" -XX:SharedArchiveFile="$WORK/jit.jsa"
+report "aot+cds" -Dspring.aot.enabled=true -XX:SharedArchiveFile="$WORK/aot.jsa"
+DOCS_URL="http://localhost:$PORT/openapi.json" report "static-doc"
+DOCS_URL="http://localhost:$PORT/v3/api-docs" report "scan-doc" -Dspringdoc.api-docs.enabled=true
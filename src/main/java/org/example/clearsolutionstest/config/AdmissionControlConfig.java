@@ -0,0 +1,58 @@
+package org.example.clearsolutionstest.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Generated;
+import org.example.clearsolutionstest.controller.AdmissionControlFilter;
+import org.example.clearsolutionstest.service.TimeService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.IntSupplier;
+
+@Configuration
+@ConditionalOnProperty(prefix = "application.admission", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(AdmissionControlProperties.class)
+@Generated
+public class AdmissionControlConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            AdmissionControlProperties properties, DataSource dataSource, TimeService timeService,
+            ObjectMapper objectMapper, MeterRegistry meterRegistry) throws SQLException {
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(properties, threadsAwaitingConnection(dataSource), timeService,
+                        objectMapper, meterRegistry, System::nanoTime));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    /**
+     * Of the read pool if reads have their own.
+     */
+    private static IntSupplier threadsAwaitingConnection(DataSource dataSource) throws SQLException {
+        HikariDataSource hikari;
+        if (dataSource.isWrapperFor(WorkloadRoutingDataSource.class)) {
+            hikari = dataSource.unwrap(WorkloadRoutingDataSource.class).poolOf(Workload.READ);
+        } else if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            hikari = dataSource.unwrap(HikariDataSource.class);
+        } else {
+            return () -> 0;
+        }
+        return () -> {
+            // Null until the pool is started by the first connection request
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+        };
+    }
+
+}
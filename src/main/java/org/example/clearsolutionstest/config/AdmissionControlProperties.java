@@ -0,0 +1,100 @@
+package org.example.clearsolutionstest.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@Generated
+@ConfigurationProperties(prefix = "application.admission")
+public class AdmissionControlProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Header identifying the calling client, read only on requests from {@code trustedProxies}. Other requests, and
+     * those without the header, are limited by their remote address.
+     */
+    private String clientKeyHeader = "X-Client-Key";
+
+    /**
+     * Remote addresses of the proxies allowed to name the client in {@code clientKeyHeader}, e.g. the gateway that
+     * verified the client. Empty by default: a key any caller can choose would let it rotate keys for fresh bursts.
+     */
+    private Set<String> trustedProxies = new HashSet<>();
+
+    private RateLimit defaultLimit = new RateLimit(50, 100);
+
+    /**
+     * Per client limits by endpoint name, e.g. {@code list-users} or {@code create-user}.
+     */
+    private Map<String, RateLimit> endpoints = new HashMap<>();
+
+    /**
+     * A range query costs one token per this many requested rows, so big pages use up the budget faster.
+     */
+    private int rowsPerToken = 50;
+
+    /**
+     * Execution bulkhead of reads: GETs and multi-gets.
+     */
+    private Bulkhead reads = new Bulkhead(48, Duration.ofMillis(50));
+
+    /**
+     * Execution bulkhead of writes. Writes may wait longer, a shed write is a change the client has to retry.
+     */
+    private Bulkhead writes = new Bulkhead(16, Duration.ofMillis(200));
+
+    /**
+     * Reads are shed while more threads than this wait for a connection of the read pool.
+     */
+    private int maxThreadsAwaitingConnection = 4;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Generated
+    public static class RateLimit {
+
+        private double requestsPerSecond;
+
+        private double burst;
+
+    }
+
+    /**
+     * Requests of a workload run in at most {@code maxConcurrentRequests} threads, so a burst of one workload leaves
+     * threads for the other. The sum of both should stay below {@code server.tomcat.threads.max}.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Generated
+    public static class Bulkhead {
+
+        private int maxConcurrentRequests;
+
+        /**
+         * How long a request may wait for one of the {@code maxConcurrentRequests} slots before it is shed.
+         */
+        private Duration maxQueueWait;
+
+    }
+
+    public Bulkhead bulkheadOf(Workload workload) {
+        return workload == Workload.READ ? reads : writes;
+    }
+
+    public RateLimit limitFor(String endpoint) {
+        return endpoints.getOrDefault(endpoint, defaultLimit);
+    }
+
+}
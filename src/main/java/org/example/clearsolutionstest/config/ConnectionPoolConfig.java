@@ -0,0 +1,55 @@
+package org.example.clearsolutionstest.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Generated;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection bulkheads: a pool for reads and one for writes, both connecting with the url and credentials of
+ * {@code spring.datasource} and configured by {@code spring.datasource.hikari}, except for the size and connection
+ * timeout, which come from {@code application.connection-pools}. Their metrics are published as
+ * {@code hikaricp.connections.*} tagged with {@code pool=users-read} or {@code pool=users-write}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.connection-pools", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(ConnectionPoolProperties.class)
+@Generated
+public class ConnectionPoolConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, ConnectionPoolProperties properties,
+                                 Environment environment, MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        return new WorkloadRoutingDataSource(
+                pool(dataSourceProperties, binder, "users-read", properties.getRead(), meterRegistry),
+                pool(dataSourceProperties, binder, "users-write", properties.getWrite(), meterRegistry));
+    }
+
+    private static HikariDataSource pool(DataSourceProperties dataSourceProperties, Binder binder, String name,
+                                         ConnectionPoolProperties.Pool pool, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        // As the auto-configured pool would, the settings of the bulkhead then override them
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(pool.getMaximumPoolSize());
+        dataSource.setConnectionTimeout(pool.getConnectionTimeout().toMillis());
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+}
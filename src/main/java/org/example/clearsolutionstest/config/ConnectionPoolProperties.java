@@ -0,0 +1,40 @@
+package org.example.clearsolutionstest.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@Generated
+@ConfigurationProperties(prefix = "application.connection-pools")
+public class ConnectionPoolProperties {
+
+    /**
+     * Separate pools for reads and writes, otherwise one pool configured by {@code spring.datasource}.
+     */
+    private boolean enabled = true;
+
+    private Pool read = new Pool(8, Duration.ofSeconds(2));
+
+    private Pool write = new Pool(4, Duration.ofSeconds(5));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Generated
+    public static class Pool {
+
+        private int maximumPoolSize;
+
+        /**
+         * How long a thread waits for a connection of this pool before its request fails.
+         */
+        private Duration connectionTimeout;
+
+    }
+
+}
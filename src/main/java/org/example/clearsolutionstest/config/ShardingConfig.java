@@ -0,0 +1,41 @@
+package org.example.clearsolutionstest.config;
+
+import lombok.Generated;
+import org.example.clearsolutionstest.repository.shard.BirthYearRangeShardRouter;
+import org.example.clearsolutionstest.repository.shard.HashedIdShardRouter;
+import org.example.clearsolutionstest.repository.shard.ShardedUserRepository;
+import org.example.clearsolutionstest.repository.shard.UserShardRouter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "application.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+@Generated
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardedUserRepository shardedUserRepository(ShardingProperties properties) {
+        List<DataSource> dataSources = properties.getShards().stream()
+                .map(shard -> (DataSource) DataSourceBuilder.create()
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .build())
+                .toList();
+        UserShardRouter router = switch (properties.getStrategy()) {
+            case BIRTH_YEAR_RANGE -> new BirthYearRangeShardRouter(properties.getShards().stream()
+                    .map(shard -> shard.getMinBirthYear() == null ? Integer.MIN_VALUE : shard.getMinBirthYear())
+                    .toList());
+            case HASHED_ID -> new HashedIdShardRouter(dataSources.size());
+        };
+        return new ShardedUserRepository(dataSources, router);
+    }
+
+}
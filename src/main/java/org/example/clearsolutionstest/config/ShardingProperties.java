@@ -0,0 +1,47 @@
+package org.example.clearsolutionstest.config;
+
+import lombok.Data;
+import lombok.Generated;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Generated
+@ConfigurationProperties(prefix = "application.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    private Strategy strategy = Strategy.BIRTH_YEAR_RANGE;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    public enum Strategy {
+        /**
+         * Each shard owns the birth years from its {@code minBirthYear} up to the next shard's one. Range queries
+         * only touch overlapping shards, lookups by id have to ask every shard.
+         */
+        BIRTH_YEAR_RANGE,
+        /**
+         * Users are spread evenly by id. Lookups by id touch a single shard, range queries have to ask every shard.
+         */
+        HASHED_ID
+    }
+
+    @Data
+    @Generated
+    public static class Shard {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private Integer minBirthYear;
+
+    }
+
+}
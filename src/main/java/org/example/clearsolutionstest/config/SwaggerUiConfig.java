@@ -0,0 +1,75 @@
+package org.example.clearsolutionstest.config;
+
+import lombok.Generated;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+
+/**
+ * Serves Swagger UI from the springdoc webjar while {@code springdoc.api-docs.enabled} is off. springdoc only
+ * registers its UI next to the runtime scan, so without this the UI is gone together with {@code /v3/api-docs}.
+ * The UI reads {@code springdoc.swagger-ui.url}, which is the document generated by the build.
+ */
+@Configuration
+@ConditionalOnProperty(name = "springdoc.api-docs.enabled", havingValue = "false")
+@Generated
+public class SwaggerUiConfig implements WebMvcConfigurer {
+
+    private static final String WEBJAR = "META-INF/resources/webjars/swagger-ui/";
+
+    private static final String INITIALIZER = """
+            window.onload = function() {
+              window.ui = SwaggerUIBundle({
+                url: "%s",
+                dom_id: '#swagger-ui',
+                deepLinking: true,
+                presets: [SwaggerUIBundle.presets.apis, SwaggerUIStandalonePreset],
+                plugins: [SwaggerUIBundle.plugins.DownloadUrl],
+                layout: "StandaloneLayout"
+              });
+            };
+            """;
+
+    @Value("${springdoc.swagger-ui.url:/openapi.json}")
+    private String url;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/swagger-ui/**")
+                .addResourceLocations("classpath:/" + WEBJAR + webjarVersion() + "/");
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> swaggerUiRoutes() {
+        String initializer = INITIALIZER.formatted(url);
+        return RouterFunctions.route()
+                .GET("/swagger-ui.html", request -> ServerResponse
+                        .permanentRedirect(URI.create("/swagger-ui/index.html")).build())
+                .GET("/swagger-ui/swagger-initializer.js", request -> ServerResponse.ok()
+                        .contentType(MediaType.valueOf("application/javascript")).body(initializer))
+                .build();
+    }
+
+    private static String webjarVersion() {
+        try {
+            return PropertiesLoaderUtils.loadProperties(
+                    new ClassPathResource("META-INF/maven/org.webjars/swagger-ui/pom.properties")).getProperty("version");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Swagger UI webjar is not on the classpath", e);
+        }
+    }
+
+}
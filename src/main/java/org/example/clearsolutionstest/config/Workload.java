@@ -0,0 +1,31 @@
+package org.example.clearsolutionstest.config;
+
+/**
+ * Kind of work the current thread does for a request, which selects its execution and connection bulkheads.
+ * Threads outside requests, such as pollers and the seeder, do {@link #WRITE} work.
+ */
+public enum Workload {
+
+    READ,
+
+    WRITE;
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    public static Workload current() {
+        Workload workload = CURRENT.get();
+        return workload == null ? WRITE : workload;
+    }
+
+    /**
+     * Runs the work of the current thread as this workload until {@link #clear()}.
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.example.clearsolutionstest.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.io.Closeable;
+import java.util.Map;
+
+/**
+ * Hands out connections of the pool of the {@link Workload#current() current workload}, so reads waiting for
+ * connections never hold up writes and the other way round. Both pools connect to the same database.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final HikariDataSource readPool;
+
+    private final HikariDataSource writePool;
+
+    public WorkloadRoutingDataSource(HikariDataSource readPool, HikariDataSource writePool) {
+        this.readPool = readPool;
+        this.writePool = writePool;
+        setTargetDataSources(Map.of(Workload.READ, readPool, Workload.WRITE, writePool));
+        setDefaultTargetDataSource(writePool);
+    }
+
+    public HikariDataSource poolOf(Workload workload) {
+        return workload == Workload.READ ? readPool : writePool;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Workload.current();
+    }
+
+    @Override
+    public void close() {
+        readPool.close();
+        writePool.close();
+    }
+
+}
@@ -0,0 +1,274 @@
+package org.example.clearsolutionstest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.config.AdmissionControlProperties;
+import org.example.clearsolutionstest.config.AdmissionControlProperties.Bulkhead;
+import org.example.clearsolutionstest.config.AdmissionControlProperties.RateLimit;
+import org.example.clearsolutionstest.config.Workload;
+import org.example.clearsolutionstest.exception.ErrorCode;
+import org.example.clearsolutionstest.service.TimeService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Rejects requests before they reach the controllers: {@code 429} when the client used up its token bucket for the
+ * endpoint, {@code 503} when the instance is saturated. Shedding early keeps the latency of admitted requests flat
+ * instead of letting every request queue for threads and database connections.
+ * <p>
+ * Reads and writes are bulkheaded: each runs in its own number of slots with its own queue wait, and admitted
+ * requests are bound to their {@link Workload}, which selects their connection pool. A slow export can use up the
+ * read slots and connections but not the ones of writes. {@code users.admission.in-flight} and
+ * {@code users.admission.queued} tagged with the workload show how close each bulkhead is to shedding.
+ */
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    static final String USERS_PATH = "/api/v1/users";
+
+    static final String MULTI_GET_PATH = USERS_PATH + "/_mget";
+
+    static final String CHANGES_PATH = USERS_PATH + "/changes";
+
+    /**
+     * Request attribute with the client the request was admitted for.
+     */
+    static final String CLIENT_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".client";
+
+    /**
+     * A quoted uuid and a comma.
+     */
+    private static final int ID_JSON_BYTES = 39;
+
+    private static final long MAX_TRACKED_BUCKETS = 100_000;
+
+    private static final Duration IDLE_BUCKET_EXPIRY = Duration.ofMinutes(10);
+
+    private final AdmissionControlProperties properties;
+
+    private final IntSupplier threadsAwaitingConnection;
+
+    private final TimeService timeService;
+
+    private final ObjectMapper objectMapper;
+
+    private final LongSupplier nanoClock;
+
+    private final Map<Workload, Semaphore> slots = new EnumMap<>(Workload.class);
+
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(MAX_TRACKED_BUCKETS)
+            .expireAfterAccess(IDLE_BUCKET_EXPIRY)
+            .build();
+
+    private final Map<Workload, Counter> rateLimited = new EnumMap<>(Workload.class);
+
+    private final Map<Workload, Counter> shedOnQueueWait = new EnumMap<>(Workload.class);
+
+    private final Counter shedOnPoolSaturation;
+
+    public AdmissionControlFilter(AdmissionControlProperties properties, IntSupplier threadsAwaitingConnection,
+                                  TimeService timeService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                  LongSupplier nanoClock) {
+        this.properties = properties;
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+        this.timeService = timeService;
+        this.objectMapper = objectMapper;
+        this.nanoClock = nanoClock;
+        // Only reads are shed on a saturated pool
+        this.shedOnPoolSaturation = meterRegistry.counter("users.admission.rejected",
+                "reason", "pool-saturation", "workload", Workload.READ.name().toLowerCase());
+        for (Workload workload : Workload.values()) {
+            int maxConcurrentRequests = properties.bulkheadOf(workload).getMaxConcurrentRequests();
+            Semaphore workloadSlots = new Semaphore(maxConcurrentRequests);
+            String tag = workload.name().toLowerCase();
+            slots.put(workload, workloadSlots);
+            rateLimited.put(workload, meterRegistry.counter("users.admission.rejected",
+                    "reason", "rate-limit", "workload", tag));
+            shedOnQueueWait.put(workload, meterRegistry.counter("users.admission.rejected",
+                    "reason", "queue-wait", "workload", tag));
+            Gauge.builder("users.admission.in-flight", workloadSlots,
+                            semaphore -> maxConcurrentRequests - semaphore.availablePermits())
+                    .description("Admitted requests running, out of max-concurrent-requests of the workload")
+                    .tags("workload", tag)
+                    .register(meterRegistry);
+            Gauge.builder("users.admission.queued", workloadSlots, Semaphore::getQueueLength)
+                    .description("Requests waiting for a slot of the workload")
+                    .tags("workload", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String endpoint = endpointOf(request);
+        String client = clientOf(request, properties);
+        request.setAttribute(CLIENT_ATTRIBUTE, client);
+        long now = nanoClock.getAsLong();
+        Workload workload = workloadOf(request, endpoint);
+        RateLimit limit = properties.limitFor(endpoint);
+        long waitNanos = buckets.get(client + '|' + endpoint,
+                key -> new TokenBucket(limit.getRequestsPerSecond(), limit.getBurst(), now)
+        ).tryConsume(costOf(request, endpoint), now);
+        if (waitNanos > 0) {
+            log.debug("rate limited {} on {}", client, endpoint);
+            rateLimited.get(workload).increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, waitNanos,
+                    "Rate limit of %s requests per second exceeded for %s".formatted(limit.getRequestsPerSecond(), endpoint));
+            return;
+        }
+        if (workload == Workload.READ
+            && threadsAwaitingConnection.getAsInt() > properties.getMaxThreadsAwaitingConnection()) {
+            log.debug("shed {} on {}, connection pool is saturated", client, endpoint);
+            shedOnPoolSaturation.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "Server is overloaded, reads are temporarily rejected");
+            return;
+        }
+        Bulkhead bulkhead = properties.bulkheadOf(workload);
+        Semaphore workloadSlots = slots.get(workload);
+        if (!acquireSlot(workloadSlots, bulkhead)) {
+            log.debug("shed {} on {}, no free {} slot within {}", client, endpoint, workload, bulkhead.getMaxQueueWait());
+            shedOnQueueWait.get(workload).increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "Server is overloaded, try again later");
+            return;
+        }
+        workload.bind();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Workload.clear();
+            workloadSlots.release();
+        }
+    }
+
+    /**
+     * Names match the keys of {@code application.admission.endpoints}.
+     */
+    static String endpointOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if (path.equals(USERS_PATH)) {
+            if (HttpMethod.GET.matches(method)) {
+                return "list-users";
+            }
+            if (HttpMethod.POST.matches(method)) {
+                return "create-user";
+            }
+        } else if (path.equals(MULTI_GET_PATH)) {
+            if (HttpMethod.POST.matches(method)) {
+                return "multi-get-users";
+            }
+        } else if (path.equals(CHANGES_PATH)) {
+            if (HttpMethod.GET.matches(method)) {
+                return "user-changes";
+            }
+        } else if (path.startsWith(USERS_PATH + "/") && path.indexOf('/', USERS_PATH.length() + 1) < 0) {
+            if (HttpMethod.PUT.matches(method)) {
+                return "update-user";
+            }
+            if (HttpMethod.DELETE.matches(method)) {
+                return "delete-user";
+            }
+        }
+        return method.toLowerCase() + ' ' + path;
+    }
+
+    /**
+     * GETs and multi-gets only read, everything else may write.
+     */
+    static Workload workloadOf(HttpServletRequest request, String endpoint) {
+        return HttpMethod.GET.matches(request.getMethod()) || endpoint.equals("multi-get-users")
+                ? Workload.READ
+                : Workload.WRITE;
+    }
+
+    /**
+     * The client key header is only believed from a trusted proxy, anyone else could send a new key with every
+     * request and never run out of tokens.
+     */
+    static String clientOf(HttpServletRequest request, AdmissionControlProperties properties) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!properties.getTrustedProxies().contains(remoteAddr)) {
+            return remoteAddr;
+        }
+        String clientKey = request.getHeader(properties.getClientKeyHeader());
+        return clientKey == null || clientKey.isBlank() ? remoteAddr : clientKey;
+    }
+
+    /**
+     * The client this filter admitted {@code request} for, its remote address if admission control is disabled.
+     */
+    static String admittedClientOf(HttpServletRequest request) {
+        return request.getAttribute(CLIENT_ATTRIBUTE) instanceof String client ? client : request.getRemoteAddr();
+    }
+
+    /**
+     * Range queries cost in proportion to the requested page, so a client asking for 500 rows at a time gets fewer
+     * requests than one paging by 50. Multi-gets cost by the number of ids, estimated from the body length before it
+     * is read.
+     */
+    private double costOf(HttpServletRequest request, String endpoint) {
+        if (endpoint.equals("multi-get-users")) {
+            long ids = Math.max(0, request.getContentLengthLong()) / ID_JSON_BYTES;
+            return Math.max(1, Math.ceil(ids / (double) properties.getRowsPerToken()));
+        }
+        String pageSize = request.getParameter("pageSize");
+        if (pageSize == null) {
+            return 1;
+        }
+        try {
+            return Math.max(1, Math.ceil(Integer.parseInt(pageSize) / (double) properties.getRowsPerToken()));
+        } catch (NumberFormatException e) {
+            // Bad values are rejected by the controller
+            return 1;
+        }
+    }
+
+    private static boolean acquireSlot(Semaphore workloadSlots, Bulkhead bulkhead) {
+        try {
+            return workloadSlots.tryAcquire(bulkhead.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterNanos, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ExceptionResponse.builder()
+                .withMessage(message)
+                .withHttpStatus(status)
+                .withErrorCode(status == HttpStatus.TOO_MANY_REQUESTS ? ErrorCode.RATE_LIMITED : ErrorCode.OVERLOADED)
+                .withDate(timeService.utcNow())
+                .build());
+    }
+
+}
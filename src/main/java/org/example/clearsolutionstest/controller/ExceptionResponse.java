@@ -3,6 +3,7 @@ package org.example.clearsolutionstest.controller;
 import lombok.Builder;
 import lombok.Data;
 import lombok.Generated;
+import org.example.clearsolutionstest.exception.ErrorCode;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 
@@ -17,6 +18,8 @@ public class ExceptionResponse {
 
     private final HttpStatus httpStatus;
 
+    private final ErrorCode errorCode;
+
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
     private final LocalDateTime date;
 
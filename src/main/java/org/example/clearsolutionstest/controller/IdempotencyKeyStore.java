@@ -0,0 +1,108 @@
+package org.example.clearsolutionstest.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.exception.IdempotencyKeyReusedException;
+import org.example.clearsolutionstest.service.impl.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Recent {@code Idempotency-Key}s of {@code POST /api/v1/users} with the users they created, so a client retrying a
+ * create gets the id of the first attempt from memory instead of another transaction failing on the email. Retries
+ * arriving while the first attempt runs wait for it. Failed creates are not kept, their retries run again.
+ * <p>
+ * Keys are scoped by the client the admission filter identified, so one client can neither replay the user of
+ * another nor block its key. They are kept for {@code ttl-seconds}, at most {@code max-keys} of them, and only by
+ * this instance: a retry routed to another instance creates the user there or fails on the email as before.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyStore {
+
+    static final String CACHE_NAME = "idempotency-keys";
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final boolean enabled;
+
+    private final Cache<String, Created> keys;
+
+    private final SingleFlight<String, Created> creates = new SingleFlight<>(UnaryOperator.identity());
+
+    public IdempotencyKeyStore(MeterRegistry meterRegistry,
+                               @Value("${application.idempotency.enabled:true}") boolean enabled,
+                               @Value("${application.idempotency.max-keys:100000}") long maxKeys,
+                               @Value("${application.idempotency.ttl-seconds:3600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .<String, Created>build();
+        CaffeineCacheMetrics.monitor(meterRegistry, keys, CACHE_NAME);
+        creates.bindTo(meterRegistry, CACHE_NAME);
+    }
+
+    /**
+     * Runs {@code creator} once per {@code idempotencyKey} of {@code client}, or on every call without a key.
+     *
+     * @throws IdempotencyKeyReusedException if the key was used for another request
+     * @throws IllegalArgumentException      if the key is blank or longer than 255 characters
+     */
+    public Result createUser(String client, String idempotencyKey, CreateUserDto request, Supplier<UUID> creator) {
+        if (!enabled || idempotencyKey == null) {
+            return new Result(creator.get(), false);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must have 1 to %d characters".formatted(MAX_KEY_LENGTH));
+        }
+        String key = client + '|' + idempotencyKey;
+        Created stored = keys.getIfPresent(key);
+        if (stored != null) {
+            return replay(idempotencyKey, stored, request);
+        }
+        Created created = creates.execute(key, () -> {
+            // The first attempt may have finished between the lookup and here
+            Created finished = keys.getIfPresent(key);
+            if (finished != null) {
+                return finished;
+            }
+            Created result = new Created(request, creator.get());
+            keys.put(key, result);
+            return result;
+        });
+        // Only the call that ran the creator holds the request it was created for
+        return created.request() == request ? new Result(created.userId(), false)
+                : replay(idempotencyKey, created, request);
+    }
+
+    private Result replay(String idempotencyKey, Created created, CreateUserDto request) {
+        if (!created.request().equals(request)) {
+            IdempotencyKeyReusedException ex = new IdempotencyKeyReusedException(idempotencyKey);
+            log.debug("createUser", ex);
+            throw ex;
+        }
+        log.debug("createUser replayed {} for key {}", created.userId(), idempotencyKey);
+        return new Result(created.userId(), true);
+    }
+
+    /**
+     * @param replayed {@code true} if the user was created by an earlier request with the same key
+     */
+    public record Result(UUID userId, boolean replayed) {
+    }
+
+    private record Created(CreateUserDto request, UUID userId) {
+    }
+
+}
@@ -2,6 +2,8 @@ package org.example.clearsolutionstest.controller;
 
 import lombok.Generated;
 import lombok.RequiredArgsConstructor;
+import org.example.clearsolutionstest.exception.ErrorCode;
+import org.example.clearsolutionstest.exception.UserDomainException;
 import org.example.clearsolutionstest.service.TimeService;
 import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.http.HttpStatus;
@@ -24,6 +26,7 @@ public class RestControllerExceptionHandler {
         return ExceptionResponse.builder()
                 .withMessage(e.getMessage())
                 .withHttpStatus(HttpStatus.BAD_REQUEST)
+                .withErrorCode(ErrorCode.VALIDATION_FAILED)
                 .withDate(timeService.utcNow())
                 .build();
     }
@@ -35,6 +38,7 @@ public class RestControllerExceptionHandler {
         return ExceptionResponse.builder()
                 .withMessage(e.getMessage())
                 .withHttpStatus(HttpStatus.BAD_REQUEST)
+                .withErrorCode(ErrorCode.MALFORMED_REQUEST)
                 .withDate(timeService.utcNow())
                 .build();
     }
@@ -46,6 +50,18 @@ public class RestControllerExceptionHandler {
         return ExceptionResponse.builder()
                 .withMessage(e.getMessage())
                 .withHttpStatus(HttpStatus.BAD_REQUEST)
+                .withErrorCode(ErrorCode.MALFORMED_REQUEST)
+                .withDate(timeService.utcNow())
+                .build();
+    }
+
+    @ExceptionHandler(UserDomainException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ExceptionResponse handleUserDomainException(UserDomainException e) {
+        return ExceptionResponse.builder()
+                .withMessage(e.getMessage())
+                .withHttpStatus(HttpStatus.BAD_REQUEST)
+                .withErrorCode(e.getErrorCode())
                 .withDate(timeService.utcNow())
                 .build();
     }
@@ -57,6 +73,7 @@ public class RestControllerExceptionHandler {
         return ExceptionResponse.builder()
                 .withMessage(e.getMessage())
                 .withHttpStatus(HttpStatus.BAD_REQUEST)
+                .withErrorCode(ErrorCode.INVALID_ARGUMENT)
                 .withDate(timeService.utcNow())
                 .build();
     }
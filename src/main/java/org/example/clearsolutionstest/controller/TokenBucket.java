@@ -0,0 +1,37 @@
+package org.example.clearsolutionstest.controller;
+
+/**
+ * Classic token bucket, refilled lazily from the caller's clock.
+ */
+class TokenBucket {
+
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    TokenBucket(double tokensPerSecond, double capacity, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * @return 0 if the tokens were taken, otherwise nanos until enough tokens will be available
+     */
+    synchronized long tryConsume(double cost, long nowNanos) {
+        double required = Math.min(cost, capacity);
+        tokens = Math.min(capacity, tokens + (nowNanos - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = nowNanos;
+        if (tokens >= required) {
+            tokens -= required;
+            return 0;
+        }
+        return (long) Math.ceil((required - tokens) / tokensPerNano);
+    }
+
+}
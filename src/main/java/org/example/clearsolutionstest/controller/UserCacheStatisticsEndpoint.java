@@ -0,0 +1,65 @@
+package org.example.clearsolutionstest.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.dto.CacheRegionStatisticsDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Exposes hit ratios of the user second-level and query cache regions at {@code /actuator/usercache},
+ * so region sizes in {@code ehcache.xml} can be tuned against real traffic.
+ */
+@Component
+@Endpoint(id = "usercache")
+@RequiredArgsConstructor
+@Slf4j
+public class UserCacheStatisticsEndpoint {
+
+    private static final List<String> REGIONS = List.of(
+            User.CACHE_REGION,
+            UserRepository.BIRTH_DATE_RANGE_CACHE_REGION,
+            UserRepository.EMAIL_CACHE_REGION
+    );
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @ReadOperation
+    public List<CacheRegionStatisticsDto> regions() {
+        log.debug("regions");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<CacheRegionStatisticsDto> regions = REGIONS.stream()
+                .map(statistics::getCacheRegionStatistics)
+                .filter(Objects::nonNull)
+                .map(this::toDto)
+                .toList();
+        log.debug("end regions {}", regions);
+        return regions;
+    }
+
+    private CacheRegionStatisticsDto toDto(CacheRegionStatistics statistics) {
+        long hits = statistics.getHitCount();
+        long misses = statistics.getMissCount();
+        long requests = hits + misses;
+        long elementCount = statistics.getElementCountInMemory();
+        return new CacheRegionStatisticsDto(
+                statistics.getRegionName(),
+                hits,
+                misses,
+                statistics.getPutCount(),
+                requests == 0 ? 0 : (double) hits / requests,
+                elementCount < 0 ? null : elementCount
+        );
+    }
+
+}
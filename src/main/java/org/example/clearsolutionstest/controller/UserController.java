@@ -5,13 +5,25 @@ import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.clearsolutionstest.dto.CreateUserDto;
 import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
 import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.jfr.UserRequestEvent;
 import org.example.clearsolutionstest.service.UserService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -22,13 +34,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -40,12 +55,31 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Slf4j
 public class UserController {
 
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    static final String TOTAL_COUNT_EXACT_HEADER = "X-Total-Count-Exact";
+
+    static final String TOTAL_COUNT_ERROR_BOUND_HEADER = "X-Total-Count-Error-Bound";
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final UserService userService;
 
+    private final UserPageCache userPageCache;
+
+    private final IdempotencyKeyStore idempotencyKeyStore;
+
     @GetMapping
     @Operation(
             description = "Returns list of users by specified filter. Default values: pageIndex=0, pageSize=50." +
-                          " pageSize max value is 500"
+                          " pageSize max value is 500. With includeCount=true the number of users in the range is" +
+                          " returned in X-Total-Count, exact for short ranges and otherwise within" +
+                          " X-Total-Count-Error-Bound of the real number, see X-Total-Count-Exact. fields is a comma" +
+                          " separated list of GetUserDto fields to return, for example fields=email, only those" +
+                          " columns are read. id and links are always returned. sort is one of birthDate (default)," +
+                          " lastName or email, ties are ordered by id, so pages never repeat or skip users."
     )
     @ApiResponse(
             responseCode = "200",
@@ -64,26 +98,170 @@ public class UserController {
                     schema = @Schema(implementation = ExceptionResponse.class)
             )
     )
-    public List<GetUserDto> getUsers(@RequestParam LocalDate from, @RequestParam LocalDate to,
-                                     @RequestParam(required = false, defaultValue = "0") Integer pageIndex,
-                                     @RequestParam(required = false, defaultValue = "50") Integer pageSize) {
-        log.debug("getUsers {}, {}, {}, {}", from, to, pageIndex, pageSize);
-        List<GetUserDto> allByBirthDateRange = userService.findAllByBirthDateRange(from, to, pageIndex, pageSize);
-        allByBirthDateRange.forEach(user ->
+    public ResponseEntity<byte[]> getUsers(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                           @RequestParam(required = false, defaultValue = "0") Integer pageIndex,
+                                           @RequestParam(required = false, defaultValue = "50") Integer pageSize,
+                                           @RequestParam(required = false, defaultValue = "false") Boolean includeCount,
+                                           @RequestParam(required = false) String fields,
+                                           @RequestParam(required = false) String sort,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.debug("getUsers {}, {}, {}, {}, {}, {}, {}", from, to, pageIndex, pageSize, includeCount, fields, sort);
+        UserRequestEvent event = UserRequestEvent.start("getUsers", pageSize);
+        Set<UserField> selected = UserField.parse(fields);
+        UserSort order = UserSort.parse(sort);
+        UserPageCache.Key key = new UserPageCache.Key(from, to, pageIndex, pageSize, selected, order);
+        UserPageCache.Page page = userPageCache.get(key, () ->
+                selected.containsAll(UserField.ALL) && order == UserSort.BIRTH_DATE
+                        ? userService.findRowsByBirthDateRange(from, to, pageIndex, pageSize)
+                        : userService.findFieldsByBirthDateRange(from, to, pageIndex, pageSize, selected, order));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (Boolean.TRUE.equals(includeCount)) {
+            UserCountDto count = userService.countByBirthDateRange(from, to);
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(count.getCount()))
+                    .header(TOTAL_COUNT_EXACT_HEADER, String.valueOf(count.isExact()))
+                    .header(TOTAL_COUNT_ERROR_BOUND_HEADER, String.valueOf(count.getErrorBound()));
+        }
+        event.finish(page.rows());
+        log.debug("end getUsers {}", page.rows());
+        String usersHref = linkTo(UserController.class).toUri().toString();
+        byte[] gzippedBody = page.gzippedBody(usersHref);
+        if (gzippedBody != null && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzippedBody);
+        }
+        return response.body(page.body(usersHref));
+    }
+
+    @GetMapping("/upcoming-birthdays")
+    @Operation(
+            description = "Returns users with a birthday in the given number of days starting today (UTC), ordered by" +
+                          " that birthday. People born on February 29 are included on February 28 in other years." +
+                          " Default values: pageIndex=0, pageSize=50. days must be between 1 and 366, pageSize max" +
+                          " value is 500."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    array = @ArraySchema(
+                            schema = @Schema(implementation = GetUserDto.class)
+                    )
+            )
+    )
+    @ApiResponse(
+            responseCode = "400",
+            description = "Returns message containing all validation errors.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = ExceptionResponse.class)
+            )
+    )
+    public ResponseEntity<List<GetUserDto>> getUpcomingBirthdays(@RequestParam Integer days,
+                                                                 @RequestParam(required = false, defaultValue = "0") Integer pageIndex,
+                                                                 @RequestParam(required = false, defaultValue = "50") Integer pageSize) {
+        log.debug("getUpcomingBirthdays {}, {}, {}", days, pageIndex, pageSize);
+        UserRequestEvent event = UserRequestEvent.start("getUpcomingBirthdays", pageSize);
+        List<GetUserDto> upcomingBirthdays = userService.findUpcomingBirthdays(days, pageIndex, pageSize);
+        upcomingBirthdays.forEach(user ->
                 user.add(linkTo(methodOn(UserController.class).deleteUser(user.getId()))
                         .withRel("selfDelete").withType(HttpMethod.DELETE.toString()))
         );
-        log.debug("end getUsers {}", allByBirthDateRange);
-        return allByBirthDateRange;
+        event.finish(upcomingBirthdays.size());
+        log.debug("end getUpcomingBirthdays {}", upcomingBirthdays);
+        return ResponseEntity.ok(upcomingBirthdays);
+    }
+
+    @GetMapping("/changes")
+    @Operation(
+            description = "Returns users created, updated or deleted since the given UTC time, ordered by the time of" +
+                          " the change and then id. Pass nextSince and nextAfterId of the response to get the next" +
+                          " page, the last page returns them unchanged, so they can be kept for the next sync. Changes" +
+                          " of the last few seconds are returned only once they are settled. Deletions are kept for a" +
+                          " limited time, if since is older CHANGE_FEED_EXPIRED is returned and all users have to be synced" +
+                          " again." +
+                          " Default values: pageSize=500, pageSize max value is 500."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = UserChangesDto.class)
+            )
+    )
+    @ApiResponse(
+            responseCode = "400",
+            description = "Returns message containing all validation errors.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = ExceptionResponse.class)
+            )
+    )
+    public ResponseEntity<UserChangesDto> getUserChanges(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                                                         @RequestParam(required = false) UUID afterId,
+                                                         @RequestParam(required = false, defaultValue = "500") Integer pageSize) {
+        log.debug("getUserChanges {}, {}, {}", since, afterId, pageSize);
+        UserRequestEvent event = UserRequestEvent.start("getUserChanges", pageSize);
+        UserChangesDto changes = userService.findChangesSince(since, afterId, pageSize);
+        event.finish(changes.getChanges().size());
+        log.debug("end getUserChanges {}", changes.getChanges().size());
+        return ResponseEntity.ok(changes);
+    }
+
+    @PostMapping("/_mget")
+    @Operation(
+            description = "Returns the users with the given ids, up to " + MultiGetUsersDto.MAX_IDS + " at a time." +
+                          " There is one result per requested id in request order, ids without a user have" +
+                          " found=false and no user."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    array = @ArraySchema(
+                            schema = @Schema(implementation = MultiGetUserResultDto.class)
+                    )
+            )
+    )
+    @ApiResponse(
+            responseCode = "400",
+            description = "Returns message containing all validation errors.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = ExceptionResponse.class)
+            )
+    )
+    public ResponseEntity<List<MultiGetUserResultDto>> getUsersByIds(@RequestBody MultiGetUsersDto multiGetUsersDto) {
+        log.debug("getUsersByIds {}", multiGetUsersDto);
+        UserRequestEvent event = UserRequestEvent.start("getUsersByIds",
+                multiGetUsersDto.getIds() == null ? 0 : multiGetUsersDto.getIds().size());
+        List<MultiGetUserResultDto> results = userService.findAllByIds(multiGetUsersDto);
+        // Built from the collection link once, a method proxy per user is too slow for thousands of users
+        String usersHref = linkTo(UserController.class).toUri().toString();
+        int found = 0;
+        for (MultiGetUserResultDto result : results) {
+            if (result.isFound()) {
+                result.getUser().add(Link.of(usersHref + "/" + result.getId())
+                        .withRel("selfDelete").withType(HttpMethod.DELETE.toString()));
+                found++;
+            }
+        }
+        event.finish(found);
+        log.debug("end getUsersByIds {}", results.size());
+        return ResponseEntity.ok(results);
     }
 
     @PostMapping
     @Operation(
-            description = "Create user."
+            description = "Create user. Send a new Idempotency-Key (up to 255 characters) with every user to create" +
+                          " and the same key with its retries: a retry of a created user returns the id of that" +
+                          " user with Idempotent-Replayed: true instead of creating it again. Keys are kept for an" +
+                          " hour by default."
     )
     @ApiResponse(
             responseCode = "201",
-            description = "User was successfully created. It returns id of created user",
+            description = "User was successfully created, or was created by an earlier request with the same" +
+                          " Idempotency-Key. It returns id of created user",
             content = @Content(
                     mediaType = MediaType.APPLICATION_JSON_VALUE,
                     schema = @Schema(pattern = "{\"id\": \"28db0f04-0678-486a-80fb-2c7465bf0e13\"}")
@@ -97,10 +275,20 @@ public class UserController {
                     schema = @Schema(implementation = ExceptionResponse.class)
             )
     )
-    public ResponseEntity<Map<String, UUID>> createUser(@RequestBody CreateUserDto userDto) {
-        log.debug("createUser {}", userDto);
-        ResponseEntity<Map<String, UUID>> response = ResponseEntity.status(HttpStatus.CREATED.value())
-                .body(Map.of("id", userService.createUser(userDto)));
+    public ResponseEntity<Map<String, UUID>> createUser(@RequestBody CreateUserDto userDto,
+                                                        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                        HttpServletRequest request) {
+        log.debug("createUser {}, {}", userDto, idempotencyKey);
+        UserRequestEvent event = UserRequestEvent.start("createUser");
+        IdempotencyKeyStore.Result created = idempotencyKeyStore.createUser(
+                AdmissionControlFilter.admittedClientOf(request), idempotencyKey, userDto,
+                () -> userService.createUser(userDto));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.CREATED.value());
+        if (created.replayed()) {
+            builder.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        ResponseEntity<Map<String, UUID>> response = builder.body(Map.of("id", created.userId()));
+        event.finish(1);
         log.debug("end createUser {}", response);
         return response;
     }
@@ -125,12 +313,14 @@ public class UserController {
     )
     public ResponseEntity<EntityModel<Void>> updateUser(@PathVariable UUID id, @RequestBody UpdateUserDto userDto) {
         log.debug("updateUser {}, {}", id, userDto);
+        UserRequestEvent event = UserRequestEvent.start("updateUser");
         userService.updateUser(id, userDto);
         ResponseEntity<EntityModel<Void>> response = ResponseEntity.ok(new EntityModel<Void>() {}
                 .add(
                         linkTo(methodOn(UserController.class).deleteUser(id))
                                 .withRel("selfDelete").withType(HttpMethod.DELETE.toString())
                 ));
+        event.finish(0);
         log.debug("end updateUser {}", response);
         return response;
     }
@@ -143,10 +333,43 @@ public class UserController {
     )
     public ResponseEntity<Void> deleteUser(@PathVariable UUID id) {
         log.debug("deleteUser {}", id);
+        UserRequestEvent event = UserRequestEvent.start("deleteUser");
         userService.deleteUser(id);
         ResponseEntity<Void> response = ResponseEntity.ok().build();
+        event.finish(0);
         log.debug("end deleteUser {}", response);
         return response;
     }
 
+    /**
+     * Whether {@code gzip} is listed in an {@code Accept-Encoding} header without {@code q=0}. A {@code q} that is
+     * not a number counts as a refusal.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=") && !(quality(parameter.substring(2)) > 0)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double quality(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
 }
@@ -0,0 +1,169 @@
+package org.example.clearsolutionstest.controller;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.dto.JfrRecordingDto;
+import org.example.clearsolutionstest.jfr.UserOperationEvent;
+import org.example.clearsolutionstest.jfr.UserRequestEvent;
+import org.example.clearsolutionstest.service.TimeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Controls a Java Flight Recorder recording with the user events at {@code /actuator/userjfr}:
+ * {@code POST /start} with optional {@code settings} ({@code default} or {@code profile}), {@code POST /dump} to
+ * write what was recorded so far to a file and {@code DELETE} to stop and write it. Files go to
+ * {@code application.jfr.directory}, the path is in the response.
+ * <p>
+ * Not in the default web exposure, it is meant to be added on a management port that is not public.
+ */
+@Component
+@Endpoint(id = "userjfr")
+@Slf4j
+public class UserJfrEndpoint {
+
+    private static final String RECORDING_NAME = "users";
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final TimeService timeService;
+
+    private final Path directory;
+
+    private final Duration maxAge;
+
+    private Recording recording;
+
+    private String settings;
+
+    private Path lastFile;
+
+    public UserJfrEndpoint(TimeService timeService,
+                           @Value("${application.jfr.directory:${java.io.tmpdir}}") Path directory,
+                           @Value("${application.jfr.max-age:30m}") Duration maxAge) {
+        this.timeService = timeService;
+        this.directory = directory;
+        this.maxAge = maxAge;
+    }
+
+    @ReadOperation
+    public synchronized JfrRecordingDto status() {
+        return toDto();
+    }
+
+    @WriteOperation
+    public synchronized JfrRecordingDto control(@Selector String action, @Nullable String settings) {
+        log.debug("control {}, {}", action, settings);
+        JfrRecordingDto dto = switch (action) {
+            case "start" -> start(settings == null ? "default" : settings);
+            case "dump" -> dump();
+            default -> throw new IllegalArgumentException("Unknown action %s, use start or dump".formatted(action));
+        };
+        log.debug("end control {}", dto);
+        return dto;
+    }
+
+    @DeleteOperation
+    public synchronized JfrRecordingDto stop() {
+        log.debug("stop");
+        if (isRunning()) {
+            lastFile = nextFile();
+            createDirectory();
+            try {
+                recording.setDestination(lastFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write " + lastFile, e);
+            }
+            recording.stop();
+            recording.close();
+            log.info("Wrote JFR recording to {}", lastFile);
+        }
+        JfrRecordingDto dto = toDto();
+        log.debug("end stop {}", dto);
+        return dto;
+    }
+
+    private JfrRecordingDto start(String settings) {
+        if (isRunning()) {
+            return toDto();
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown JFR settings %s, use default or profile".formatted(settings), e);
+        }
+        recording = new Recording(configuration);
+        recording.setName(RECORDING_NAME);
+        recording.setMaxAge(maxAge);
+        recording.setToDisk(true);
+        recording.enable(UserOperationEvent.NAME).withoutThreshold();
+        recording.enable(UserRequestEvent.NAME).withoutThreshold();
+        recording.start();
+        this.settings = settings;
+        this.lastFile = null;
+        log.info("Started JFR recording with {} settings", settings);
+        return toDto();
+    }
+
+    private JfrRecordingDto dump() {
+        if (!isRunning()) {
+            throw new IllegalArgumentException("No recording is running");
+        }
+        lastFile = nextFile();
+        write(lastFile);
+        return toDto();
+    }
+
+    private void write(Path file) {
+        createDirectory();
+        try {
+            recording.dump(file);
+            log.info("Wrote JFR recording to {}", file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file, e);
+        }
+    }
+
+    private void createDirectory() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create " + directory, e);
+        }
+    }
+
+    private Path nextFile() {
+        return directory.resolve("users-%s.jfr".formatted(timeService.utcNow().format(FILE_TIME)));
+    }
+
+    private boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    private JfrRecordingDto toDto() {
+        return new JfrRecordingDto(
+                RECORDING_NAME,
+                recording == null ? RecordingState.NEW.name() : recording.getState().name(),
+                settings,
+                lastFile == null ? null : lastFile.toString()
+        );
+    }
+
+}
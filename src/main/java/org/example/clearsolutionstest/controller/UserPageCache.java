@@ -0,0 +1,280 @@
+package org.example.clearsolutionstest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.example.clearsolutionstest.service.UserWrittenEvent;
+import org.example.clearsolutionstest.service.impl.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded {@code GET /api/v1/users} pages, so hot pages are answered without the service, the mapping or the JSON
+ * writer. Pages of at least {@code gzip-min-bytes} are also kept gzipped. The delete links of a page are absolute and
+ * depend on the host a request was sent to, so pages are stored without the users href in front of the links and it
+ * is put in when a page is served, see {@link Page}.
+ * <p>
+ * A change of a user drops the pages whose range contains its previous or new birth date: changes of this instance
+ * once committed, changes of other instances when read from the outbox. Every drop increments a generation, and a
+ * page is only stored if no drop happened while it was read, so a read racing with a change is answered but not
+ * cached. Pages also expire after {@code ttl-seconds}, which bounds how stale they get where changes of other
+ * instances are not published, as with sharding.
+ */
+@Component
+@Slf4j
+public class UserPageCache {
+
+    static final String CACHE_NAME = "user-pages";
+
+    /**
+     * Rough size of a key and an entry besides the bytes.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final UserRowsWriter writer;
+
+    private final boolean enabled;
+
+    private final int gzipMinBytes;
+
+    private final Cache<Key, Page> pages;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final SingleFlight<Fill, Page> fills = new SingleFlight<>(UnaryOperator.identity());
+
+    public UserPageCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${application.response-cache.enabled:true}") boolean enabled,
+                         @Value("${application.response-cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${application.response-cache.ttl-seconds:300}") long ttlSeconds,
+                         @Value("${application.response-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.writer = new UserRowsWriter(objectMapper);
+        this.enabled = enabled;
+        this.gzipMinBytes = gzipMinBytes;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, Page>weigher((key, page) -> page.weight())
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, CACHE_NAME);
+        fills.bindTo(meterRegistry, CACHE_NAME);
+    }
+
+    /**
+     * The cached page of {@code key}, otherwise the rows of {@code loader} encoded. Concurrent misses of a key load
+     * it once.
+     */
+    public Page get(Key key, Supplier<List<User>> loader) {
+        Page cached = enabled ? pages.getIfPresent(key) : null;
+        if (cached != null) {
+            return cached;
+        }
+        long readAt = generation.get();
+        // Callers arriving after a drop start a new read instead of sharing one that may miss the change
+        return fills.execute(new Fill(key, readAt), () -> {
+            Page page = encode(new UserRows(loader.get(), "", key.fields()));
+            if (enabled) {
+                pages.asMap().compute(key, (k, current) -> generation.get() == readAt ? page : current);
+            }
+            return page;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserWritten(UserWrittenEvent event) {
+        invalidate(event.previousBirthDate(), event.birthDate());
+    }
+
+    /**
+     * Runs after the listeners evicting the Hibernate caches and refreshing the columnar store, so pages read after
+     * the drop see the change.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onUserChanged(UserChangedEvent event) {
+        invalidate(event.previousBirthDate(), event.birthDate());
+    }
+
+    void invalidate(LocalDate previousBirthDate, LocalDate birthDate) {
+        log.debug("invalidate {}, {}", previousBirthDate, birthDate);
+        // Incremented before dropping, so a page stored after the drop passed its key fails the generation check
+        generation.incrementAndGet();
+        pages.asMap().keySet().removeIf(key -> key.contains(previousBirthDate) || key.contains(birthDate));
+    }
+
+    int size() {
+        return pages.asMap().size();
+    }
+
+    private Page encode(UserRows rows) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            writer.write(rows, body);
+            byte[] bytes = body.toByteArray();
+            return new Page(bytes, rows.users().size(), enabled && bytes.length >= gzipMinBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            return compressed.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Request parameters of a page, with the defaults applied.
+     */
+    public record Key(LocalDate from, LocalDate to, int pageIndex, int pageSize, Set<UserField> fields,
+                      UserSort sort) {
+
+        public Key {
+            fields = Set.copyOf(fields);
+        }
+
+        boolean contains(LocalDate birthDate) {
+            return birthDate != null && !birthDate.isBefore(from) && !birthDate.isAfter(to);
+        }
+
+    }
+
+    /**
+     * A page written with an empty users href, so its delete links are only {@code "/" + id}. The href of a request
+     * is copied in front of each of them when the page is served. The page with the href of the last request, and
+     * its gzipped copy, are kept, so requests to the same host copy nothing.
+     */
+    public static final class Page {
+
+        /**
+         * Only written as the name of a link's href, string values have their quotes escaped.
+         */
+        private static final byte[] HREF_FIELD = "\"href\":\"".getBytes(StandardCharsets.UTF_8);
+
+        private final byte[] template;
+
+        private final int[] hrefOffsets;
+
+        private final int rows;
+
+        private final boolean gzipped;
+
+        private volatile Rendering rendering;
+
+        private Page(byte[] template, int rows, boolean gzipped) {
+            this.template = template;
+            this.rows = rows;
+            this.gzipped = gzipped;
+            this.hrefOffsets = hrefOffsetsOf(template, rows);
+        }
+
+        /**
+         * @return number of users in the page
+         */
+        public int rows() {
+            return rows;
+        }
+
+        /**
+         * @return the page with its delete links starting with {@code usersHref}
+         */
+        public byte[] body(String usersHref) {
+            return renderingFor(usersHref).body();
+        }
+
+        /**
+         * @return {@link #body} gzipped, {@code null} if it is too small to be worth it
+         */
+        public byte[] gzippedBody(String usersHref) {
+            return renderingFor(usersHref).gzippedBody();
+        }
+
+        /**
+         * The template and its rendering for one host, the gzipped copy is counted as a quarter of the template.
+         */
+        int weight() {
+            return ENTRY_OVERHEAD_BYTES + template.length * 2 + hrefOffsets.length * Integer.BYTES
+                   + (gzipped ? template.length / 4 : 0);
+        }
+
+        private Rendering renderingFor(String usersHref) {
+            Rendering current = rendering;
+            if (current == null || !current.usersHref().equals(usersHref)) {
+                current = render(usersHref);
+                rendering = current;
+            }
+            return current;
+        }
+
+        private Rendering render(String usersHref) {
+            byte[] href = usersHref.getBytes(StandardCharsets.UTF_8);
+            byte[] body = new byte[template.length + hrefOffsets.length * href.length];
+            int copied = 0;
+            int written = 0;
+            for (int offset : hrefOffsets) {
+                System.arraycopy(template, copied, body, written, offset - copied);
+                written += offset - copied;
+                System.arraycopy(href, 0, body, written, href.length);
+                written += href.length;
+                copied = offset;
+            }
+            System.arraycopy(template, copied, body, written, template.length - copied);
+            return new Rendering(usersHref, body, gzipped ? gzip(body) : null);
+        }
+
+        /**
+         * @return offsets of the href values, every row has one link
+         */
+        private static int[] hrefOffsetsOf(byte[] template, int rows) {
+            int[] offsets = new int[rows];
+            int found = 0;
+            for (int i = 0; found < rows && i <= template.length - HREF_FIELD.length; i++) {
+                if (Arrays.equals(template, i, i + HREF_FIELD.length, HREF_FIELD, 0, HREF_FIELD.length)) {
+                    offsets[found++] = i + HREF_FIELD.length;
+                    i += HREF_FIELD.length - 1;
+                }
+            }
+            return offsets;
+        }
+
+    }
+
+    private record Rendering(String usersHref, byte[] body, byte[] gzippedBody) {
+    }
+
+    private record Fill(Key key, long generation) {
+    }
+
+}
@@ -0,0 +1,22 @@
+package org.example.clearsolutionstest.controller;
+
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Response body of a user page, written by {@link UserRowsWriter} in the same format Jackson writes
+ * a list of {@code GetUserDto} with a {@code selfDelete} link each.
+ *
+ * @param usersHref link to the users collection, the delete link of a user is this plus its id
+ * @param fields    fields written for every user, the id and the link are always written
+ */
+public record UserRows(List<User> users, String usersHref, Set<UserField> fields) {
+
+    public UserRows(List<User> users, String usersHref) {
+        this(users, usersHref, UserField.ALL);
+    }
+
+}
@@ -0,0 +1,180 @@
+package org.example.clearsolutionstest.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Writes {@link UserRows} field by field with Jackson's streaming generator, without a {@code GetUserDto}, a
+ * {@code Link} or a string per id, date or link. Property names are encoded once, ids, dates and links are formatted
+ * into char buffers reused for every row, and the generator's byte buffers are recycled by Jackson. Fields not in
+ * {@link UserRows#fields()} are left out entirely. Used by {@link UserPageCache} to encode the pages it serves.
+ */
+public class UserRowsWriter {
+
+    private static final SerializableString ID = new SerializedString("id");
+
+    private static final SerializableString EMAIL = new SerializedString("email");
+
+    private static final SerializableString FIRST_NAME = new SerializedString("firstName");
+
+    private static final SerializableString LAST_NAME = new SerializedString("lastName");
+
+    private static final SerializableString BIRTH_DATE = new SerializedString("birthDate");
+
+    private static final SerializableString ADDRESS = new SerializedString("address");
+
+    private static final SerializableString PHONE_NUMBER = new SerializedString("phoneNumber");
+
+    private static final SerializableString LINKS = new SerializedString("links");
+
+    private static final SerializableString REL = new SerializedString("rel");
+
+    private static final SerializableString HREF = new SerializedString("href");
+
+    private static final SerializableString TYPE = new SerializedString("type");
+
+    private static final SerializableString SELF_DELETE = new SerializedString("selfDelete");
+
+    private static final SerializableString DELETE = new SerializedString(HttpMethod.DELETE.name());
+
+    private static final int UUID_LENGTH = 36;
+
+    private static final int DATE_LENGTH = 10;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final JsonFactory jsonFactory;
+
+    public UserRowsWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public void write(UserRows rows, OutputStream out) throws IOException {
+        int hrefPrefixLength = rows.usersHref().length() + 1;
+        char[] href = new char[hrefPrefixLength + UUID_LENGTH];
+        rows.usersHref().getChars(0, hrefPrefixLength - 1, href, 0);
+        href[hrefPrefixLength - 1] = '/';
+        char[] date = new char[DATE_LENGTH];
+        Set<UserField> fields = rows.fields();
+        boolean email = fields.contains(UserField.EMAIL);
+        boolean firstName = fields.contains(UserField.FIRST_NAME);
+        boolean lastName = fields.contains(UserField.LAST_NAME);
+        boolean birthDate = fields.contains(UserField.BIRTH_DATE);
+        boolean address = fields.contains(UserField.ADDRESS);
+        boolean phoneNumber = fields.contains(UserField.PHONE_NUMBER);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (User user : rows.users()) {
+                writeUuid(user.getId(), href, hrefPrefixLength);
+                generator.writeStartObject();
+                generator.writeFieldName(ID);
+                generator.writeString(href, hrefPrefixLength, UUID_LENGTH);
+                if (email) {
+                    writeString(generator, EMAIL, user.getEmail());
+                }
+                if (firstName) {
+                    writeString(generator, FIRST_NAME, user.getFirstName());
+                }
+                if (lastName) {
+                    writeString(generator, LAST_NAME, user.getLastName());
+                }
+                if (birthDate) {
+                    generator.writeFieldName(BIRTH_DATE);
+                    writeDate(generator, user.getBirthDate(), date);
+                }
+                if (address) {
+                    writeString(generator, ADDRESS, user.getAddress());
+                }
+                if (phoneNumber) {
+                    writeString(generator, PHONE_NUMBER, user.getPhoneNumber());
+                }
+                generator.writeFieldName(LINKS);
+                generator.writeStartArray();
+                generator.writeStartObject();
+                generator.writeFieldName(REL);
+                generator.writeString(SELF_DELETE);
+                generator.writeFieldName(HREF);
+                generator.writeString(href, 0, href.length);
+                generator.writeFieldName(TYPE);
+                generator.writeString(DELETE);
+                generator.writeEndObject();
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    /**
+     * ISO date as Jackson writes {@link LocalDate} with timestamps disabled.
+     */
+    private static void writeDate(JsonGenerator generator, LocalDate value, char[] buffer) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            generator.writeString(value.toString());
+            return;
+        }
+        writeDigits(buffer, 0, year, 4);
+        buffer[4] = '-';
+        writeDigits(buffer, 5, value.getMonthValue(), 2);
+        buffer[7] = '-';
+        writeDigits(buffer, 8, value.getDayOfMonth(), 2);
+        generator.writeString(buffer, 0, DATE_LENGTH);
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Same text as {@link UUID#toString()}.
+     */
+    static void writeUuid(UUID id, char[] buffer, int offset) {
+        writeHex(buffer, offset, id.getMostSignificantBits() >>> 32, 8);
+        buffer[offset + 8] = '-';
+        writeHex(buffer, offset + 9, id.getMostSignificantBits() >>> 16, 4);
+        buffer[offset + 13] = '-';
+        writeHex(buffer, offset + 14, id.getMostSignificantBits(), 4);
+        buffer[offset + 18] = '-';
+        writeHex(buffer, offset + 19, id.getLeastSignificantBits() >>> 48, 4);
+        buffer[offset + 23] = '-';
+        writeHex(buffer, offset + 24, id.getLeastSignificantBits(), 12);
+    }
+
+    private static void writeHex(char[] buffer, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+}
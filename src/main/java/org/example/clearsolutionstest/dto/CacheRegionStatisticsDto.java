@@ -0,0 +1,26 @@
+package org.example.clearsolutionstest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Generated
+public class CacheRegionStatisticsDto {
+
+    private String region;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long putCount;
+
+    private double hitRatio;
+
+    private Long elementCountInMemory;
+
+}
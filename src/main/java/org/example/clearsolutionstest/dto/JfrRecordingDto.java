@@ -0,0 +1,25 @@
+package org.example.clearsolutionstest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Generated
+public class JfrRecordingDto {
+
+    private String name;
+
+    private String state;
+
+    private String settings;
+
+    /**
+     * File the recording was last dumped to, {@code null} until then.
+     */
+    private String file;
+
+}
@@ -0,0 +1,25 @@
+package org.example.clearsolutionstest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Answer for one requested id, {@code user} is {@code null} when {@code found} is not set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Generated
+public class MultiGetUserResultDto {
+
+    private UUID id;
+
+    private boolean found;
+
+    private GetUserDto user;
+
+}
@@ -0,0 +1,25 @@
+package org.example.clearsolutionstest.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Generated
+public class MultiGetUsersDto {
+
+    public static final int MAX_IDS = 5000;
+
+    @NotNull(message = "Ids must be given")
+    @Size(min = 1, max = MAX_IDS)
+    private List<@NotNull UUID> ids;
+
+}
@@ -0,0 +1,29 @@
+package org.example.clearsolutionstest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Latest state of a changed user, {@code user} is {@code null} when {@code deleted} is set. {@code changedAt} is
+ * UTC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Generated
+public class UserChangeDto {
+
+    private UUID id;
+
+    private boolean deleted;
+
+    private LocalDateTime changedAt;
+
+    private GetUserDto user;
+
+}
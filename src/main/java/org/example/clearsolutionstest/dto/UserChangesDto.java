@@ -0,0 +1,28 @@
+package org.example.clearsolutionstest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Page of the change feed, the next page is requested with {@code nextSince} and {@code nextAfterId}. Those stay the
+ * requested values when there are no new changes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Generated
+public class UserChangesDto {
+
+    private List<UserChangeDto> changes;
+
+    private LocalDateTime nextSince;
+
+    private UUID nextAfterId;
+
+}
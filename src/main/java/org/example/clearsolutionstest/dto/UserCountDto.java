@@ -0,0 +1,23 @@
+package org.example.clearsolutionstest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Generated;
+import lombok.NoArgsConstructor;
+
+/**
+ * The real number of users is within {@code count - errorBound} and {@code count + errorBound}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Generated
+public class UserCountDto {
+
+    private long count;
+
+    private boolean exact;
+
+    private long errorBound;
+
+}
@@ -1,27 +1,34 @@
 package org.example.clearsolutionstest.entity;
 
 import jakarta.annotation.Nullable;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Past;
 import jakarta.validation.constraints.Pattern;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.Length;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity(name = "User")
@@ -30,17 +37,26 @@ import java.util.UUID;
         uniqueConstraints = @UniqueConstraint(
                 name = "users_email_key",
                 columnNames = "email"
-        )
+        ),
+        indexes = {
+                @Index(name = "users_birth_date_id_idx", columnList = "birth_date, id"),
+                @Index(name = "users_last_name_id_birth_date_idx", columnList = "last_name, id, birth_date"),
+                @Index(name = "users_email_id_birth_date_idx", columnList = "email, id, birth_date"),
+                @Index(name = "users_birth_month_day_id_idx", columnList = "birth_month_day, id"),
+                @Index(name = "users_updated_at_id_idx", columnList = "updated_at, id")
+        }
 )
 @Getter
 @Setter
 @ToString
 @NoArgsConstructor
-@AllArgsConstructor
-@Builder(setterPrefix = "with")
 @EqualsAndHashCode
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 public class User {
 
+    public static final String CACHE_REGION = "users";
+
     @Id
     @GeneratedValue
     @Column(name = "id", nullable = false, columnDefinition = "uuid")
@@ -82,6 +98,15 @@ public class User {
     @Past
     private LocalDate birthDate;
 
+    /**
+     * {@link #birthDate} without the year as {@code month * 100 + day}, so birthdays of a calendar window are an
+     * index range scan whatever year people were born in. Always derived from the birth date.
+     */
+    @Column(name = "birth_month_day", nullable = false)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private int birthMonthDay;
+
     @Nullable
     @Column(name = "address", columnDefinition = "varchar(200)")
     @Length(max = 200)
@@ -92,4 +117,50 @@ public class User {
     @Pattern(regexp="\\d{8,18}", message="Phone number must be between 8 and 18 digits")
     private String phoneNumber;
 
+    /**
+     * UTC, set by the services and bulk loads. {@code null} only for users written around them.
+     */
+    @Nullable
+    @Column(name = "created_at")
+    @ToString.Exclude
+    private LocalDateTime createdAt;
+
+    /**
+     * UTC, set with {@link #createdAt} and on every update, the change feed reads users in this order.
+     */
+    @Nullable
+    @Column(name = "updated_at")
+    @ToString.Exclude
+    private LocalDateTime updatedAt;
+
+    @Builder(setterPrefix = "with")
+    public User(UUID id, String email, String firstName, String lastName, LocalDate birthDate, String address,
+                String phoneNumber) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.address = address;
+        this.phoneNumber = phoneNumber;
+        setBirthDate(birthDate);
+    }
+
+    public static int birthMonthDayOf(LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    public void setBirthDate(LocalDate birthDate) {
+        this.birthDate = birthDate;
+        this.birthMonthDay = birthDate == null ? 0 : birthMonthDayOf(birthDate);
+    }
+
+    /**
+     * Mappers may set the birth date field directly, this keeps the stored month and day in line with it.
+     */
+    @PrePersist
+    @PreUpdate
+    void deriveBirthMonthDay() {
+        setBirthDate(birthDate);
+    }
+
 }
@@ -0,0 +1,36 @@
+package org.example.clearsolutionstest.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * Number of users born on a day, kept up to date in the transactions changing users.
+ */
+@Entity(name = "UserBirthDateCount")
+@Table(name = "user_birth_date_count")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class UserBirthDateCount {
+
+    @Id
+    @Column(name = "birth_date", nullable = false)
+    private LocalDate birthDate;
+
+    @Column(name = "user_count", nullable = false)
+    private long userCount;
+
+}
@@ -0,0 +1,7 @@
+package org.example.clearsolutionstest.entity;
+
+public enum UserChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
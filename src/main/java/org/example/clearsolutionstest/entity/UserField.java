@@ -0,0 +1,95 @@
+package org.example.clearsolutionstest.entity;
+
+import lombok.Getter;
+import org.example.clearsolutionstest.exception.UnknownUserFieldException;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fields of a {@link User} a client can ask for, named as in the API and the entity. {@link #ID} is always returned,
+ * responses link to the user by it.
+ */
+@Getter
+public enum UserField {
+
+    ID("id", "id", UUID.class),
+
+    EMAIL("email", "email", String.class),
+
+    FIRST_NAME("firstName", "first_name", String.class),
+
+    LAST_NAME("lastName", "last_name", String.class),
+
+    BIRTH_DATE("birthDate", "birth_date", LocalDate.class),
+
+    ADDRESS("address", "address", String.class),
+
+    PHONE_NUMBER("phoneNumber", "phone_number", String.class);
+
+    /**
+     * In declaration order, which is the order fields are selected and written in.
+     */
+    public static final Set<UserField> ALL = Collections.unmodifiableSet(EnumSet.allOf(UserField.class));
+
+    private static final Map<String, UserField> BY_PROPERTY = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(UserField::getProperty, Function.identity()));
+
+    private final String property;
+
+    private final String column;
+
+    private final Class<?> type;
+
+    UserField(String property, String column, Class<?> type) {
+        this.property = property;
+        this.column = column;
+        this.type = type;
+    }
+
+    /**
+     * @param fields comma separated property names, {@code null} or blank for all fields
+     * @return the named fields and {@link #ID} in declaration order
+     */
+    public static Set<UserField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        EnumSet<UserField> parsed = EnumSet.of(ID);
+        for (String property : fields.split(",")) {
+            String trimmed = property.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            UserField field = BY_PROPERTY.get(trimmed);
+            if (field == null) {
+                throw new UnknownUserFieldException(trimmed);
+            }
+            parsed.add(field);
+        }
+        return Collections.unmodifiableSet(parsed);
+    }
+
+    /**
+     * Sets this field of a user built from a projection, {@code value} is of {@link #getType()}.
+     */
+    public void set(User user, Object value) {
+        switch (this) {
+            case ID -> user.setId((UUID) value);
+            case EMAIL -> user.setEmail((String) value);
+            case FIRST_NAME -> user.setFirstName((String) value);
+            case LAST_NAME -> user.setLastName((String) value);
+            case BIRTH_DATE -> user.setBirthDate((LocalDate) value);
+            case ADDRESS -> user.setAddress((String) value);
+            case PHONE_NUMBER -> user.setPhoneNumber((String) value);
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.example.clearsolutionstest.entity;
+
+import jakarta.annotation.Nullable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Change of a user, written in the same transaction as the change itself and consumed by every instance.
+ */
+@Entity(name = "UserOutboxEvent")
+@Table(
+        name = "user_outbox",
+        indexes = @Index(name = "user_outbox_created_at_idx", columnList = "created_at")
+)
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(setterPrefix = "with")
+@EqualsAndHashCode
+public class UserOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, columnDefinition = "uuid")
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, columnDefinition = "varchar(10)")
+    private UserChangeType changeType;
+
+    @Nullable
+    @Column(name = "previous_birth_date")
+    private LocalDate previousBirthDate;
+
+    @Nullable
+    @Column(name = "birth_date")
+    private LocalDate birthDate;
+
+    @Column(name = "node_id", nullable = false, columnDefinition = "varchar(36)")
+    private String nodeId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+}
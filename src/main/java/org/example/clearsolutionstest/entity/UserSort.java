@@ -0,0 +1,67 @@
+package org.example.clearsolutionstest.entity;
+
+import lombok.Getter;
+import org.example.clearsolutionstest.exception.UnknownUserSortException;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+
+/**
+ * Orders of a birth date range page. Every order ends with the id, so it is total and pages neither repeat nor skip
+ * users, and every order has an index starting with its columns, so a page can be read in index order with the scan
+ * stopping once the page is full.
+ */
+@Getter
+public enum UserSort {
+
+    /**
+     * The range is the start of the index, so the range scan is already in order.
+     */
+    BIRTH_DATE(UserField.BIRTH_DATE, "users_birth_date_id_idx"),
+
+    /**
+     * The birth date is in the index, so users outside the range are skipped without reading their rows.
+     */
+    LAST_NAME(UserField.LAST_NAME, "users_last_name_id_birth_date_idx"),
+
+    EMAIL(UserField.EMAIL, "users_email_id_birth_date_idx");
+
+    private final UserField field;
+
+    private final String index;
+
+    private final Sort sort;
+
+    UserSort(UserField field, String index) {
+        this.field = field;
+        this.index = index;
+        this.sort = Sort.by(field.getProperty(), UserField.ID.getProperty());
+    }
+
+    /**
+     * Whether scanning {@link #getIndex()} in order reads fewer entries than scanning the birth date range and
+     * sorting it. The ordered scan passes about {@code pageEnd * users / usersInRange} entries before the page is
+     * full, the range scan reads all {@code usersInRange} rows. The planner does not know the page ends early, so it
+     * picks the range scan even for ranges covering most users.
+     *
+     * @param pageEnd offset of the page plus its size
+     */
+    public boolean scansIndexInOrder(long pageEnd, long usersInRange, long users) {
+        return this == BIRTH_DATE || (double) pageEnd * users < (double) usersInRange * usersInRange;
+    }
+
+    /**
+     * @param property property name of the field to order by, {@code null} or blank for {@link #BIRTH_DATE}
+     */
+    public static UserSort parse(String property) {
+        if (property == null || property.isBlank()) {
+            return BIRTH_DATE;
+        }
+        String trimmed = property.trim();
+        return Arrays.stream(values())
+                .filter(sort -> sort.field.getProperty().equals(trimmed))
+                .findFirst()
+                .orElseThrow(() -> new UnknownUserSortException(trimmed));
+    }
+
+}
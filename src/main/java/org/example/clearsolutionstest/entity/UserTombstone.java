@@ -0,0 +1,45 @@
+package org.example.clearsolutionstest.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Deleted user, written in the transaction deleting it so the change feed can report the deletion. Kept for
+ * {@code application.change-feed.tombstone-retention-days}.
+ */
+@Entity(name = "UserTombstone")
+@Table(
+        name = "user_tombstones",
+        indexes = @Index(name = "user_tombstones_deleted_at_user_id_idx", columnList = "deleted_at, user_id")
+)
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class UserTombstone {
+
+    @Id
+    @Column(name = "user_id", nullable = false, columnDefinition = "uuid")
+    private UUID userId;
+
+    /**
+     * UTC.
+     */
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+}
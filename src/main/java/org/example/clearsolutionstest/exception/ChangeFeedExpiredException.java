@@ -0,0 +1,26 @@
+package org.example.clearsolutionstest.exception;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+public class ChangeFeedExpiredException extends UserDomainException {
+
+    private final LocalDateTime since;
+
+    private final LocalDateTime oldestAvailable;
+
+    public ChangeFeedExpiredException(LocalDateTime since, LocalDateTime oldestAvailable) {
+        super(ErrorCode.CHANGE_FEED_EXPIRED);
+        this.since = since;
+        this.oldestAvailable = oldestAvailable;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Deletions before %s are no longer kept, changes since %s can not be listed, sync all users again"
+                .formatted(oldestAvailable, since);
+    }
+
+}
@@ -0,0 +1,20 @@
+package org.example.clearsolutionstest.exception;
+
+import lombok.Getter;
+
+@Getter
+public class EmailAlreadyExistsException extends UserDomainException {
+
+    private final String email;
+
+    public EmailAlreadyExistsException(String email) {
+        super(ErrorCode.EMAIL_ALREADY_EXISTS);
+        this.email = email;
+    }
+
+    @Override
+    public String getMessage() {
+        return "User with email %s already exist".formatted(email);
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.example.clearsolutionstest.exception;
+
+/**
+ * Stable machine readable reason of an {@code ExceptionResponse}, clients should branch on it rather than on the
+ * message.
+ */
+public enum ErrorCode {
+
+    USER_NOT_FOUND,
+
+    EMAIL_ALREADY_EXISTS,
+
+    INVALID_DATE_RANGE,
+
+    INVALID_ARGUMENT,
+
+    CHANGE_FEED_EXPIRED,
+
+    IDEMPOTENCY_KEY_REUSED,
+
+    VALIDATION_FAILED,
+
+    MALFORMED_REQUEST,
+
+    RATE_LIMITED,
+
+    OVERLOADED
+
+}
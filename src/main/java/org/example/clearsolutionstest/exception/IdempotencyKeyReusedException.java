@@ -0,0 +1,21 @@
+package org.example.clearsolutionstest.exception;
+
+import lombok.Getter;
+
+@Getter
+public class IdempotencyKeyReusedException extends UserDomainException {
+
+    private final String idempotencyKey;
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Idempotency key %s was already used for another request, use a new key for every new request"
+                .formatted(idempotencyKey);
+    }
+
+}
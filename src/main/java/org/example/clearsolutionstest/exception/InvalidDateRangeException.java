@@ -0,0 +1,25 @@
+package org.example.clearsolutionstest.exception;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+public class InvalidDateRangeException extends UserDomainException {
+
+    private final LocalDate from;
+
+    private final LocalDate to;
+
+    public InvalidDateRangeException(LocalDate from, LocalDate to) {
+        super(ErrorCode.INVALID_DATE_RANGE);
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public String getMessage() {
+        return "From date is after to date";
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.example.clearsolutionstest.exception;
+
+import lombok.Getter;
+import org.example.clearsolutionstest.entity.UserField;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+@Getter
+public class UnknownUserFieldException extends UserDomainException {
+
+    private final String field;
+
+    public UnknownUserFieldException(String field) {
+        super(ErrorCode.INVALID_ARGUMENT);
+        this.field = field;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Unknown user field '%s', expected any of %s".formatted(field, Arrays.stream(UserField.values())
+                .map(UserField::getProperty)
+                .collect(Collectors.joining(", ")));
+    }
+
+}
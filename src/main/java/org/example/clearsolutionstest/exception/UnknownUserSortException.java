@@ -0,0 +1,26 @@
+package org.example.clearsolutionstest.exception;
+
+import lombok.Getter;
+import org.example.clearsolutionstest.entity.UserSort;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+@Getter
+public class UnknownUserSortException extends UserDomainException {
+
+    private final String sort;
+
+    public UnknownUserSortException(String sort) {
+        super(ErrorCode.INVALID_ARGUMENT);
+        this.sort = sort;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Users can not be sorted by '%s', expected one of %s".formatted(sort, Arrays.stream(UserSort.values())
+                .map(userSort -> userSort.getField().getProperty())
+                .collect(Collectors.joining(", ")));
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.example.clearsolutionstest.exception;
+
+import lombok.Getter;
+
+/**
+ * Expected failure of a user operation caused by the request, not by the application. These are thrown on every bad
+ * request, so they carry no stack trace: filling it in is most of the cost of throwing, and it would only ever point
+ * at the same few lines. Extends {@link IllegalArgumentException}, so existing handlers still treat it as a bad
+ * argument.
+ */
+@Getter
+public abstract class UserDomainException extends IllegalArgumentException {
+
+    private final ErrorCode errorCode;
+
+    protected UserDomainException(ErrorCode errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Subclasses build the message on demand, it is not needed when the exception is only logged at debug level.
+     */
+    @Override
+    public abstract String getMessage();
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
@@ -0,0 +1,22 @@
+package org.example.clearsolutionstest.exception;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+public class UserNotFoundException extends UserDomainException {
+
+    private final UUID id;
+
+    public UserNotFoundException(UUID id) {
+        super(ErrorCode.USER_NOT_FOUND);
+        this.id = id;
+    }
+
+    @Override
+    public String getMessage() {
+        return "User with id '%s' not found".formatted(id);
+    }
+
+}
@@ -0,0 +1,25 @@
+package org.example.clearsolutionstest.jfr;
+
+/**
+ * Second-level cache lookups and JDBC statements of Hibernate sessions on the current thread, counted by
+ * {@link SessionActivityListener}. Only differences between two reads on the same thread mean anything, which is
+ * how {@link UserOperationEvent} uses them.
+ */
+public final class SessionActivity {
+
+    private static final ThreadLocal<SessionActivity> CURRENT = ThreadLocal.withInitial(SessionActivity::new);
+
+    long cacheHits;
+
+    long cacheMisses;
+
+    long statements;
+
+    private SessionActivity() {
+    }
+
+    static SessionActivity current() {
+        return CURRENT.get();
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.example.clearsolutionstest.jfr;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Registered for every session through {@code hibernate.session.events.auto}. Sessions are used by one thread at a
+ * time, so the counts land on the thread running the user operation.
+ */
+public class SessionActivityListener implements SessionEventListener {
+
+    @Override
+    public void cacheGetEnd(boolean hit) {
+        SessionActivity activity = SessionActivity.current();
+        if (hit) {
+            activity.cacheHits++;
+        } else {
+            activity.cacheMisses++;
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SessionActivity.current().statements++;
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SessionActivity.current().statements++;
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.example.clearsolutionstest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call of a user service operation. While no recording enables the event, {@link #start} and {@link #finish}
+ * only check {@link #isEnabled()} and the JIT removes the unused event instance.
+ */
+@Name(UserOperationEvent.NAME)
+@Label("User Operation")
+@Category({"Clear Solutions", "Users"})
+@Description("User service operation with the rows it returned and the database work it caused")
+@StackTrace(false)
+public class UserOperationEvent extends Event {
+
+    public static final String NAME = "org.example.clearsolutionstest.UserOperation";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Page Size")
+    int pageSize;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Cache Hits")
+    @Description("Second-level and query cache hits")
+    long cacheHits;
+
+    @Label("Cache Misses")
+    long cacheMisses;
+
+    @Label("JDBC Statements")
+    long statements;
+
+    private transient long cacheHitsAtStart;
+
+    private transient long cacheMissesAtStart;
+
+    private transient long statementsAtStart;
+
+    public static UserOperationEvent start(String operation) {
+        return start(operation, 0);
+    }
+
+    public static UserOperationEvent start(String operation, int pageSize) {
+        UserOperationEvent event = new UserOperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.pageSize = pageSize;
+            SessionActivity activity = SessionActivity.current();
+            event.cacheHitsAtStart = activity.cacheHits;
+            event.cacheMissesAtStart = activity.cacheMisses;
+            event.statementsAtStart = activity.statements;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish(long rows) {
+        if (!isEnabled()) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            SessionActivity activity = SessionActivity.current();
+            this.rows = rows;
+            this.cacheHits = activity.cacheHits - cacheHitsAtStart;
+            this.cacheMisses = activity.cacheMisses - cacheMissesAtStart;
+            this.statements = activity.statements - statementsAtStart;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.example.clearsolutionstest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call of a {@code UserController} handler, spanning the service call and building the response body but not
+ * its serialization. Costs nothing but an {@link #isEnabled()} check while no recording enables it.
+ */
+@Name(UserRequestEvent.NAME)
+@Label("User Request")
+@Category({"Clear Solutions", "Users"})
+@Description("User API request handled by the controller")
+@StackTrace(false)
+public class UserRequestEvent extends Event {
+
+    public static final String NAME = "org.example.clearsolutionstest.UserRequest";
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Page Size")
+    int pageSize;
+
+    @Label("Rows")
+    @Description("Users in the response body")
+    long rows;
+
+    public static UserRequestEvent start(String endpoint) {
+        return start(endpoint, 0);
+    }
+
+    public static UserRequestEvent start(String endpoint, int pageSize) {
+        UserRequestEvent event = new UserRequestEvent();
+        if (event.isEnabled()) {
+            event.endpoint = endpoint;
+            event.pageSize = pageSize;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish(long rows) {
+        if (!isEnabled()) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.rows = rows;
+            commit();
+        }
+    }
+
+}
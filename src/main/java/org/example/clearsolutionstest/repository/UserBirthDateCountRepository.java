@@ -0,0 +1,29 @@
+package org.example.clearsolutionstest.repository;
+
+import org.example.clearsolutionstest.entity.UserBirthDateCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface UserBirthDateCountRepository extends JpaRepository<UserBirthDateCount, LocalDate>,
+        UserBirthDateCountUpdateRepository {
+
+    @Query("select coalesce(sum(c.userCount), 0) from UserBirthDateCount c " +
+           "where c.birthDate >= :from and c.birthDate <= :to")
+    long sumByBirthDateRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from user_birth_date_count")
+    int deleteAllRows();
+
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into user_birth_date_count (birth_date, user_count) " +
+                                       "select birth_date, count(*) from users group by birth_date")
+    int insertCountsOfUsers();
+
+}
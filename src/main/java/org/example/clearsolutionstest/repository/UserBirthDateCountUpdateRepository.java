@@ -0,0 +1,12 @@
+package org.example.clearsolutionstest.repository;
+
+import java.time.LocalDate;
+
+public interface UserBirthDateCountUpdateRepository {
+
+    /**
+     * Adds {@code delta} to the number of users born on {@code birthDate}, in the current transaction.
+     */
+    void add(LocalDate birthDate, long delta);
+
+}
@@ -0,0 +1,74 @@
+package org.example.clearsolutionstest.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Fragment of {@link UserBirthDateCountRepository} updating counts with plain JDBC on the connection of the current
+ * transaction. The first user of a day inserts its row, and when two transactions do that at once the merge of one
+ * of them fails on the primary key, which then adds to the row of the other instead. A failed statement only rolls
+ * back itself, while a failed Hibernate query would mark the whole transaction for rollback.
+ */
+@Slf4j
+public class UserBirthDateCountUpdateRepositoryImpl implements UserBirthDateCountUpdateRepository {
+
+    private static final String MERGE_SQL = "merge into user_birth_date_count c " +
+                                            "using (values (cast(? as date), cast(? as bigint))) d (birth_date, delta) " +
+                                            "on c.birth_date = d.birth_date " +
+                                            "when matched then update set user_count = c.user_count + d.delta " +
+                                            "when not matched then insert (birth_date, user_count) " +
+                                            "values (d.birth_date, d.delta)";
+
+    private static final String UPDATE_SQL = "update user_birth_date_count set user_count = user_count + ? " +
+                                             "where birth_date = ?";
+
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void add(LocalDate birthDate, long delta) {
+        log.debug("add {}, {}", birthDate, delta);
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            if (!merge(connection, birthDate, delta)) {
+                log.debug("add {} inserted by another transaction", birthDate);
+                update(connection, birthDate, delta);
+            }
+        });
+        log.debug("end add");
+    }
+
+    /**
+     * @return false if another transaction inserted the row after it was looked up
+     */
+    private static boolean merge(Connection connection, LocalDate birthDate, long delta) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(MERGE_SQL)) {
+            statement.setObject(1, birthDate);
+            statement.setLong(2, delta);
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (UNIQUE_VIOLATION_SQL_STATE.equals(e.getSQLState())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static void update(Connection connection, LocalDate birthDate, long delta) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_SQL)) {
+            statement.setLong(1, delta);
+            statement.setObject(2, birthDate);
+            statement.executeUpdate();
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package org.example.clearsolutionstest.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.entity.User;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Inserts users with plain JDBC batches on a dedicated connection, committing once per batch, so batches committed
+ * before a failure stay in the database, and streams all users out the same way. Bypasses Hibernate and everything
+ * built on top of it (caches, change tracking), callers have to refresh those themselves.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class UserBulkLoader {
+
+    private static final String INSERT_SQL = "insert into users " +
+                                             "(id, email, first_name, last_name, birth_date, address, phone_number, " +
+                                             "birth_month_day, created_at, updated_at) " +
+                                             "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_SQL = "delete from users where id = ?";
+
+    private static final String SELECT_ALL_SQL = "select id, email, first_name, last_name, birth_date, address, " +
+                                                 "phone_number from users";
+
+    private final DataSource dataSource;
+
+    /**
+     * @param loadedAt creation and update time of every loaded user, so they are all in the change feed
+     * @return number of inserted users
+     */
+    public long load(Iterator<User> users, int batchSize, LocalDateTime loadedAt) {
+        log.debug("load batchSize = {}, loadedAt = {}", batchSize, loadedAt);
+        long inserted = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            connection.setAutoCommit(false);
+            int pending = 0;
+            while (users.hasNext()) {
+                User user = users.next();
+                statement.setObject(1, user.getId());
+                statement.setString(2, user.getEmail());
+                statement.setString(3, user.getFirstName());
+                statement.setString(4, user.getLastName());
+                statement.setObject(5, user.getBirthDate());
+                statement.setString(6, user.getAddress());
+                statement.setString(7, user.getPhoneNumber());
+                statement.setInt(8, user.getBirthMonthDay());
+                statement.setObject(9, loadedAt);
+                statement.setObject(10, loadedAt);
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    statement.executeBatch();
+                    connection.commit();
+                    inserted += pending;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+                connection.commit();
+                inserted += pending;
+            }
+        } catch (SQLException e) {
+            throw new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("load", INSERT_SQL, e);
+        }
+        log.debug("end load {}", inserted);
+        return inserted;
+    }
+
+    /**
+     * Deletes {@code users} by id the same way {@link #load} inserts them, ids that are not in the table are skipped.
+     *
+     * @return number of deleted users
+     */
+    public long delete(Iterator<User> users, int batchSize) {
+        log.debug("delete batchSize = {}", batchSize);
+        long deleted = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+            connection.setAutoCommit(false);
+            int pending = 0;
+            while (users.hasNext()) {
+                statement.setObject(1, users.next().getId());
+                statement.addBatch();
+                if (++pending == batchSize || !users.hasNext()) {
+                    for (int count : statement.executeBatch()) {
+                        deleted += Math.max(count, 0);
+                    }
+                    connection.commit();
+                    pending = 0;
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("delete", DELETE_SQL, e);
+        }
+        log.debug("end delete {}", deleted);
+        return deleted;
+    }
+
+    /**
+     * Passes every user to {@code consumer} without holding them all in memory, rows are fetched
+     * {@code fetchSize} at a time.
+     *
+     * @return number of read users
+     */
+    public long readAll(Consumer<User> consumer, int fetchSize) {
+        log.debug("readAll fetchSize = {}", fetchSize);
+        long read = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_ALL_SQL)) {
+            // Some drivers only stream results inside a transaction
+            connection.setAutoCommit(false);
+            statement.setFetchSize(fetchSize);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(new User(
+                            resultSet.getObject(1, UUID.class),
+                            resultSet.getString(2),
+                            resultSet.getString(3),
+                            resultSet.getString(4),
+                            resultSet.getObject(5, LocalDate.class),
+                            resultSet.getString(6),
+                            resultSet.getString(7)
+                    ));
+                    read++;
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new SQLErrorCodeSQLExceptionTranslator(dataSource).translate("readAll", SELECT_ALL_SQL, e);
+        }
+        log.debug("end readAll {}", read);
+        return read;
+    }
+
+}
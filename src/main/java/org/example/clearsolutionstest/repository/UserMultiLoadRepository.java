@@ -0,0 +1,17 @@
+package org.example.clearsolutionstest.repository;
+
+import org.example.clearsolutionstest.entity.User;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface UserMultiLoadRepository {
+
+    /**
+     * Users with the given ids in the same order, {@code null} where there is no such user. Users already in the
+     * persistence context or the second level cache are taken from there, the rest are loaded with {@code in} queries
+     * of at most {@code batchSize} ids each.
+     */
+    List<User> findAllByIdInOrder(List<UUID> ids, int batchSize);
+
+}
@@ -0,0 +1,34 @@
+package org.example.clearsolutionstest.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.entity.User;
+import org.hibernate.Session;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Fragment of {@link UserRepository} built on Hibernate's multi load, which Spring Data's {@code findAllById} does
+ * not use: that one always runs a single {@code in} query and neither keeps the order nor looks into the caches.
+ */
+@Slf4j
+public class UserMultiLoadRepositoryImpl implements UserMultiLoadRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<User> findAllByIdInOrder(List<UUID> ids, int batchSize) {
+        log.debug("findAllByIdInOrder {} ids, batchSize = {}", ids.size(), batchSize);
+        List<User> users = entityManager.unwrap(Session.class)
+                .byMultipleIds(User.class)
+                .withBatchSize(batchSize)
+                .enableOrderedReturn(true)
+                .multiLoad(ids);
+        log.debug("end findAllByIdInOrder");
+        return users;
+    }
+
+}
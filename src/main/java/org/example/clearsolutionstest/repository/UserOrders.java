@@ -0,0 +1,31 @@
+package org.example.clearsolutionstest.repository;
+
+import org.example.clearsolutionstest.entity.User;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Orders of the database for sorting users in memory the way queries return them.
+ */
+public final class UserOrders {
+
+    /**
+     * Same order as {@code order by id}. H2 compares uuids as unsigned numbers, so {@link UUID#compareTo} can not be
+     * used here.
+     */
+    public static final Comparator<UUID> ID = (a, b) -> {
+        int result = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return result != 0 ? result : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    /**
+     * Same order as {@code order by birth_date, id}.
+     */
+    public static final Comparator<User> BIRTH_DATE = Comparator.comparing(User::getBirthDate)
+            .thenComparing(User::getId, ID);
+
+    private UserOrders() {
+    }
+
+}
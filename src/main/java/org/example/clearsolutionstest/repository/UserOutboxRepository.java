@@ -0,0 +1,29 @@
+package org.example.clearsolutionstest.repository;
+
+import org.example.clearsolutionstest.entity.UserOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserOutboxRepository extends JpaRepository<UserOutboxEvent, Long> {
+
+    @Query("select e from UserOutboxEvent e where e.id > :after order by e.id")
+    List<UserOutboxEvent> findAllAfter(@Param("after") long after, Pageable pageable);
+
+    @Query("select coalesce(max(e.id), 0) from UserOutboxEvent e")
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserOutboxEvent e where e.createdAt < :before")
+    int deleteAllCreatedBefore(@Param("before") LocalDateTime before);
+
+}
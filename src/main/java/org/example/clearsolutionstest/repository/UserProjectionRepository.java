@@ -0,0 +1,29 @@
+package org.example.clearsolutionstest.repository;
+
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+public interface UserProjectionRepository {
+
+    /**
+     * Same users as {@link UserRepository#getAllByBirthDateRange} with only {@code fields} selected. The users are
+     * not entities, fields that were not selected are {@code null}. The page is in the order of its {@code Sort}.
+     */
+    List<User> getFieldsByBirthDateRange(LocalDate from, LocalDate to, Set<UserField> fields, Pageable pageable);
+
+    /**
+     * Same users as {@link #getFieldsByBirthDateRange} in {@code sort} order, read by scanning the index of
+     * {@code sort} in order until the page is full, whichever index the planner would pick.
+     *
+     * @see UserSort#scansIndexInOrder
+     */
+    List<User> getFieldsByBirthDateRangeInIndexOrder(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                     UserSort sort, Pageable pageable);
+
+}
@@ -0,0 +1,104 @@
+package org.example.clearsolutionstest.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fragment of {@link UserRepository} selecting a tuple of the requested columns instead of whole entities. Results
+ * share the query cache region of the entity query, so they are evicted together.
+ */
+@Slf4j
+public class UserProjectionRepositoryImpl implements UserProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<User> getFieldsByBirthDateRange(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                Pageable pageable) {
+        log.debug("getFieldsByBirthDateRange {}, {}, {}, {}", from, to, fields, pageable);
+        List<UserField> selected = List.copyOf(fields);
+        // Property names come from UserField and UserSort, never from the request
+        String select = selected.stream().map(field -> "u." + field.getProperty()).collect(Collectors.joining(", "));
+        List<Object[]> rows = entityManager.createQuery("select " + select + " from User u " +
+                                                        "where u.birthDate >= :from and u.birthDate <= :to" +
+                                                        orderByOf(pageable.getSort()),
+                        Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageable.getPageSize())
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, UserRepository.BIRTH_DATE_RANGE_CACHE_REGION)
+                .getResultList();
+        List<User> users = usersOf(selected, rows);
+        log.debug("end getFieldsByBirthDateRange {}", users.size());
+        return users;
+    }
+
+    /**
+     * H2 only, JPQL has no index hints. The query is synchronized on {@link User}, so cached pages are invalidated by
+     * user changes like the JPQL ones.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<User> getFieldsByBirthDateRangeInIndexOrder(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                            UserSort sort, Pageable pageable) {
+        log.debug("getFieldsByBirthDateRangeInIndexOrder {}, {}, {}, {}, {}", from, to, fields, sort, pageable);
+        List<UserField> selected = List.copyOf(fields);
+        String select = selected.stream().map(UserField::getColumn).collect(Collectors.joining(", "));
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(
+                        "select " + select + " from users use index (" + sort.getIndex() + ") " +
+                        "where birth_date >= :from and birth_date <= :to " +
+                        "order by " + sort.getField().getColumn() + ", id")
+                .unwrap(NativeQuery.class);
+        selected.forEach(field -> query.addScalar(field.getColumn(), field.getType()));
+        List<Object[]> rows = query.addSynchronizedEntityClass(User.class)
+                .setTupleTransformer((tuple, aliases) -> tuple)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageable.getPageSize())
+                .setCacheable(true)
+                .setCacheRegion(UserRepository.BIRTH_DATE_RANGE_CACHE_REGION)
+                .getResultList();
+        List<User> users = usersOf(selected, rows);
+        log.debug("end getFieldsByBirthDateRangeInIndexOrder {}", users.size());
+        return users;
+    }
+
+    private static String orderByOf(Sort sort) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        return sort.stream()
+                .map(order -> "u." + order.getProperty() + " " + order.getDirection().name().toLowerCase())
+                .collect(Collectors.joining(", ", " order by ", ""));
+    }
+
+    private static List<User> usersOf(List<UserField> selected, List<Object[]> rows) {
+        return rows.stream()
+                .map(row -> {
+                    User user = new User();
+                    for (int i = 0; i < row.length; i++) {
+                        selected.get(i).set(user, row[i]);
+                    }
+                    return user;
+                })
+                .toList();
+    }
+
+}
@@ -1,25 +1,65 @@
 package org.example.clearsolutionstest.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.clearsolutionstest.entity.User;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificationExecutor<User> {
+public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificationExecutor<User>,
+        UserMultiLoadRepository, UserProjectionRepository {
+
+    String BIRTH_DATE_RANGE_CACHE_REGION = "users-by-birth-date-range";
+
+    String EMAIL_CACHE_REGION = "users-by-email";
 
     @Query("select u from User u where u.birthDate >= :from and u.birthDate <= :to")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = BIRTH_DATE_RANGE_CACHE_REGION)
+    })
     List<User> getAllByBirthDateRange(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
 
+    /**
+     * Users whose birthday, month and day, is within {@code from} and {@code to}, both encoded as
+     * {@link User#birthMonthDayOf}, in that order. A range scan of {@code users_birth_month_day_id_idx}.
+     */
+    @Query("select u from User u where u.birthMonthDay between :from and :to order by u.birthMonthDay, u.id " +
+           "limit :limit offset :offset")
+    List<User> getAllByBirthMonthDayRange(@Param("from") int from, @Param("to") int to,
+                                          @Param("offset") long offset, @Param("limit") int limit);
+
+    @Query("select count(u) from User u where u.birthMonthDay between :from and :to")
+    long countByBirthMonthDayRange(@Param("from") int from, @Param("to") int to);
+
+    /**
+     * Users changed at or after {@code since} and up to {@code until} in change order, without those changed exactly
+     * at {@code since} with an id up to {@code afterId}. A range scan of {@code users_updated_at_id_idx}, the id
+     * condition only filters the few rows sharing the timestamp.
+     */
+    @Query("select u from User u " +
+           "where u.updatedAt >= :since and u.updatedAt <= :until and (u.updatedAt > :since or u.id > :afterId) " +
+           "order by u.updatedAt, u.id limit :limit")
+    List<User> findChangedSince(@Param("since") LocalDateTime since, @Param("afterId") UUID afterId,
+                                @Param("until") LocalDateTime until, @Param("limit") int limit);
+
     @Query("select u from User u where u.email = :email")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = EMAIL_CACHE_REGION)
+    })
     Optional<User> findByEmail(@Param("email") String email);
 
 }
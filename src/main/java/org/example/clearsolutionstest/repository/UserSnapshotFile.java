@@ -0,0 +1,219 @@
+package org.example.clearsolutionstest.repository;
+
+import org.example.clearsolutionstest.entity.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Binary file with all users. After an 8 byte header ({@link #MAGIC} and {@link #VERSION}) the users follow in
+ * blocks of up to {@link #MAX_BLOCK_BYTES}, each starting with its length in bytes and its number of users. A user is
+ * its id as two longs, birth date as an int epoch day and email, first name, last name, address and phone number,
+ * each as a short UTF-8 length (-1 for null) and the bytes. Blocks are memory mapped one by one when reading, no
+ * user spans two blocks, so blocks can be decoded in parallel.
+ */
+public final class UserSnapshotFile {
+
+    static final int MAGIC = 0x55534e50;
+
+    static final int VERSION = 1;
+
+    static final int MAX_BLOCK_BYTES = 16 * 1024 * 1024;
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final int BLOCK_HEADER_BYTES = 8;
+
+    private UserSnapshotFile() {
+    }
+
+    public static Writer create(Path path) {
+        return new Writer(path);
+    }
+
+    /**
+     * Maps every block of the file, the mappings stay valid after the file is closed.
+     */
+    public static List<Block> mapBlocks(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Math.max(HEADER_BYTES, BLOCK_HEADER_BYTES));
+            readFully(channel, header.limit(HEADER_BYTES), 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("%s is not a user snapshot of version %d".formatted(path, VERSION));
+            }
+            List<Block> blocks = new ArrayList<>();
+            long position = HEADER_BYTES;
+            while (position < channel.size()) {
+                readFully(channel, header.clear().limit(BLOCK_HEADER_BYTES), position);
+                int bytes = header.getInt(0);
+                int users = header.getInt(4);
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, position + BLOCK_HEADER_BYTES, bytes);
+                blocks.add(new Block(data, users));
+                position += BLOCK_HEADER_BYTES + bytes;
+            }
+            return blocks;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map " + path, e);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("Snapshot is truncated");
+            }
+        }
+    }
+
+    /**
+     * @param users number of users in {@code data}
+     */
+    public record Block(ByteBuffer data, int users) {
+
+        /**
+         * Decodes the block, every call starts from the first user.
+         */
+        public Iterator<User> iterator() {
+            ByteBuffer buffer = data.duplicate();
+            return new Iterator<>() {
+
+                private int remaining = users;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0;
+                }
+
+                @Override
+                public User next() {
+                    if (remaining-- <= 0) {
+                        throw new NoSuchElementException();
+                    }
+                    UUID id = new UUID(buffer.getLong(), buffer.getLong());
+                    LocalDate birthDate = LocalDate.ofEpochDay(buffer.getInt());
+                    return new User(id, readString(buffer), readString(buffer), readString(buffer), birthDate,
+                            readString(buffer), readString(buffer));
+                }
+
+            };
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            short length = buffer.getShort();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+    }
+
+    public static final class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer block = ByteBuffer.allocate(MAX_BLOCK_BYTES);
+
+        private int blockUsers;
+
+        private long users;
+
+        private Writer(Path path) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                writeFully(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to create " + path, e);
+            }
+        }
+
+        public void add(User user) {
+            byte[][] strings = {
+                    bytesOf(user.getEmail()), bytesOf(user.getFirstName()), bytesOf(user.getLastName()),
+                    bytesOf(user.getAddress()), bytesOf(user.getPhoneNumber())
+            };
+            int size = Long.BYTES * 2 + Integer.BYTES + strings.length * Short.BYTES;
+            for (byte[] string : strings) {
+                size += string == null ? 0 : string.length;
+            }
+            if (size > block.remaining()) {
+                flush();
+            }
+            block.putLong(user.getId().getMostSignificantBits())
+                    .putLong(user.getId().getLeastSignificantBits())
+                    .putInt(Math.toIntExact(user.getBirthDate().toEpochDay()));
+            for (byte[] string : strings) {
+                if (string == null) {
+                    block.putShort((short) -1);
+                } else {
+                    block.putShort((short) string.length).put(string);
+                }
+            }
+            blockUsers++;
+            users++;
+        }
+
+        public long users() {
+            return users;
+        }
+
+        @Override
+        public void close() {
+            try (channel) {
+                flush();
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write snapshot", e);
+            }
+        }
+
+        private void flush() {
+            if (blockUsers == 0) {
+                return;
+            }
+            try {
+                block.flip();
+                writeFully(ByteBuffer.allocate(BLOCK_HEADER_BYTES).putInt(block.remaining()).putInt(blockUsers).flip());
+                writeFully(block);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write snapshot", e);
+            }
+            block.clear();
+            blockUsers = 0;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private static byte[] bytesOf(String value) {
+            if (value == null) {
+                return null;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Value of %d bytes does not fit a snapshot".formatted(bytes.length));
+            }
+            return bytes;
+        }
+
+    }
+
+}
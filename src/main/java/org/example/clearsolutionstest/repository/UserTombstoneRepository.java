@@ -0,0 +1,41 @@
+package org.example.clearsolutionstest.repository;
+
+import org.example.clearsolutionstest.entity.UserTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserTombstoneRepository extends JpaRepository<UserTombstone, UUID> {
+
+    /**
+     * One statement, unlike {@code save} of an entity with its id set, which selects it first.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "merge into user_tombstones (user_id, deleted_at) key (user_id) " +
+                                       "values (:userId, :deletedAt)")
+    void record(@Param("userId") UUID userId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    /**
+     * Same keyset as {@link UserRepository#findChangedSince}, a range scan of
+     * {@code user_tombstones_deleted_at_user_id_idx}.
+     */
+    @Query("select t from UserTombstone t " +
+           "where t.deletedAt >= :since and t.deletedAt <= :until and (t.deletedAt > :since or t.userId > :afterId) " +
+           "order by t.deletedAt, t.userId limit :limit")
+    List<UserTombstone> findDeletedSince(@Param("since") LocalDateTime since, @Param("afterId") UUID afterId,
+                                         @Param("until") LocalDateTime until, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserTombstone t where t.deletedAt < :before")
+    int deleteAllDeletedBefore(@Param("before") LocalDateTime before);
+
+}
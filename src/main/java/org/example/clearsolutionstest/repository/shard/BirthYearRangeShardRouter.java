@@ -0,0 +1,61 @@
+package org.example.clearsolutionstest.repository.shard;
+
+import org.example.clearsolutionstest.entity.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+public class BirthYearRangeShardRouter implements UserShardRouter {
+
+    private final int[] minBirthYears;
+
+    private final List<Integer> allShards;
+
+    /**
+     * @param minBirthYears first birth year owned by each shard, strictly ascending. The first shard also owns
+     *                      every earlier year.
+     */
+    public BirthYearRangeShardRouter(List<Integer> minBirthYears) {
+        if (minBirthYears.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.minBirthYears = minBirthYears.stream().mapToInt(Integer::intValue).toArray();
+        for (int i = 1; i < this.minBirthYears.length; i++) {
+            if (this.minBirthYears[i] <= this.minBirthYears[i - 1]) {
+                throw new IllegalArgumentException("Shard birth years must be strictly ascending");
+            }
+        }
+        this.allShards = IntStream.range(0, this.minBirthYears.length).boxed().toList();
+    }
+
+    @Override
+    public int shardCount() {
+        return minBirthYears.length;
+    }
+
+    @Override
+    public int shardFor(User user) {
+        return shardOf(user.getBirthDate().getYear());
+    }
+
+    @Override
+    public List<Integer> shardsForId(UUID id) {
+        return allShards;
+    }
+
+    @Override
+    public List<Integer> shardsForBirthDateRange(LocalDate from, LocalDate to) {
+        return IntStream.rangeClosed(shardOf(from.getYear()), shardOf(to.getYear())).boxed().toList();
+    }
+
+    private int shardOf(int birthYear) {
+        int shard = 0;
+        while (shard + 1 < minBirthYears.length && minBirthYears[shard + 1] <= birthYear) {
+            shard++;
+        }
+        return shard;
+    }
+
+}
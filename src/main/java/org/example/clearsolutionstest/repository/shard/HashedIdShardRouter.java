@@ -0,0 +1,48 @@
+package org.example.clearsolutionstest.repository.shard;
+
+import org.example.clearsolutionstest.entity.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+public class HashedIdShardRouter implements UserShardRouter {
+
+    private final int shardCount;
+
+    private final List<Integer> allShards;
+
+    public HashedIdShardRouter(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shardCount = shardCount;
+        this.allShards = IntStream.range(0, shardCount).boxed().toList();
+    }
+
+    @Override
+    public int shardCount() {
+        return shardCount;
+    }
+
+    @Override
+    public int shardFor(User user) {
+        return shardOf(user.getId());
+    }
+
+    @Override
+    public List<Integer> shardsForId(UUID id) {
+        return List.of(shardOf(id));
+    }
+
+    @Override
+    public List<Integer> shardsForBirthDateRange(LocalDate from, LocalDate to) {
+        return allShards;
+    }
+
+    private int shardOf(UUID id) {
+        return Math.floorMod(id.getMostSignificantBits() ^ id.getLeastSignificantBits(), shardCount);
+    }
+
+}
@@ -0,0 +1,462 @@
+package org.example.clearsolutionstest.repository.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.entity.UserTombstone;
+import org.example.clearsolutionstest.repository.UserOrders;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Stores users across several databases. Single row operations go to the shards chosen by the
+ * {@link UserShardRouter}, range queries run in parallel on the overlapping shards and are merged in
+ * birth date order.
+ */
+@Slf4j
+public class ShardedUserRepository implements AutoCloseable {
+
+    /**
+     * Same order as {@code order by birth_date, id}.
+     */
+    static final Comparator<User> BIRTH_DATE_ORDER = UserOrders.BIRTH_DATE;
+
+    /**
+     * Same order as {@code order by last_name, id}, H2 compares strings like {@link String#compareTo}.
+     */
+    static final Comparator<User> LAST_NAME_ORDER = Comparator.comparing(User::getLastName)
+            .thenComparing(User::getId, UserOrders.ID);
+
+    /**
+     * Same order as {@code order by email, id}.
+     */
+    static final Comparator<User> EMAIL_ORDER = Comparator.comparing(User::getEmail)
+            .thenComparing(User::getId, UserOrders.ID);
+
+    /**
+     * Same order as {@code order by birth_month_day, id}.
+     */
+    static final Comparator<User> BIRTH_MONTH_DAY_ORDER = Comparator.comparingInt(User::getBirthMonthDay)
+            .thenComparing(User::getId, UserOrders.ID);
+
+    private static final String COLUMNS = "id, email, first_name, last_name, birth_date, address, phone_number, " +
+                                          "created_at, updated_at";
+
+    private static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> {
+        User user = new User(
+                rs.getObject("id", UUID.class),
+                rs.getString("email"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getObject("birth_date", LocalDate.class),
+                rs.getString("address"),
+                rs.getString("phone_number")
+        );
+        user.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        user.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+        return user;
+    };
+
+    private static final RowMapper<UserTombstone> TOMBSTONE_ROW_MAPPER = (rs, rowNum) -> new UserTombstone(
+            rs.getObject("user_id", UUID.class),
+            rs.getObject("deleted_at", LocalDateTime.class)
+    );
+
+    private final List<DataSource> dataSources;
+
+    private final List<NamedParameterJdbcTemplate> shards;
+
+    private final List<Integer> allShards;
+
+    private final UserShardRouter router;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShardedUserRepository(List<DataSource> dataSources, UserShardRouter router) {
+        if (dataSources.size() != router.shardCount()) {
+            throw new IllegalArgumentException("Router expects %d shards but %d data sources were given"
+                    .formatted(router.shardCount(), dataSources.size()));
+        }
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema-shard.sql"));
+        dataSources.forEach(dataSource -> DatabasePopulatorUtils.execute(schema, dataSource));
+        this.dataSources = List.copyOf(dataSources);
+        this.shards = dataSources.stream().map(NamedParameterJdbcTemplate::new).toList();
+        this.allShards = IntStream.range(0, dataSources.size()).boxed().toList();
+        this.router = router;
+    }
+
+    public User insert(User user) {
+        log.debug("insert {}", user);
+        if (user.getId() == null) {
+            user.setId(UUID.randomUUID());
+        }
+        int shard = router.shardFor(user);
+        shards.get(shard).update("insert into users (" + COLUMNS + ", birth_month_day) values " +
+                                 "(:id, :email, :firstName, :lastName, :birthDate, :address, :phoneNumber, " +
+                                 ":createdAt, :updatedAt, :birthMonthDay)",
+                parametersOf(user));
+        log.debug("end insert {} into shard {}", user.getId(), shard);
+        return user;
+    }
+
+    /**
+     * Moves the row when the new birth date belongs to another shard. The copy is inserted before the old row is
+     * deleted, so a concurrent reader may briefly see the user twice but never miss it.
+     */
+    public void update(User previous, User updated) {
+        log.debug("update {}, {}", previous, updated);
+        int previousShard = router.shardFor(previous);
+        int shard = router.shardFor(updated);
+        if (previousShard == shard) {
+            shards.get(shard).update("update users set email = :email, first_name = :firstName, " +
+                                     "last_name = :lastName, birth_date = :birthDate, " +
+                                     "birth_month_day = :birthMonthDay, address = :address, " +
+                                     "phone_number = :phoneNumber, updated_at = :updatedAt where id = :id",
+                    parametersOf(updated));
+        } else {
+            insert(updated);
+            shards.get(previousShard).update("delete from users where id = :id",
+                    new MapSqlParameterSource("id", previous.getId()));
+        }
+        log.debug("end update {}, shard {} -> {}", updated.getId(), previousShard, shard);
+    }
+
+    public Optional<User> findById(UUID id) {
+        log.debug("findById {}", id);
+        Optional<User> user = scatter(router.shardsForId(id), shard -> shards.get(shard).query(
+                "select " + COLUMNS + " from users where id = :id",
+                new MapSqlParameterSource("id", id), USER_ROW_MAPPER
+        )).stream().flatMap(List::stream).findFirst();
+        log.debug("end findById {}", user);
+        return user;
+    }
+
+    /**
+     * Users with the given ids by id, ids without a user are left out. Ids are grouped by the shards that may hold
+     * them, every shard is queried in parallel with {@code in} lists of at most {@code batchSize} ids.
+     */
+    public Map<UUID, User> findAllById(Collection<UUID> ids, int batchSize) {
+        log.debug("findAllById {} ids, batchSize = {}", ids.size(), batchSize);
+        List<List<UUID>> idsByShard = allShards.stream().map(shard -> (List<UUID>) new ArrayList<UUID>()).toList();
+        for (UUID id : new LinkedHashSet<>(ids)) {
+            router.shardsForId(id).forEach(shard -> idsByShard.get(shard).add(id));
+        }
+        List<Integer> targetShards = allShards.stream().filter(shard -> !idsByShard.get(shard).isEmpty()).toList();
+        Map<UUID, User> users = new HashMap<>();
+        scatter(targetShards, shard -> {
+            List<UUID> shardIds = idsByShard.get(shard);
+            List<User> rows = new ArrayList<>();
+            for (int from = 0; from < shardIds.size(); from += batchSize) {
+                rows.addAll(shards.get(shard).query(
+                        "select " + COLUMNS + " from users where id in (:ids)",
+                        new MapSqlParameterSource("ids", shardIds.subList(from, Math.min(shardIds.size(), from + batchSize))),
+                        USER_ROW_MAPPER
+                ));
+            }
+            return rows;
+        }).forEach(rows -> rows.forEach(user -> users.putIfAbsent(user.getId(), user)));
+        log.debug("end findAllById {} found", users.size());
+        return users;
+    }
+
+    public Optional<User> findByEmail(String email) {
+        log.debug("findByEmail {}", email);
+        Optional<User> user = scatter(allShards, shard -> shards.get(shard).query(
+                "select " + COLUMNS + " from users where email = :email",
+                new MapSqlParameterSource("email", email), USER_ROW_MAPPER
+        )).stream().flatMap(List::stream).findFirst();
+        log.debug("end findByEmail {}", user);
+        return user;
+    }
+
+    /**
+     * Leaves a tombstone on the shard the user was deleted from, none if there was no such user.
+     */
+    public void deleteById(UUID id, LocalDateTime deletedAt) {
+        log.debug("deleteById {}, {}", id, deletedAt);
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("deletedAt", deletedAt);
+        scatter(router.shardsForId(id), shard -> {
+            int deleted = shards.get(shard).update("delete from users where id = :id", parameters);
+            if (deleted > 0) {
+                shards.get(shard).update("merge into user_tombstones (user_id, deleted_at) key (user_id) " +
+                                         "values (:id, :deletedAt)", parameters);
+            }
+            return deleted;
+        });
+        log.debug("end deleteById {}", id);
+    }
+
+    /**
+     * Up to {@code limit} users changed since the cursor from every shard, not merged, see
+     * {@code UserRepository#findChangedSince}.
+     */
+    public List<User> findChangedSince(LocalDateTime since, UUID afterId, LocalDateTime until, int limit) {
+        log.debug("findChangedSince {}, {}, {}, {}", since, afterId, until, limit);
+        List<User> users = scatter(allShards, shard -> shards.get(shard).query(
+                "select " + COLUMNS + " from users " +
+                "where updated_at >= :since and updated_at <= :until and (updated_at > :since or id > :afterId) " +
+                "order by updated_at, id limit :limit",
+                changeCursorOf(since, afterId, until, limit), USER_ROW_MAPPER
+        )).stream().flatMap(List::stream).toList();
+        log.debug("end findChangedSince {}", users.size());
+        return users;
+    }
+
+    /**
+     * Same as {@link #findChangedSince} for deleted users.
+     */
+    public List<UserTombstone> findDeletedSince(LocalDateTime since, UUID afterId, LocalDateTime until, int limit) {
+        log.debug("findDeletedSince {}, {}, {}, {}", since, afterId, until, limit);
+        List<UserTombstone> tombstones = scatter(allShards, shard -> shards.get(shard).query(
+                "select user_id, deleted_at from user_tombstones " +
+                "where deleted_at >= :since and deleted_at <= :until and (deleted_at > :since or user_id > :afterId) " +
+                "order by deleted_at, user_id limit :limit",
+                changeCursorOf(since, afterId, until, limit), TOMBSTONE_ROW_MAPPER
+        )).stream().flatMap(List::stream).toList();
+        log.debug("end findDeletedSince {}", tombstones.size());
+        return tombstones;
+    }
+
+    public int deleteTombstonesBefore(LocalDateTime before) {
+        return scatter(allShards, shard -> shards.get(shard).update(
+                "delete from user_tombstones where deleted_at < :before", new MapSqlParameterSource("before", before)
+        )).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Every overlapping shard returns its first {@code (pageIndex + 1) * pageSize} rows in birth date order, which
+     * are merged and then cut to the requested page. Deep pages therefore cost more on every shard.
+     */
+    public List<User> getAllByBirthDateRange(LocalDate from, LocalDate to, int pageIndex, int pageSize) {
+        log.debug("getAllByBirthDateRange {}, {}, {}, {}", from, to, pageIndex, pageSize);
+        List<User> page = birthDateRangePage(from, to, UserSort.BIRTH_DATE, pageIndex, pageSize, COLUMNS,
+                USER_ROW_MAPPER);
+        log.debug("end getAllByBirthDateRange {}", page);
+        return page;
+    }
+
+    /**
+     * Same users as {@link #getAllByBirthDateRange} in {@code sort} order with only {@code fields} set, the other
+     * fields are {@code null}. The merge needs the sorted field and id, so those are always selected. Each shard
+     * leaves the choice between the range index and the index of {@code sort} to its planner.
+     */
+    public List<User> getFieldsByBirthDateRange(LocalDate from, LocalDate to, Set<UserField> fields, UserSort sort,
+                                                int pageIndex, int pageSize) {
+        log.debug("getFieldsByBirthDateRange {}, {}, {}, {}, {}, {}", from, to, fields, sort, pageIndex, pageSize);
+        EnumSet<UserField> selected = EnumSet.of(UserField.ID, sort.getField());
+        selected.addAll(fields);
+        String columns = selected.stream().map(UserField::getColumn).collect(Collectors.joining(", "));
+        List<User> page = birthDateRangePage(from, to, sort, pageIndex, pageSize, columns, (rs, rowNum) -> {
+            User user = new User();
+            for (UserField field : selected) {
+                field.set(user, rs.getObject(field.getColumn(), field.getType()));
+            }
+            return user;
+        });
+        if (!fields.contains(sort.getField())) {
+            page.forEach(user -> sort.getField().set(user, null));
+        }
+        log.debug("end getFieldsByBirthDateRange {}", page.size());
+        return page;
+    }
+
+    private List<User> birthDateRangePage(LocalDate from, LocalDate to, UserSort sort, int pageIndex, int pageSize,
+                                          String columns, RowMapper<User> rowMapper) {
+        long offset = (long) pageIndex * pageSize;
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("limit", offset + pageSize);
+        List<List<User>> perShard = scatter(router.shardsForBirthDateRange(from, to), shard -> shards.get(shard).query(
+                "select " + columns + " from users where birth_date >= :from and birth_date <= :to " +
+                "order by " + sort.getField().getColumn() + ", id limit :limit",
+                parameters, rowMapper
+        ));
+        return mergePage(perShard, orderOf(sort), offset, pageSize);
+    }
+
+    static Comparator<User> orderOf(UserSort sort) {
+        return switch (sort) {
+            case BIRTH_DATE -> BIRTH_DATE_ORDER;
+            case LAST_NAME -> LAST_NAME_ORDER;
+            case EMAIL -> EMAIL_ORDER;
+        };
+    }
+
+    public long countByBirthDateRange(LocalDate from, LocalDate to) {
+        log.debug("countByBirthDateRange {}, {}", from, to);
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to);
+        long count = scatter(router.shardsForBirthDateRange(from, to), shard -> shards.get(shard).queryForObject(
+                "select count(*) from users where birth_date >= :from and birth_date <= :to",
+                parameters, Long.class
+        )).stream().mapToLong(Long::longValue).sum();
+        log.debug("end countByBirthDateRange {}", count);
+        return count;
+    }
+
+    /**
+     * Users with a birthday within {@code from} and {@code to}, encoded as {@link User#birthMonthDayOf}, in
+     * {@code birth_month_day, id} order. Birth years say nothing about birthdays, so every shard is queried.
+     */
+    public List<User> getAllByBirthMonthDayRange(int from, int to, long offset, int limit) {
+        log.debug("getAllByBirthMonthDayRange {}, {}, {}, {}", from, to, offset, limit);
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("limit", offset + limit);
+        List<List<User>> perShard = scatter(allShards, shard -> shards.get(shard).query(
+                "select " + COLUMNS + " from users where birth_month_day between :from and :to " +
+                "order by birth_month_day, id limit :limit",
+                parameters, USER_ROW_MAPPER
+        ));
+        List<User> page = mergePage(perShard, BIRTH_MONTH_DAY_ORDER, offset, limit);
+        log.debug("end getAllByBirthMonthDayRange {}", page);
+        return page;
+    }
+
+    public long countByBirthMonthDayRange(int from, int to) {
+        log.debug("countByBirthMonthDayRange {}, {}", from, to);
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to);
+        long count = scatter(allShards, shard -> shards.get(shard).queryForObject(
+                "select count(*) from users where birth_month_day between :from and :to",
+                parameters, Long.class
+        )).stream().mapToLong(Long::longValue).sum();
+        log.debug("end countByBirthMonthDayRange {}", count);
+        return count;
+    }
+
+    static List<User> mergePage(List<List<User>> sortedLists, Comparator<User> order, long offset, int pageSize) {
+        PriorityQueue<ShardCursor> heads = new PriorityQueue<>(
+                Math.max(1, sortedLists.size()), Comparator.comparing(ShardCursor::head, order));
+        sortedLists.stream().filter(list -> !list.isEmpty()).map(ShardCursor::new).forEach(heads::add);
+        List<User> page = new ArrayList<>(pageSize);
+        long position = 0;
+        while (!heads.isEmpty() && page.size() < pageSize) {
+            ShardCursor cursor = heads.poll();
+            if (position++ >= offset) {
+                page.add(cursor.head());
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Stops the query executor and closes the shard data sources, which this repository owns.
+     */
+    @Override
+    public void close() throws Exception {
+        executor.shutdown();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private <T> List<T> scatter(List<Integer> targetShards, IntFunction<T> query) {
+        if (targetShards.size() == 1) {
+            return List.of(query.apply(targetShards.get(0)));
+        }
+        List<Future<T>> futures = targetShards.stream()
+                .map(shard -> executor.submit(() -> query.apply(shard)))
+                .toList();
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+        return results;
+    }
+
+    private static MapSqlParameterSource changeCursorOf(LocalDateTime since, UUID afterId, LocalDateTime until,
+                                                        int limit) {
+        return new MapSqlParameterSource()
+                .addValue("since", since)
+                .addValue("afterId", afterId)
+                .addValue("until", until)
+                .addValue("limit", limit);
+    }
+
+    private static MapSqlParameterSource parametersOf(User user) {
+        return new MapSqlParameterSource()
+                .addValue("id", user.getId())
+                .addValue("email", user.getEmail())
+                .addValue("firstName", user.getFirstName())
+                .addValue("lastName", user.getLastName())
+                .addValue("birthDate", user.getBirthDate())
+                .addValue("birthMonthDay", user.getBirthMonthDay())
+                .addValue("address", user.getAddress())
+                .addValue("phoneNumber", user.getPhoneNumber())
+                .addValue("createdAt", user.getCreatedAt())
+                .addValue("updatedAt", user.getUpdatedAt());
+    }
+
+    private static final class ShardCursor {
+
+        private final List<User> rows;
+
+        private int position;
+
+        private ShardCursor(List<User> rows) {
+            this.rows = rows;
+        }
+
+        private User head() {
+            return rows.get(position);
+        }
+
+        private boolean advance() {
+            return ++position < rows.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package org.example.clearsolutionstest.repository.shard;
+
+import org.example.clearsolutionstest.entity.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface UserShardRouter {
+
+    int shardCount();
+
+    int shardFor(User user);
+
+    List<Integer> shardsForId(UUID id);
+
+    List<Integer> shardsForBirthDateRange(LocalDate from, LocalDate to);
+
+}
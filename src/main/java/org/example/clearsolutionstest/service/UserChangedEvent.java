@@ -0,0 +1,16 @@
+package org.example.clearsolutionstest.service;
+
+import org.example.clearsolutionstest.entity.UserChangeType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Published on every instance, exactly once per instance, for each user change read from the outbox.
+ *
+ * @param local whether the change was made by this instance, whose own Hibernate caches are then already up to date
+ */
+public record UserChangedEvent(UUID userId, UserChangeType changeType, LocalDate previousBirthDate,
+                               LocalDate birthDate, LocalDateTime createdAt, boolean local) {
+}
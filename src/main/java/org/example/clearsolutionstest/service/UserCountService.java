@@ -0,0 +1,33 @@
+package org.example.clearsolutionstest.service;
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.LocalDate;
+import java.util.OptionalLong;
+
+@Validated
+public interface UserCountService {
+
+    /**
+     * Must be called in the transaction moving a user from {@code previousBirthDate} to {@code birthDate}, null
+     * meaning the user did not exist before or does not exist after.
+     */
+    void recordChange(@Nullable LocalDate previousBirthDate, @Nullable LocalDate birthDate);
+
+    UserCountDto countByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to);
+
+    /**
+     * Users born from {@code from} to {@code to} in the last snapshot, read without a query, so recent changes may be
+     * missing. Empty until the first snapshot was taken.
+     */
+    OptionalLong countFromSnapshot(@NotNull LocalDate from, @NotNull LocalDate to);
+
+    /**
+     * Recounts everything from the users table, needed after users were written around the services.
+     */
+    void rebuild();
+
+}
@@ -0,0 +1,23 @@
+package org.example.clearsolutionstest.service;
+
+import org.example.clearsolutionstest.entity.UserChangeType;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public interface UserOutboxService {
+
+    /**
+     * Records a change, must be called inside the transaction making the change.
+     */
+    void record(UserChangeType changeType, UUID userId, LocalDate previousBirthDate, LocalDate birthDate);
+
+    /**
+     * Runs {@code work} on the current thread without recording its changes, for writes that are rolled back anyway.
+     * Their events would still use up ids, which the poller then waits for as missing.
+     */
+    void runWithoutRecording(Runnable work);
+
+    String getNodeId();
+
+}
@@ -1,15 +1,27 @@
 package org.example.clearsolutionstest.service;
 
+import jakarta.annotation.Nullable;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import org.example.clearsolutionstest.dto.CreateUserDto;
 import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
 import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Validated
@@ -21,7 +33,46 @@ public interface UserService {
 
     void deleteUser(@NotNull UUID id);
 
+    /**
+     * Users ordered by birth date and id, see {@link UserSort#BIRTH_DATE}.
+     */
     List<GetUserDto> findAllByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
-                                             @NotNull Integer pageIndex, @NotNull @Max(500) Integer pageSize);
+                                             @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize);
+
+    /**
+     * Same users as {@link #findAllByBirthDateRange} as entities, for writing them out without mapping them first.
+     * Concurrent callers may get the same instances, the rows must not be modified.
+     */
+    List<User> findRowsByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                        @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize);
+
+    /**
+     * Same users as {@link #findRowsByBirthDateRange} in {@code sort} order with only {@code fields} read, the other
+     * fields are {@code null}. The rows are shared as well and must not be modified.
+     */
+    List<User> findFieldsByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                          @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize,
+                                          @NotEmpty Set<UserField> fields, @NotNull UserSort sort);
+
+    UserCountDto countByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to);
+
+    /**
+     * Users with a birthday in the {@code days} days starting today (UTC), ordered by the date of that birthday.
+     */
+    List<GetUserDto> findUpcomingBirthdays(@NotNull @Min(1) @Max(366) Integer days,
+                                           @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize);
+
+    /**
+     * One result per requested id in the same order, also for repeated ids, ids without a user are not found.
+     */
+    List<MultiGetUserResultDto> findAllByIds(@Valid @NotNull MultiGetUsersDto multiGetUsersDto);
+
+    /**
+     * Users created, updated or deleted at or after {@code since} (UTC), oldest change first, with their current
+     * state. Changes at {@code since} with an id up to {@code afterId} are skipped, so the next page is requested with
+     * the cursor of the previous one. The most recent changes are only listed once they have settled.
+     */
+    UserChangesDto findChangesSince(@NotNull LocalDateTime since, @Nullable UUID afterId,
+                                    @NotNull @Min(1) @Max(500) Integer pageSize);
 
 }
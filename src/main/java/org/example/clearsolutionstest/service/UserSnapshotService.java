@@ -0,0 +1,22 @@
+package org.example.clearsolutionstest.service;
+
+import java.nio.file.Path;
+
+public interface UserSnapshotService {
+
+    /**
+     * Writes every user to {@code path}, replacing the file.
+     *
+     * @return number of written users
+     */
+    long export(Path path);
+
+    /**
+     * Loads the users of a snapshot into an empty users table, around the outbox, so other instances are not
+     * notified.
+     *
+     * @return number of restored users
+     */
+    long restore(Path path);
+
+}
@@ -0,0 +1,15 @@
+package org.example.clearsolutionstest.service;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Published by the user services for every change made by this instance, inside the transaction making it. Unlike
+ * {@link UserChangedEvent} it does not wait for the outbox poller, listen with
+ * {@code @TransactionalEventListener(fallbackExecution = true)} to see it once the change is committed.
+ *
+ * @param previousBirthDate birth date before the change, {@code null} for created users
+ * @param birthDate         birth date after the change, {@code null} for deleted users
+ */
+public record UserWrittenEvent(UUID userId, LocalDate previousBirthDate, LocalDate birthDate) {
+}
@@ -0,0 +1,45 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.UserBirthDateCount;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Immutable prefix sums of users per birth day, answering any range count in constant time.
+ */
+final class BirthDateCountSnapshot {
+
+    private final long firstDay;
+
+    /**
+     * {@code prefixSums[i]} is the number of users born before {@code firstDay + i}.
+     */
+    private final long[] prefixSums;
+
+    private BirthDateCountSnapshot(long firstDay, long[] prefixSums) {
+        this.firstDay = firstDay;
+        this.prefixSums = prefixSums;
+    }
+
+    static BirthDateCountSnapshot of(Collection<UserBirthDateCount> counts) {
+        long firstDay = counts.stream().mapToLong(count -> count.getBirthDate().toEpochDay()).min().orElse(0);
+        long lastDay = counts.stream().mapToLong(count -> count.getBirthDate().toEpochDay()).max().orElse(-1);
+        long[] prefixSums = new long[Math.toIntExact(lastDay - firstDay + 2)];
+        counts.forEach(count -> prefixSums[(int) (count.getBirthDate().toEpochDay() - firstDay) + 1] += count.getUserCount());
+        for (int i = 1; i < prefixSums.length; i++) {
+            prefixSums[i] += prefixSums[i - 1];
+        }
+        return new BirthDateCountSnapshot(firstDay, prefixSums);
+    }
+
+    long count(LocalDate from, LocalDate to) {
+        return bornBefore(to.toEpochDay() + 1) - bornBefore(from.toEpochDay());
+    }
+
+    private long bornBefore(long day) {
+        long index = Math.max(0, Math.min(day - firstDay, prefixSums.length - 1));
+        return prefixSums[(int) index];
+    }
+
+}
@@ -0,0 +1,25 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Key of a coalesced {@code findAllByBirthDateRange} call, {@code fields} are the selected fields.
+ */
+record BirthDateRangeQuery(LocalDate from, LocalDate to, int pageIndex, int pageSize, Set<UserField> fields,
+                           UserSort sort) {
+
+    static final String SINGLE_FLIGHT_NAME = "users.find-all-by-birth-date-range";
+
+    /**
+     * Callers only read the shared rows, DTOs are mapped per caller, so followers get the leader's list.
+     */
+    static final UnaryOperator<List<User>> SHARE_ROWS = UnaryOperator.identity();
+
+}
@@ -0,0 +1,104 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.User;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Birthdays of {@code days} days in a row as ranges of {@link User#birthMonthDayOf}, in calendar order. A window
+ * crossing the new year is two ranges, one up to December 31 and one from January 1. People born on February 29
+ * celebrate on February 28 in other years, so in those years they are in the window when February 28 is.
+ */
+record BirthdayWindow(List<MonthDayRange> ranges) {
+
+    /**
+     * Any 366 days in a row hold every birthday.
+     */
+    static final int MAX_DAYS = 366;
+
+    private static final int FIRST_MONTH_DAY = 101;
+
+    private static final int LAST_MONTH_DAY = 1231;
+
+    private static final int FEBRUARY_28 = 228;
+
+    private static final int FEBRUARY_29 = 229;
+
+    static BirthdayWindow of(LocalDate from, int days) {
+        if (days < 1 || days > MAX_DAYS) {
+            throw new IllegalArgumentException("Days must be between 1 and %d".formatted(MAX_DAYS));
+        }
+        if (days == MAX_DAYS) {
+            return wholeYearFrom(User.birthMonthDayOf(from));
+        }
+        LocalDate to = from.plusDays(days - 1L);
+        int lastMonthDay = User.birthMonthDayOf(to);
+        if (lastMonthDay == FEBRUARY_28 && !Year.isLeap(to.getYear())) {
+            lastMonthDay = FEBRUARY_29;
+        }
+        if (from.getYear() == to.getYear()) {
+            return new BirthdayWindow(List.of(new MonthDayRange(User.birthMonthDayOf(from), lastMonthDay)));
+        }
+        return new BirthdayWindow(List.of(
+                new MonthDayRange(User.birthMonthDayOf(from), LAST_MONTH_DAY),
+                new MonthDayRange(FIRST_MONTH_DAY, lastMonthDay)
+        ));
+    }
+
+    /**
+     * Every birthday, starting with the one of {@code firstMonthDay}. The ranges are compared as numbers, so the one
+     * before {@code firstMonthDay} also holds February 29.
+     */
+    private static BirthdayWindow wholeYearFrom(int firstMonthDay) {
+        if (firstMonthDay == FIRST_MONTH_DAY) {
+            return new BirthdayWindow(List.of(new MonthDayRange(FIRST_MONTH_DAY, LAST_MONTH_DAY)));
+        }
+        return new BirthdayWindow(List.of(
+                new MonthDayRange(firstMonthDay, LAST_MONTH_DAY),
+                new MonthDayRange(FIRST_MONTH_DAY, firstMonthDay - 1)
+        ));
+    }
+
+    /**
+     * Users {@code offset} to {@code offset + limit} of the window, ordered by range, month and day and then id.
+     * Ranges before the offset are only counted, once the offset is reached each range is read with offset and
+     * limit, so every query is a range scan of the month-day index.
+     */
+    List<User> page(long offset, int limit, RangeSource source) {
+        List<User> page = new ArrayList<>(limit);
+        long skip = offset;
+        for (MonthDayRange range : ranges) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (skip > 0) {
+                long count = source.count(range);
+                if (skip >= count) {
+                    skip -= count;
+                    continue;
+                }
+            }
+            page.addAll(source.fetch(range, skip, limit - page.size()));
+            skip = 0;
+        }
+        return page;
+    }
+
+    /**
+     * Both ends are inclusive.
+     */
+    record MonthDayRange(int from, int to) {
+    }
+
+    interface RangeSource {
+
+        List<User> fetch(MonthDayRange range, long offset, int limit);
+
+        long count(MonthDayRange range);
+
+    }
+
+}
@@ -0,0 +1,463 @@
+package org.example.clearsolutionstest.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
+import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserOutboxEvent;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.repository.UserBulkLoader;
+import org.example.clearsolutionstest.repository.UserOrders;
+import org.example.clearsolutionstest.repository.UserOutboxRepository;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.example.clearsolutionstest.service.UserService;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@link UserService} answering range queries from all users held in a {@link ColumnarUserStore}. Writes and counts
+ * go to {@link UserServiceImpl}. Users changed since the store was built are kept in a small copy on write map next
+ * to it, filled from the outbox and right after local writes, and are merged into a new store once there are
+ * {@code application.columnar.compaction-threshold} of them. Reads are therefore eventually consistent with the
+ * database, and fall back to {@link UserServiceImpl} until the store is loaded after startup. A changed user is read
+ * and put into the map under one lock, so a read started before a newer write can not overwrite what it put there.
+ * <p>
+ * Enabled by {@code application.columnar.enabled}, only together with the JPA storage, not with sharding.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "application.columnar", name = "enabled", havingValue = "true")
+@Slf4j
+public class ColumnarUserService implements UserService {
+
+    private static final int READ_FETCH_SIZE = 10_000;
+
+    private static final int REPLAY_BATCH_SIZE = 500;
+
+    private final UserServiceImpl delegate;
+
+    private final UserRepository userRepository;
+
+    private final UserOutboxRepository userOutboxRepository;
+
+    private final UserBulkLoader userBulkLoader;
+
+    private final ModelMapper modelMapper;
+
+    private final boolean offHeap;
+
+    private final int compactionThreshold;
+
+    /**
+     * Replaced as a whole, so a query sees a store and the changes made after it was built consistently.
+     */
+    private volatile View view;
+
+    public ColumnarUserService(UserServiceImpl delegate, UserRepository userRepository,
+                               UserOutboxRepository userOutboxRepository, UserBulkLoader userBulkLoader,
+                               ModelMapper modelMapper, MeterRegistry meterRegistry,
+                               @Value("${application.columnar.off-heap:false}") boolean offHeap,
+                               @Value("${application.columnar.compaction-threshold:10000}") int compactionThreshold) {
+        this.delegate = delegate;
+        this.userRepository = userRepository;
+        this.userOutboxRepository = userOutboxRepository;
+        this.userBulkLoader = userBulkLoader;
+        this.modelMapper = modelMapper;
+        this.offHeap = offHeap;
+        this.compactionThreshold = compactionThreshold;
+        Gauge.builder("users.columnar.rows", this, service -> service.view == null ? 0 : service.view.store().size())
+                .description("Users in the columnar store")
+                .register(meterRegistry);
+        Gauge.builder("users.columnar.changes", this, service -> service.view == null ? 0 : service.view.changes().size())
+                .description("Users changed since the columnar store was built")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public UUID createUser(@Valid @NotNull CreateUserDto createUserDto) {
+        UUID id = delegate.createUser(createUserDto);
+        refresh(id);
+        return id;
+    }
+
+    @Override
+    public void updateUser(@NotNull UUID id, @Valid @NotNull UpdateUserDto updateUserDto) {
+        delegate.updateUser(id, updateUserDto);
+        refresh(id);
+    }
+
+    @Override
+    public void deleteUser(@NotNull UUID id) {
+        delegate.deleteUser(id);
+        apply(id, Optional.empty());
+    }
+
+    @Override
+    public List<GetUserDto> findAllByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                                    @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+        log.debug("findAllByBirthDateRange {}, {}, {}, {}", from, to, pageIndex, pageSize);
+        List<GetUserDto> page = findRowsByBirthDateRange(from, to, pageIndex, pageSize).stream()
+                .map(user -> modelMapper.map(user, GetUserDto.class))
+                .toList();
+        log.debug("end findAllByBirthDateRange {}", page);
+        return page;
+    }
+
+    @Override
+    public List<User> findRowsByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                               @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+        log.debug("findRowsByBirthDateRange {}, {}, {}, {}", from, to, pageIndex, pageSize);
+        View current = view;
+        if (current == null || from.isAfter(to)) {
+            return delegate.findRowsByBirthDateRange(from, to, pageIndex, pageSize);
+        }
+        ColumnarUserStore store = current.store();
+        Slice slice = new Slice(current, store.firstIndexBornOnOrAfter(from), store.firstIndexBornAfter(to),
+                firstBornOnOrAfter(current.changedUsers(), from), firstBornAfter(current.changedUsers(), to));
+        long offset = (long) pageIndex * pageSize;
+        Position position = slice.seek(offset);
+        int index = position.index();
+        int end = slice.end();
+        List<User> changed = current.changedUsers();
+        int changedIndex = position.changedIndex();
+        int[] shadowed = current.shadowed();
+        int shadowedIndex = current.shadowedBefore(index);
+        long toSkip = offset - position.before();
+        List<User> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize) {
+            while (index < end && shadowedIndex < shadowed.length && shadowed[shadowedIndex] == index) {
+                index++;
+                shadowedIndex++;
+            }
+            boolean hasStored = index < end;
+            boolean hasChanged = changedIndex < slice.changedEnd();
+            if (!hasStored && !hasChanged) {
+                break;
+            }
+            boolean takeChanged = hasChanged && (!hasStored || store.compareAt(index, changed.get(changedIndex)) > 0);
+            if (toSkip > 0) {
+                toSkip--;
+            } else {
+                page.add(takeChanged ? changed.get(changedIndex) : store.userAt(index));
+            }
+            if (takeChanged) {
+                changedIndex++;
+            } else {
+                index++;
+            }
+        }
+        log.debug("end findRowsByBirthDateRange {}", page.size());
+        return page;
+    }
+
+    /**
+     * Users in the store have all fields anyway, the response is narrowed when it is written. The store is in birth
+     * date order, other orders are read from their indexes instead.
+     */
+    @Override
+    public List<User> findFieldsByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                                 @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize,
+                                                 @NotEmpty Set<UserField> fields, @NotNull UserSort sort) {
+        if (sort != UserSort.BIRTH_DATE) {
+            return delegate.findFieldsByBirthDateRange(from, to, pageIndex, pageSize, fields, sort);
+        }
+        return findRowsByBirthDateRange(from, to, pageIndex, pageSize);
+    }
+
+    @Override
+    public UserCountDto countByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to) {
+        return delegate.countByBirthDateRange(from, to);
+    }
+
+    /**
+     * The store is in birth date order, birthdays are read from the month-day index instead.
+     */
+    @Override
+    public List<GetUserDto> findUpcomingBirthdays(@NotNull @Min(1) @Max(366) Integer days,
+                                                  @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+        return delegate.findUpcomingBirthdays(days, pageIndex, pageSize);
+    }
+
+    /**
+     * The store has no id index, lookups by id go to the entity cache and the database.
+     */
+    @Override
+    public List<MultiGetUserResultDto> findAllByIds(@Valid @NotNull MultiGetUsersDto multiGetUsersDto) {
+        return delegate.findAllByIds(multiGetUsersDto);
+    }
+
+    /**
+     * The store keeps no change times, the feed is read from the database.
+     */
+    @Override
+    public UserChangesDto findChangesSince(@NotNull LocalDateTime since, @Nullable UUID afterId,
+                                           @NotNull @Min(1) @Max(500) Integer pageSize) {
+        return delegate.findChangesSince(since, afterId, pageSize);
+    }
+
+    /**
+     * Loads every user once the application is ready, which is after the outbox poller started, then replays the
+     * outbox events written while loading. Runs before the other listeners, so the warm-up already reads from it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void load() {
+        long started = System.nanoTime();
+        long lastEventBeforeLoad = userOutboxRepository.findMaxId();
+        ColumnarUserStore.Builder builder = ColumnarUserStore.builder(offHeap);
+        userBulkLoader.readAll(builder::add, READ_FETCH_SIZE);
+        ColumnarUserStore store = builder.build();
+        synchronized (this) {
+            view = View.of(store, Map.of());
+        }
+        List<UserOutboxEvent> events;
+        long after = lastEventBeforeLoad;
+        do {
+            events = userOutboxRepository.findAllAfter(after, PageRequest.of(0, REPLAY_BATCH_SIZE));
+            events.forEach(event -> refresh(event.getUserId()));
+            after = events.isEmpty() ? after : events.get(events.size() - 1).getId();
+        } while (events.size() == REPLAY_BATCH_SIZE);
+        log.info("Loaded {} users into the columnar store in {}", store.size(),
+                Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    @EventListener
+    @Order(0)
+    public void onUserChanged(UserChangedEvent event) {
+        refresh(event.userId());
+    }
+
+    @Scheduled(fixedDelayString = "${application.columnar.compaction-check-millis:10000}")
+    public void compact() {
+        View compacted = view;
+        if (compacted == null || compacted.changes().size() < compactionThreshold) {
+            return;
+        }
+        long started = System.nanoTime();
+        ColumnarUserStore.Builder builder = ColumnarUserStore.builder(offHeap);
+        ColumnarUserStore store = compacted.store();
+        int[] shadowed = compacted.shadowed();
+        int shadowedIndex = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (shadowedIndex < shadowed.length && shadowed[shadowedIndex] == i) {
+                shadowedIndex++;
+            } else {
+                builder.add(store.userAt(i));
+            }
+        }
+        compacted.changedUsers().forEach(builder::add);
+        ColumnarUserStore rebuilt = builder.build();
+        synchronized (this) {
+            // Keeps changes made while the new store was built
+            Map<UUID, Optional<User>> remaining = new HashMap<>(view.changes());
+            compacted.changes().forEach(remaining::remove);
+            view = View.of(rebuilt, remaining);
+        }
+        log.debug("compact {} changes into {} users in {}", compacted.changes().size(), rebuilt.size(),
+                Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private synchronized void refresh(UUID id) {
+        if (view != null) {
+            apply(id, userRepository.findById(id));
+        }
+    }
+
+    private synchronized void apply(UUID id, Optional<User> user) {
+        if (view != null) {
+            view = view.with(id, user);
+        }
+    }
+
+    private static int firstBornOnOrAfter(List<User> users, LocalDate date) {
+        int low = 0;
+        int high = users.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (users.get(middle).getBirthDate().isBefore(date)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int firstBornAfter(List<User> users, LocalDate date) {
+        int low = 0;
+        int high = users.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (users.get(middle).getBirthDate().isAfter(date)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param changes      current state of users changed after the store was built, empty if deleted
+     * @param changedUsers users present in {@code changes} in {@link UserOrders#BIRTH_DATE}
+     * @param shadowed     sorted indexes of the stored users in {@code changes}, which are not visible anymore
+     */
+    private record View(ColumnarUserStore store, Map<UUID, Optional<User>> changes, List<User> changedUsers,
+                        int[] shadowed) {
+
+        private static View of(ColumnarUserStore store, Map<UUID, Optional<User>> changes) {
+            List<User> changedUsers = new ArrayList<>();
+            changes.values().forEach(user -> user.ifPresent(changedUsers::add));
+            changedUsers.sort(UserOrders.BIRTH_DATE);
+            int[] shadowed = changes.keySet().stream()
+                    .mapToInt(store::indexOf)
+                    .filter(index -> index >= 0)
+                    .sorted()
+                    .toArray();
+            return new View(store, Collections.unmodifiableMap(changes), Collections.unmodifiableList(changedUsers),
+                    shadowed);
+        }
+
+        /**
+         * Copies the changes with one more, in time proportional to the number of changes.
+         */
+        private View with(UUID id, Optional<User> user) {
+            Map<UUID, Optional<User>> nextChanges = new HashMap<>(changes);
+            Optional<User> previous = nextChanges.put(id, user);
+            List<User> nextChangedUsers = new ArrayList<>(changedUsers);
+            if (previous != null && previous.isPresent()) {
+                nextChangedUsers.remove(Collections.binarySearch(nextChangedUsers, previous.get(), UserOrders.BIRTH_DATE));
+            }
+            user.ifPresent(changed -> nextChangedUsers.add(
+                    -Collections.binarySearch(nextChangedUsers, changed, UserOrders.BIRTH_DATE) - 1, changed));
+            int[] nextShadowed = shadowed;
+            int index = previous == null ? store.indexOf(id) : -1;
+            if (index >= 0) {
+                int at = -Arrays.binarySearch(shadowed, index) - 1;
+                nextShadowed = new int[shadowed.length + 1];
+                System.arraycopy(shadowed, 0, nextShadowed, 0, at);
+                nextShadowed[at] = index;
+                System.arraycopy(shadowed, at, nextShadowed, at + 1, shadowed.length - at);
+            }
+            return new View(store, Collections.unmodifiableMap(nextChanges),
+                    Collections.unmodifiableList(nextChangedUsers), nextShadowed);
+        }
+
+        /**
+         * @return number of shadowed stored users before {@code index}
+         */
+        private int shadowedBefore(int index) {
+            int found = Arrays.binarySearch(shadowed, index);
+            return found < 0 ? -found - 1 : found;
+        }
+
+    }
+
+    /**
+     * The stored users from {@code start} to {@code end} and the changed users from {@code changedStart} to
+     * {@code changedEnd} of a birth date range, which a page merges.
+     */
+    private record Slice(View view, int start, int end, int changedStart, int changedEnd) {
+
+        /**
+         * @return the last store index with at most {@code offset} users of the range before it, so a deep page
+         * starts there instead of walking the rows before it. Users before an index only grow with it, which makes it
+         * a binary search.
+         */
+        private Position seek(long offset) {
+            if (view.changes().isEmpty()) {
+                int index = (int) Math.min(end, start + offset);
+                return new Position(index, changedStart, index - start);
+            }
+            if (rank(start) > offset) {
+                // Changed users before the first stored one are more than the offset
+                return new Position(start, changedStart, 0);
+            }
+            int low = start;
+            int high = end;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (rank(middle) <= offset) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return new Position(low, changedStart + changedBefore(low), rank(low));
+        }
+
+        /**
+         * @return number of visible stored users and changed users of the range ordered before store index
+         * {@code index}
+         */
+        private long rank(int index) {
+            int visibleStored = index - start - (view.shadowedBefore(index) - view.shadowedBefore(start));
+            return (long) visibleStored + changedBefore(index);
+        }
+
+        /**
+         * @return number of changed users of the range ordered before store index {@code index}
+         */
+        private int changedBefore(int index) {
+            if (index >= end) {
+                return changedEnd - changedStart;
+            }
+            int low = changedStart;
+            int high = changedEnd;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (view.store().compareAt(index, view.changedUsers().get(middle)) > 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - changedStart;
+        }
+
+    }
+
+    /**
+     * Where a page starts merging: at store index {@code index} and changed user {@code changedIndex}, with
+     * {@code before} users of the range before them.
+     */
+    private record Position(int index, int changedIndex, long before) {
+    }
+
+}
@@ -0,0 +1,373 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.repository.UserOrders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable column store of users ordered by birth date and id. Birth dates are epoch days in a sorted {@code int}
+ * array, so a birth date range is found with two binary searches and is a contiguous slice of every column. Ids are
+ * kept as two {@code long}s, names and addresses are dictionary encoded, emails and phone numbers are stored as UTF-8
+ * bytes, optionally in direct buffers outside the heap. Each of those byte columns is limited to 2 GB. One more
+ * {@code int} per user orders the rows by id, so a user is found by id without knowing its birth date.
+ */
+public final class ColumnarUserStore {
+
+    private final int size;
+
+    private final int[] birthDays;
+
+    private final long[] idMostSignificantBits;
+
+    private final long[] idLeastSignificantBits;
+
+    /**
+     * Row indexes in {@link UserOrders#ID} order.
+     */
+    private final int[] idIndex;
+
+    private final Utf8Column emails;
+
+    private final DictionaryColumn firstNames;
+
+    private final DictionaryColumn lastNames;
+
+    private final DictionaryColumn addresses;
+
+    private final Utf8Column phoneNumbers;
+
+    private ColumnarUserStore(int size, int[] birthDays, long[] idMostSignificantBits, long[] idLeastSignificantBits,
+                              int[] idIndex, Utf8Column emails, DictionaryColumn firstNames, DictionaryColumn lastNames,
+                              DictionaryColumn addresses, Utf8Column phoneNumbers) {
+        this.size = size;
+        this.birthDays = birthDays;
+        this.idMostSignificantBits = idMostSignificantBits;
+        this.idLeastSignificantBits = idLeastSignificantBits;
+        this.idIndex = idIndex;
+        this.emails = emails;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+        this.addresses = addresses;
+        this.phoneNumbers = phoneNumbers;
+    }
+
+    /**
+     * @param offHeap whether emails and phone numbers are stored in direct buffers
+     */
+    public static Builder builder(boolean offHeap) {
+        return new Builder(offHeap);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return index of the first user born on or after {@code date}, {@link #size()} if there is none
+     */
+    public int firstIndexBornOnOrAfter(LocalDate date) {
+        return firstIndexWithBirthDayAtLeast(date.toEpochDay());
+    }
+
+    /**
+     * @return index of the first user born after {@code date}, {@link #size()} if there is none
+     */
+    public int firstIndexBornAfter(LocalDate date) {
+        return firstIndexWithBirthDayAtLeast(date.toEpochDay() + 1);
+    }
+
+    /**
+     * @return index of the user with {@code id}, -1 if it is not stored
+     */
+    public int indexOf(UUID id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int index = idIndex[middle];
+            int result = Long.compareUnsigned(idMostSignificantBits[index], id.getMostSignificantBits());
+            if (result == 0) {
+                result = Long.compareUnsigned(idLeastSignificantBits[index], id.getLeastSignificantBits());
+            }
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public UUID idAt(int index) {
+        return new UUID(idMostSignificantBits[index], idLeastSignificantBits[index]);
+    }
+
+    public User userAt(int index) {
+        return new User(
+                idAt(index),
+                emails.get(index),
+                firstNames.get(index),
+                lastNames.get(index),
+                LocalDate.ofEpochDay(birthDays[index]),
+                addresses.get(index),
+                phoneNumbers.get(index)
+        );
+    }
+
+    /**
+     * Compares the user at {@code index} with {@code user} in {@link UserOrders#BIRTH_DATE} without decoding the stored user.
+     */
+    public int compareAt(int index, User user) {
+        int result = Long.compare(birthDays[index], user.getBirthDate().toEpochDay());
+        if (result == 0) {
+            result = Long.compareUnsigned(idMostSignificantBits[index], user.getId().getMostSignificantBits());
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(idLeastSignificantBits[index], user.getId().getLeastSignificantBits());
+        }
+        return result;
+    }
+
+    private int firstIndexWithBirthDayAtLeast(long epochDay) {
+        if (epochDay > Integer.MAX_VALUE) {
+            return size;
+        }
+        if (epochDay < Integer.MIN_VALUE) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(birthDays, 0, size, (int) epochDay);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // Several users share a birth day, binary search returns any of them
+        while (index > 0 && birthDays[index - 1] == epochDay) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Collects users in any order, {@link #build()} sorts them.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final boolean offHeap;
+
+        private int size;
+
+        private int[] birthDays = new int[INITIAL_CAPACITY];
+
+        private long[] idMostSignificantBits = new long[INITIAL_CAPACITY];
+
+        private long[] idLeastSignificantBits = new long[INITIAL_CAPACITY];
+
+        private final Utf8ColumnBuilder emails = new Utf8ColumnBuilder();
+
+        private final DictionaryColumnBuilder firstNames = new DictionaryColumnBuilder();
+
+        private final DictionaryColumnBuilder lastNames = new DictionaryColumnBuilder();
+
+        private final DictionaryColumnBuilder addresses = new DictionaryColumnBuilder();
+
+        private final Utf8ColumnBuilder phoneNumbers = new Utf8ColumnBuilder();
+
+        private Builder(boolean offHeap) {
+            this.offHeap = offHeap;
+        }
+
+        public Builder add(User user) {
+            if (size == birthDays.length) {
+                int capacity = size * 2;
+                birthDays = Arrays.copyOf(birthDays, capacity);
+                idMostSignificantBits = Arrays.copyOf(idMostSignificantBits, capacity);
+                idLeastSignificantBits = Arrays.copyOf(idLeastSignificantBits, capacity);
+            }
+            birthDays[size] = Math.toIntExact(user.getBirthDate().toEpochDay());
+            idMostSignificantBits[size] = user.getId().getMostSignificantBits();
+            idLeastSignificantBits[size] = user.getId().getLeastSignificantBits();
+            emails.add(size, user.getEmail());
+            firstNames.add(size, user.getFirstName());
+            lastNames.add(size, user.getLastName());
+            addresses.add(size, user.getAddress());
+            phoneNumbers.add(size, user.getPhoneNumber());
+            size++;
+            return this;
+        }
+
+        public ColumnarUserStore build() {
+            int[] order = IntStream.range(0, size).boxed()
+                    .sorted((a, b) -> {
+                        int result = Integer.compare(birthDays[a], birthDays[b]);
+                        if (result == 0) {
+                            result = Long.compareUnsigned(idMostSignificantBits[a], idMostSignificantBits[b]);
+                        }
+                        return result != 0 ? result : Long.compareUnsigned(idLeastSignificantBits[a], idLeastSignificantBits[b]);
+                    })
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            int[] sortedBirthDays = new int[size];
+            long[] sortedMostSignificantBits = new long[size];
+            long[] sortedLeastSignificantBits = new long[size];
+            for (int i = 0; i < size; i++) {
+                sortedBirthDays[i] = birthDays[order[i]];
+                sortedMostSignificantBits[i] = idMostSignificantBits[order[i]];
+                sortedLeastSignificantBits[i] = idLeastSignificantBits[order[i]];
+            }
+            int[] idIndex = IntStream.range(0, size).boxed()
+                    .sorted((a, b) -> {
+                        int result = Long.compareUnsigned(sortedMostSignificantBits[a], sortedMostSignificantBits[b]);
+                        return result != 0 ? result : Long.compareUnsigned(sortedLeastSignificantBits[a], sortedLeastSignificantBits[b]);
+                    })
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            return new ColumnarUserStore(size, sortedBirthDays, sortedMostSignificantBits, sortedLeastSignificantBits,
+                    idIndex, emails.build(order, offHeap), firstNames.build(order), lastNames.build(order),
+                    addresses.build(order), phoneNumbers.build(order, offHeap));
+        }
+
+    }
+
+    private static final class DictionaryColumn {
+
+        private final String[] values;
+
+        /**
+         * Index into {@link #values}, -1 for null.
+         */
+        private final int[] codes;
+
+        private DictionaryColumn(String[] values, int[] codes) {
+            this.values = values;
+            this.codes = codes;
+        }
+
+        private String get(int index) {
+            int code = codes[index];
+            return code < 0 ? null : values[code];
+        }
+
+    }
+
+    private static final class DictionaryColumnBuilder {
+
+        private final Map<String, Integer> codesByValue = new HashMap<>();
+
+        private final List<String> values = new ArrayList<>();
+
+        private int[] codes = new int[Builder.INITIAL_CAPACITY];
+
+        private void add(int index, String value) {
+            if (index == codes.length) {
+                codes = Arrays.copyOf(codes, index * 2);
+            }
+            codes[index] = value == null ? -1 : codesByValue.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        private DictionaryColumn build(int[] order) {
+            int[] sortedCodes = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedCodes[i] = codes[order[i]];
+            }
+            return new DictionaryColumn(values.toArray(String[]::new), sortedCodes);
+        }
+
+    }
+
+    private static final class Utf8Column {
+
+        private final ByteBuffer bytes;
+
+        /**
+         * Value {@code i} is stored from {@code offsets[i]} to {@code offsets[i + 1]}.
+         */
+        private final int[] offsets;
+
+        private final BitSet nulls;
+
+        private Utf8Column(ByteBuffer bytes, int[] offsets, BitSet nulls) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.nulls = nulls;
+        }
+
+        private String get(int index) {
+            if (nulls.get(index)) {
+                return null;
+            }
+            byte[] value = new byte[offsets[index + 1] - offsets[index]];
+            bytes.get(offsets[index], value);
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+    }
+
+    private static final class Utf8ColumnBuilder {
+
+        private byte[] data = new byte[Builder.INITIAL_CAPACITY * 16];
+
+        private int dataSize;
+
+        private int[] starts = new int[Builder.INITIAL_CAPACITY];
+
+        /**
+         * -1 for null.
+         */
+        private int[] lengths = new int[Builder.INITIAL_CAPACITY];
+
+        private void add(int index, String value) {
+            if (index == starts.length) {
+                starts = Arrays.copyOf(starts, index * 2);
+                lengths = Arrays.copyOf(lengths, index * 2);
+            }
+            if (value == null) {
+                lengths[index] = -1;
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            if (dataSize + encoded.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataSize + encoded.length));
+            }
+            System.arraycopy(encoded, 0, data, dataSize, encoded.length);
+            starts[index] = dataSize;
+            lengths[index] = encoded.length;
+            dataSize += encoded.length;
+        }
+
+        private Utf8Column build(int[] order, boolean offHeap) {
+            ByteBuffer bytes = offHeap ? ByteBuffer.allocateDirect(dataSize) : ByteBuffer.allocate(dataSize);
+            int[] offsets = new int[order.length + 1];
+            BitSet nulls = new BitSet(order.length);
+            for (int i = 0; i < order.length; i++) {
+                offsets[i] = bytes.position();
+                int length = lengths[order[i]];
+                if (length < 0) {
+                    nulls.set(i);
+                } else {
+                    bytes.put(data, starts[order[i]], length);
+                }
+            }
+            offsets[order.length] = bytes.position();
+            return new Utf8Column(bytes, offsets, nulls);
+        }
+
+    }
+
+}
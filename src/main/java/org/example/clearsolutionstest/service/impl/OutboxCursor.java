@@ -0,0 +1,103 @@
+package org.example.clearsolutionstest.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Remembers which outbox events were handled. Ids are taken when a transaction inserts its event but only become
+ * visible when it commits, so a smaller id can show up after a bigger one. Every id up to the watermark is handled,
+ * handled ids above it are kept until the ids missing below them show up, or until they have been missing long
+ * enough to belong to a rolled back transaction. Every id is checked for a gap once, however long it stays above
+ * the watermark.
+ */
+class OutboxCursor {
+
+    private long watermark;
+
+    private final TreeSet<Long> handledAboveWatermark = new TreeSet<>();
+
+    private final NavigableMap<Long, Long> missingSinceNanos = new TreeMap<>();
+
+    /**
+     * Ids up to this one were checked for gaps.
+     */
+    private long scannedUpTo;
+
+    private long lastLookedUp;
+
+    OutboxCursor(long watermark) {
+        this.watermark = watermark;
+        this.scannedUpTo = watermark;
+    }
+
+    long watermark() {
+        return watermark;
+    }
+
+    long highestSeen() {
+        return handledAboveWatermark.isEmpty() ? watermark : handledAboveWatermark.last();
+    }
+
+    /**
+     * At most {@code limit} missing ids, continuing after the ones returned by the previous call, so a big gap is
+     * looked up a slice per poll instead of all at once.
+     */
+    List<Long> missingIds(int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, missingSinceNanos.size()));
+        for (Long id : missingSinceNanos.tailMap(lastLookedUp, false).keySet()) {
+            if (ids.size() == limit) {
+                break;
+            }
+            ids.add(id);
+        }
+        for (Long id : missingSinceNanos.headMap(lastLookedUp, true).keySet()) {
+            if (ids.size() == limit) {
+                break;
+            }
+            ids.add(id);
+        }
+        if (!ids.isEmpty()) {
+            lastLookedUp = ids.get(ids.size() - 1);
+        }
+        return ids;
+    }
+
+    int missingCount() {
+        return missingSinceNanos.size();
+    }
+
+    /**
+     * @return false if the event was handled before and must be skipped
+     */
+    boolean markHandled(long id) {
+        if (id <= watermark || !handledAboveWatermark.add(id)) {
+            return false;
+        }
+        missingSinceNanos.remove(id);
+        return true;
+    }
+
+    void advance(long nowNanos, long gapTimeoutNanos) {
+        long highestSeen = highestSeen();
+        for (long id = Math.max(watermark, scannedUpTo) + 1; id < highestSeen; id++) {
+            if (!handledAboveWatermark.contains(id)) {
+                missingSinceNanos.putIfAbsent(id, nowNanos);
+            }
+        }
+        scannedUpTo = Math.max(scannedUpTo, highestSeen);
+        missingSinceNanos.entrySet().removeIf(missing -> {
+            boolean abandoned = nowNanos - missing.getValue() >= gapTimeoutNanos;
+            if (abandoned) {
+                handledAboveWatermark.add(missing.getKey());
+            }
+            return abandoned;
+        });
+        while (!handledAboveWatermark.isEmpty() && handledAboveWatermark.first() == watermark + 1) {
+            watermark = handledAboveWatermark.pollFirst();
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+package org.example.clearsolutionstest.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
+import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.exception.EmailAlreadyExistsException;
+import org.example.clearsolutionstest.exception.InvalidDateRangeException;
+import org.example.clearsolutionstest.exception.UserNotFoundException;
+import org.example.clearsolutionstest.repository.shard.ShardedUserRepository;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserService;
+import org.example.clearsolutionstest.service.UserWrittenEvent;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@link UserService} used when {@code application.sharding.enabled} is set. Writes are not transactional across
+ * shards and email uniqueness is checked before writing, so two concurrent writers may still race on it.
+ */
+@Service
+@ConditionalOnProperty(prefix = "application.sharding", name = "enabled", havingValue = "true")
+@Slf4j
+public class ShardedUserServiceImpl implements UserService {
+
+    private final ShardedUserRepository userRepository;
+
+    private final ModelMapper modelMapper;
+
+    private final TimeService timeService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int multiGetBatchSize;
+
+    private final UserChangeFeed changeFeed;
+
+    private final SingleFlight<BirthDateRangeQuery, List<User>> birthDateRangeQueries =
+            new SingleFlight<>(BirthDateRangeQuery.SHARE_ROWS);
+
+    public ShardedUserServiceImpl(ShardedUserRepository userRepository, ModelMapper modelMapper,
+                                  TimeService timeService, MeterRegistry meterRegistry,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${application.multi-get.batch-size:500}") int multiGetBatchSize,
+                                  @Value("${application.change-feed.settle-millis:2000}") long changeFeedSettleMillis,
+                                  @Value("${application.change-feed.tombstone-retention-days:30}") long tombstoneRetentionDays) {
+        this.userRepository = userRepository;
+        this.modelMapper = modelMapper;
+        this.timeService = timeService;
+        this.eventPublisher = eventPublisher;
+        this.multiGetBatchSize = multiGetBatchSize;
+        this.changeFeed = new UserChangeFeed(Duration.ofMillis(changeFeedSettleMillis),
+                Duration.ofDays(tombstoneRetentionDays));
+        this.modelMapper.getConfiguration().setSkipNullEnabled(true);
+        birthDateRangeQueries.bindTo(meterRegistry, BirthDateRangeQuery.SINGLE_FLIGHT_NAME);
+    }
+
+    @Override
+    public UUID createUser(@Valid @NotNull CreateUserDto createUserDto) {
+        log.debug("createUser {}", createUserDto);
+        requireFreeEmail(createUserDto.getEmail());
+        User user = modelMapper.map(createUserDto, User.class);
+        LocalDateTime now = timeService.utcNow();
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+        UUID id = userRepository.insert(user).getId();
+        eventPublisher.publishEvent(new UserWrittenEvent(id, null, user.getBirthDate()));
+        log.debug("end createUser {}", id);
+        return id;
+    }
+
+    @Override
+    public void updateUser(@NotNull UUID id, @Valid @NotNull UpdateUserDto updateUserDto) {
+        log.debug("updateUser {}, {}", id, updateUserDto);
+        User user = userRepository.findById(id).orElseThrow(() ->
+                new UserNotFoundException(id));
+        if (updateUserDto.getEmail() != null) {
+            requireFreeEmail(updateUserDto.getEmail());
+        }
+        // Mapping a User to User returns the same instance, the previous user is needed to find its shard
+        User updated = new User(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getBirthDate(), user.getAddress(), user.getPhoneNumber());
+        updated.setCreatedAt(user.getCreatedAt());
+        modelMapper.map(updateUserDto, updated);
+        updated.setUpdatedAt(timeService.utcNow());
+        userRepository.update(user, updated);
+        eventPublisher.publishEvent(new UserWrittenEvent(id, user.getBirthDate(), updated.getBirthDate()));
+        log.debug("end updateUser {}", updated);
+    }
+
+    @Override
+    public void deleteUser(@NotNull UUID id) {
+        log.debug("deleteUser {}", id);
+        Optional<User> user = userRepository.findById(id);
+        userRepository.deleteById(id, timeService.utcNow());
+        user.ifPresent(deleted -> eventPublisher.publishEvent(new UserWrittenEvent(id, deleted.getBirthDate(), null)));
+        log.debug("end deleteUser");
+    }
+
+    @Override
+    public List<GetUserDto> findAllByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                                    @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+        log.debug("findAllByBirthDateRange {}, {}, {}, {}", from, to, pageIndex, pageSize);
+        List<GetUserDto> list = findRowsByBirthDateRange(from, to, pageIndex, pageSize).stream()
+                .map(user -> modelMapper.map(user, GetUserDto.class))
+                .toList();
+        log.debug("end findAllByBirthDateRange {}", list);
+        return list;
+    }
+
+    @Override
+    public List<User> findRowsByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                               @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+        log.debug("findRowsByBirthDateRange {}, {}, {}, {}", from, to, pageIndex, pageSize);
+        if (from.isAfter(to)) {
+            throw new InvalidDateRangeException(from, to);
+        }
+        List<User> rows = birthDateRangeQueries.execute(
+                new BirthDateRangeQuery(from, to, pageIndex, pageSize, UserField.ALL, UserSort.BIRTH_DATE), () ->
+                        userRepository.getAllByBirthDateRange(from, to, pageIndex, pageSize));
+        log.debug("end findRowsByBirthDateRange {}", rows.size());
+        return rows;
+    }
+
+    @Override
+    public List<User> findFieldsByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                                 @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize,
+                                                 @NotEmpty Set<UserField> fields, @NotNull UserSort sort) {
+        log.debug("findFieldsByBirthDateRange {}, {}, {}, {}, {}, {}", from, to, pageIndex, pageSize, fields, sort);
+        if (fields.containsAll(UserField.ALL) && sort == UserSort.BIRTH_DATE) {
+            return findRowsByBirthDateRange(from, to, pageIndex, pageSize);
+        }
+        if (from.isAfter(to)) {
+            throw new InvalidDateRangeException(from, to);
+        }
+        List<User> rows = birthDateRangeQueries.execute(
+                new BirthDateRangeQuery(from, to, pageIndex, pageSize, fields, sort), () ->
+                        userRepository.getFieldsByBirthDateRange(from, to, fields, sort, pageIndex, pageSize));
+        log.debug("end findFieldsByBirthDateRange {}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Counts with an index range scan on every overlapping shard, there is no per day count table on shards.
+     */
+    @Override
+    public UserCountDto countByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to) {
+        log.debug("countByBirthDateRange {}, {}", from, to);
+        if (from.isAfter(to)) {
+            throw new InvalidDateRangeException(from, to);
+        }
+        UserCountDto count = new UserCountDto(userRepository.countByBirthDateRange(from, to), true, 0);
+        log.debug("end countByBirthDateRange {}", count);
+        return count;
+    }
+
+    @Override
+    public List<GetUserDto> findUpcomingBirthdays(@NotNull @Min(1) @Max(366) Integer days,
+                                                  @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+        log.debug("findUpcomingBirthdays {}, {}, {}", days, pageIndex, pageSize);
+        BirthdayWindow window = BirthdayWindow.of(timeService.utcNow().toLocalDate(), days);
+        List<GetUserDto> list = window.page((long) pageIndex * pageSize, pageSize, new BirthdayWindow.RangeSource() {
+
+            @Override
+            public List<User> fetch(BirthdayWindow.MonthDayRange range, long offset, int limit) {
+                return userRepository.getAllByBirthMonthDayRange(range.from(), range.to(), offset, limit);
+            }
+
+            @Override
+            public long count(BirthdayWindow.MonthDayRange range) {
+                return userRepository.countByBirthMonthDayRange(range.from(), range.to());
+            }
+
+        }).stream()
+                .map(user -> modelMapper.map(user, GetUserDto.class))
+                .toList();
+        log.debug("end findUpcomingBirthdays {}", list);
+        return list;
+    }
+
+    @Override
+    public List<MultiGetUserResultDto> findAllByIds(@Valid @NotNull MultiGetUsersDto multiGetUsersDto) {
+        List<UUID> ids = multiGetUsersDto.getIds();
+        log.debug("findAllByIds {} ids", ids.size());
+        Map<UUID, User> users = userRepository.findAllById(ids, multiGetBatchSize);
+        List<MultiGetUserResultDto> results = ids.stream()
+                .map(id -> {
+                    User user = users.get(id);
+                    return user == null
+                            ? new MultiGetUserResultDto(id, false, null)
+                            : new MultiGetUserResultDto(id, true, modelMapper.map(user, GetUserDto.class));
+                })
+                .toList();
+        log.debug("end findAllByIds {} found", users.size());
+        return results;
+    }
+
+    /**
+     * Every shard returns up to a page of changes and tombstones, which are merged and cut to the page.
+     */
+    @Override
+    public UserChangesDto findChangesSince(@NotNull LocalDateTime since, @Nullable UUID afterId,
+                                           @NotNull @Min(1) @Max(500) Integer pageSize) {
+        log.debug("findChangesSince {}, {}, {}", since, afterId, pageSize);
+        LocalDateTime now = timeService.utcNow();
+        changeFeed.requireRetained(since, now);
+        UUID after = afterId == null ? UserChangeFeed.FIRST_ID : afterId;
+        LocalDateTime until = changeFeed.until(now);
+        UserChangesDto changes = UserChangeFeed.page(since, afterId, pageSize,
+                userRepository.findChangedSince(since, after, until, pageSize),
+                userRepository.findDeletedSince(since, after, until, pageSize),
+                user -> modelMapper.map(user, GetUserDto.class));
+        log.debug("end findChangesSince {} changes", changes.getChanges().size());
+        return changes;
+    }
+
+    @Scheduled(fixedDelayString = "${application.change-feed.purge-interval-millis:3600000}")
+    public void purgeTombstones() {
+        int purged = userRepository.deleteTombstonesBefore(changeFeed.oldestRetained(timeService.utcNow()));
+        log.debug("purgeTombstones removed {} tombstones", purged);
+    }
+
+    private void requireFreeEmail(String email) {
+        userRepository.findByEmail(email).ifPresent(existingUser -> {
+            throw new EmailAlreadyExistsException(existingUser.getEmail());
+        });
+    }
+
+}
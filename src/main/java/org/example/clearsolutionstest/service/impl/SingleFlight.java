@@ -0,0 +1,104 @@
+package org.example.clearsolutionstest.service.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces concurrent calls with equal keys: the first caller runs the loader, callers arriving while it runs wait
+ * for its result instead of running the loader again. Nothing is cached, a call arriving after the loader finished
+ * runs it again.
+ *
+ * @param <K> call key, must implement {@code equals} and {@code hashCode}
+ * @param <V> result type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final UnaryOperator<V> copyForFollower;
+
+    private final LongAdder executed = new LongAdder();
+
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * @param copyForFollower applied to the result for every waiting caller, so callers that modify the result do
+     *                        not see each other's changes
+     */
+    public SingleFlight(UnaryOperator<V> copyForFollower) {
+        this.copyForFollower = copyForFollower;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            shared.increment();
+            return copyForFollower.apply(await(running));
+        }
+        executed.increment();
+        try {
+            V result = loader.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Publishes {@code single-flight.calls} counters tagged with {@code name} and the call outcome.
+     */
+    public SingleFlight<K, V> bindTo(MeterRegistry meterRegistry, String name) {
+        FunctionCounter.builder("single-flight.calls", this, SingleFlight::executedCount)
+                .description("Calls that ran the loader")
+                .tags("name", name, "outcome", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("single-flight.calls", this, SingleFlight::sharedCount)
+                .description("Calls that waited for the result of an identical call in flight")
+                .tags("name", name, "outcome", "shared")
+                .register(meterRegistry);
+        return this;
+    }
+
+    /**
+     * Number of calls that ran the loader.
+     */
+    public long executedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Number of calls that got the result of a loader run by another caller.
+     */
+    public long sharedCount() {
+        return shared.sum();
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // Followers see the leader's exception as if they had run the loader themselves
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+}
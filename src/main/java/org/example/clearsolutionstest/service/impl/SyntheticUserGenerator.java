@@ -0,0 +1,90 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Generates valid, plausible users. User {@code n} only depends on the seed, the reference date and {@code n}, so
+ * any partition of the index range produces the same data no matter how many threads generate it.
+ */
+public class SyntheticUserGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final int MIN_AGE = 18;
+
+    private static final int MAX_AGE = 90;
+
+    /**
+     * Ages up to this one are equally likely, older ones become linearly rarer up to {@link #MAX_AGE}.
+     */
+    private static final int DECLINE_AGE = 60;
+
+    private static final List<String> FIRST_NAMES = List.of(
+            "Olena", "Andrii", "Iryna", "Taras", "Oksana", "Dmytro", "Natalia", "Serhii", "Mariia", "Oleksandr",
+            "Anna", "Mykola", "Yulia", "Bohdan", "Kateryna", "Ivan", "Sofiia", "Petro", "Halyna", "Roman",
+            "Emma", "Liam", "Olivia", "Noah", "Ava", "Lucas", "Mia", "Leon", "Zofia", "Jakub"
+    );
+
+    private static final List<String> LAST_NAMES = List.of(
+            "Shevchenko", "Kovalenko", "Bondarenko", "Tkachenko", "Kravchenko", "Oliinyk", "Shevchuk", "Koval",
+            "Polishchuk", "Boiko", "Melnyk", "Lysenko", "Moroz", "Marchenko", "Savchenko", "Rudenko",
+            "Smith", "Johnson", "Brown", "Muller", "Schmidt", "Nowak", "Kowalski", "Novak", "Horvat", "Rossi"
+    );
+
+    private static final List<String> CITIES = List.of(
+            "Ukraine, Lviv", "Ukraine, Kyiv", "Ukraine, Kharkiv", "Ukraine, Odesa", "Ukraine, Dnipro",
+            "Ukraine, Ivano-Frankivsk", "Poland, Krakow", "Poland, Warsaw", "Germany, Berlin", "Czechia, Prague"
+    );
+
+    private static final List<String> STREETS = List.of(
+            "Shevchenka st.", "Franka st.", "Svobody ave.", "Hrushevskoho st.", "Naukova st.", "Zelena st.",
+            "Horodotska st.", "Stryiska st.", "Lesi Ukrainky st.", "Sadova st."
+    );
+
+    private final long seed;
+
+    private final LocalDate referenceDate;
+
+    /**
+     * @param referenceDate "today" for the generated ages, fix it to get identical data on different days
+     */
+    public SyntheticUserGenerator(long seed, LocalDate referenceDate) {
+        this.seed = seed;
+        this.referenceDate = referenceDate;
+    }
+
+    public User generate(long n) {
+        SplittableRandom random = new SplittableRandom(seed + n * GOLDEN_GAMMA);
+        String firstName = pick(random, FIRST_NAMES);
+        String lastName = pick(random, LAST_NAMES);
+        return new User(
+                new UUID((random.nextLong() & ~0xF000L) | 0x4000L,
+                        (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L),
+                "%s.%s.%d@example.com".formatted(firstName, lastName, n).toLowerCase(),
+                firstName,
+                lastName,
+                birthDate(random),
+                // Few distinct addresses, real address columns repeat a lot as well
+                "%s, %s %d".formatted(pick(random, CITIES), pick(random, STREETS), 1 + random.nextInt(50)),
+                "380%09d".formatted(random.nextInt(1_000_000_000))
+        );
+    }
+
+    private LocalDate birthDate(SplittableRandom random) {
+        int age;
+        do {
+            age = MIN_AGE + random.nextInt(MAX_AGE - MIN_AGE + 1);
+        } while (age > DECLINE_AGE && random.nextInt(MAX_AGE - DECLINE_AGE + 1) < age - DECLINE_AGE);
+        return referenceDate.minusYears(age).minusDays(random.nextInt(365));
+    }
+
+    private static String pick(SplittableRandom random, List<String> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+}
@@ -0,0 +1,39 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops second-level and query cache entries that another instance made stale. Changes made by this instance are
+ * already invalidated by Hibernate.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserCacheInvalidator {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @EventListener
+    @Order(0)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.local()) {
+            return;
+        }
+        log.debug("onUserChanged evicting {}", event.userId());
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(User.class, event.userId());
+        cache.evictQueryRegion(UserRepository.BIRTH_DATE_RANGE_CACHE_REGION);
+        cache.evictQueryRegion(UserRepository.EMAIL_CACHE_REGION);
+    }
+
+}
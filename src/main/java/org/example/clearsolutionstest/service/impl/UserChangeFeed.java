@@ -0,0 +1,102 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.UserChangeDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserTombstone;
+import org.example.clearsolutionstest.exception.ChangeFeedExpiredException;
+import org.example.clearsolutionstest.repository.UserOrders;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Pages of the change feed, shared by the user services. Changes are ordered by time and then id, and a page continues
+ * after the last change of the previous one, so updates and deletions are each returned once per sync however many
+ * share a timestamp.
+ * <p>
+ * A transaction may commit after a later one that has already been read, with an earlier timestamp. Changes younger
+ * than {@code settle} are therefore held back, it has to be longer than write transactions take. Deletions are only
+ * kept for {@code retention}, clients further behind have to sync all users again.
+ */
+final class UserChangeFeed {
+
+    /**
+     * Smallest id in the order H2 compares uuids in, the first page continues after it.
+     */
+    static final UUID FIRST_ID = new UUID(0, 0);
+
+    private static final Comparator<Change> ORDER = Comparator.comparing(Change::changedAt)
+            .thenComparing(Change::id, UserOrders.ID);
+
+    private final Duration settle;
+
+    private final Duration retention;
+
+    UserChangeFeed(Duration settle, Duration retention) {
+        this.settle = settle;
+        this.retention = retention;
+    }
+
+    /**
+     * Newest change a page read at {@code now} may contain.
+     */
+    LocalDateTime until(LocalDateTime now) {
+        return now.minus(settle);
+    }
+
+    /**
+     * Tombstones deleted before this may be purged.
+     */
+    LocalDateTime oldestRetained(LocalDateTime now) {
+        return now.minus(retention);
+    }
+
+    /**
+     * @throws ChangeFeedExpiredException if deletions since {@code since} may have been purged already
+     */
+    void requireRetained(LocalDateTime since, LocalDateTime now) {
+        LocalDateTime oldestRetained = oldestRetained(now);
+        if (since.isBefore(oldestRetained)) {
+            throw new ChangeFeedExpiredException(since, oldestRetained);
+        }
+    }
+
+    /**
+     * The first {@code pageSize} changes of {@code users} and {@code tombstones}, each read with the same cursor and
+     * limit, in any order.
+     */
+    static UserChangesDto page(LocalDateTime since, UUID afterId, int pageSize, List<User> users,
+                               List<UserTombstone> tombstones, Function<User, GetUserDto> toDto) {
+        List<Change> changes = Stream.concat(
+                        users.stream().map(user -> new Change(user.getId(), user.getUpdatedAt(), user)),
+                        tombstones.stream().map(tombstone ->
+                                new Change(tombstone.getUserId(), tombstone.getDeletedAt(), null)))
+                .sorted(ORDER)
+                .limit(pageSize)
+                .toList();
+        if (changes.isEmpty()) {
+            return new UserChangesDto(List.of(), since, afterId);
+        }
+        Change last = changes.get(changes.size() - 1);
+        return new UserChangesDto(
+                changes.stream()
+                        .map(change -> change.user() == null
+                                ? new UserChangeDto(change.id(), true, change.changedAt(), null)
+                                : new UserChangeDto(change.id(), false, change.changedAt(), toDto.apply(change.user())))
+                        .toList(),
+                last.changedAt(),
+                last.id()
+        );
+    }
+
+    private record Change(UUID id, LocalDateTime changedAt, User user) {
+    }
+
+}
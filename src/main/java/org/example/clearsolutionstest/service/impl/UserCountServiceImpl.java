@@ -0,0 +1,110 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.annotation.Nullable;
+import jakarta.transaction.Transactional;
+import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.example.clearsolutionstest.exception.InvalidDateRangeException;
+import org.example.clearsolutionstest.repository.UserBirthDateCountRepository;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.example.clearsolutionstest.service.UserCountService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts users from the per day counts in {@code user_birth_date_count} instead of the users table. Ranges of up to
+ * {@code application.count.exact-max-days} days sum the rows of the range and are exact. Longer ranges are read from
+ * an in memory snapshot of all rows, refreshed periodically. Their error bound is the number of birth date changes
+ * this instance read from the outbox since the snapshot was taken; changes not polled yet are not included.
+ */
+@Service
+@Slf4j
+public class UserCountServiceImpl implements UserCountService {
+
+    private final UserBirthDateCountRepository userBirthDateCountRepository;
+
+    private final long exactMaxDays;
+
+    private final AtomicLong changesSinceSnapshot = new AtomicLong();
+
+    private volatile BirthDateCountSnapshot snapshot;
+
+    public UserCountServiceImpl(UserBirthDateCountRepository userBirthDateCountRepository,
+                                @Value("${application.count.exact-max-days:366}") long exactMaxDays) {
+        this.userBirthDateCountRepository = userBirthDateCountRepository;
+        this.exactMaxDays = exactMaxDays;
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordChange(@Nullable LocalDate previousBirthDate, @Nullable LocalDate birthDate) {
+        log.debug("recordChange {}, {}", previousBirthDate, birthDate);
+        if (Objects.equals(previousBirthDate, birthDate)) {
+            return;
+        }
+        if (previousBirthDate != null) {
+            userBirthDateCountRepository.add(previousBirthDate, -1);
+        }
+        if (birthDate != null) {
+            userBirthDateCountRepository.add(birthDate, 1);
+        }
+        log.debug("end recordChange");
+    }
+
+    @Override
+    public UserCountDto countByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to) {
+        log.debug("countByBirthDateRange {}, {}", from, to);
+        if (from.isAfter(to)) {
+            InvalidDateRangeException ex = new InvalidDateRangeException(from, to);
+            log.debug("countByBirthDateRange", ex);
+            throw ex;
+        }
+        BirthDateCountSnapshot current = snapshot;
+        UserCountDto count = current == null || ChronoUnit.DAYS.between(from, to) < exactMaxDays
+                ? new UserCountDto(userBirthDateCountRepository.sumByBirthDateRange(from, to), true, 0)
+                : new UserCountDto(current.count(from, to), false, changesSinceSnapshot.get());
+        log.debug("end countByBirthDateRange {}", count);
+        return count;
+    }
+
+    @Override
+    public OptionalLong countFromSnapshot(@NotNull LocalDate from, @NotNull LocalDate to) {
+        BirthDateCountSnapshot current = snapshot;
+        return current == null ? OptionalLong.empty() : OptionalLong.of(current.count(from, to));
+    }
+
+    @Override
+    @Transactional
+    public void rebuild() {
+        log.debug("rebuild");
+        userBirthDateCountRepository.deleteAllRows();
+        int days = userBirthDateCountRepository.insertCountsOfUsers();
+        refreshSnapshot();
+        log.debug("end rebuild {} days", days);
+    }
+
+    @Scheduled(fixedDelayString = "${application.count.snapshot-refresh-millis:30000}")
+    public void refreshSnapshot() {
+        // Changes handled while loading may or may not be in the snapshot, so they stay in the error bound
+        long changes = changesSinceSnapshot.get();
+        snapshot = BirthDateCountSnapshot.of(userBirthDateCountRepository.findAll());
+        changesSinceSnapshot.addAndGet(-changes);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!Objects.equals(event.previousBirthDate(), event.birthDate())) {
+            changesSinceSnapshot.incrementAndGet();
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.repository.UserBulkLoader;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserCountService;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+/**
+ * Fills the database with synthetic users on startup when {@code application.seeder.enabled} is set. Rows are
+ * generated and loaded in parallel, one JDBC batch stream per thread. The same seed, reference date and index range
+ * always produce the same users, so a dataset can be recreated exactly.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.seeder", name = "enabled", havingValue = "true")
+@Slf4j
+public class UserDataSeeder implements ApplicationRunner {
+
+    private final UserBulkLoader userBulkLoader;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final TimeService timeService;
+
+    private final UserCountService userCountService;
+
+    private final long users;
+
+    private final long firstIndex;
+
+    private final long seed;
+
+    private final String referenceDate;
+
+    private final int batchSize;
+
+    private final int threads;
+
+    public UserDataSeeder(UserBulkLoader userBulkLoader, EntityManagerFactory entityManagerFactory,
+                          TimeService timeService, UserCountService userCountService,
+                          @Value("${application.seeder.users:1000000}") long users,
+                          @Value("${application.seeder.first-index:0}") long firstIndex,
+                          @Value("${application.seeder.seed:42}") long seed,
+                          @Value("${application.seeder.reference-date:}") String referenceDate,
+                          @Value("${application.seeder.batch-size:5000}") int batchSize,
+                          @Value("${application.seeder.threads:0}") int threads) {
+        this.userBulkLoader = userBulkLoader;
+        this.entityManagerFactory = entityManagerFactory;
+        this.timeService = timeService;
+        this.userCountService = userCountService;
+        this.users = users;
+        this.firstIndex = firstIndex;
+        this.seed = seed;
+        this.referenceDate = referenceDate;
+        this.batchSize = batchSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException, ExecutionException {
+        log.info("Seeding {} users from index {} with seed {} on {} threads", users, firstIndex, seed, threads);
+        long started = System.nanoTime();
+        long inserted = seed(new SyntheticUserGenerator(seed, referenceDate.isBlank()
+                ? timeService.utcNow().toLocalDate()
+                : LocalDate.parse(referenceDate)));
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        userCountService.rebuild();
+        Duration took = Duration.ofNanos(System.nanoTime() - started);
+        log.info("Seeded {} users in {} ({} users/s)", inserted, took,
+                inserted * 1000 / Math.max(1, took.toMillis()));
+    }
+
+    long seed(SyntheticUserGenerator generator) throws InterruptedException, ExecutionException {
+        long partition = (users + threads - 1) / threads;
+        LocalDateTime loadedAt = timeService.utcNow();
+        List<Callable<Long>> tasks = LongStream.range(0, threads)
+                .mapToObj(thread -> (Callable<Long>) () -> {
+                    long from = firstIndex + thread * partition;
+                    long to = Math.min(firstIndex + users, from + partition);
+                    return from >= to ? 0L : userBulkLoader.load(
+                            LongStream.range(from, to).mapToObj(generator::generate).iterator(), batchSize,
+                            loadedAt);
+                })
+                .toList();
+        long inserted = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                inserted += result.get();
+            }
+        }
+        return inserted;
+    }
+
+}
@@ -0,0 +1,147 @@
+package org.example.clearsolutionstest.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.entity.UserOutboxEvent;
+import org.example.clearsolutionstest.repository.UserOutboxRepository;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.example.clearsolutionstest.service.UserOutboxService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Reads the user outbox on every instance and republishes each change as a {@link UserChangedEvent}. Starts at the
+ * newest event present on startup, older changes are expected to be reflected in whatever the listeners load
+ * on startup. Ids missing below the newest event are looked up again at most {@code batch-size} per poll, so a burst
+ * of rolled back writes does not turn every poll into a huge query.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.outbox.poller", name = "enabled", matchIfMissing = true)
+@Slf4j
+public class UserOutboxPoller {
+
+    private final UserOutboxRepository userOutboxRepository;
+
+    private final UserOutboxService userOutboxService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TimeService timeService;
+
+    private final int batchSize;
+
+    private final long gapTimeoutNanos;
+
+    private final Duration retention;
+
+    private final Timer lag;
+
+    private final Counter handledEvents;
+
+    private final AtomicLong backlog;
+
+    private final AtomicLong missingEvents;
+
+    private final LongSupplier nanoClock;
+
+    private OutboxCursor cursor;
+
+    @Autowired
+    public UserOutboxPoller(UserOutboxRepository userOutboxRepository, UserOutboxService userOutboxService,
+                            ApplicationEventPublisher eventPublisher, TimeService timeService,
+                            MeterRegistry meterRegistry,
+                            @Value("${application.outbox.batch-size:500}") int batchSize,
+                            @Value("${application.outbox.gap-timeout-seconds:30}") long gapTimeoutSeconds,
+                            @Value("${application.outbox.retention-hours:24}") long retentionHours) {
+        this(userOutboxRepository, userOutboxService, eventPublisher, timeService, meterRegistry, batchSize,
+                gapTimeoutSeconds, retentionHours, System::nanoTime);
+    }
+
+    UserOutboxPoller(UserOutboxRepository userOutboxRepository, UserOutboxService userOutboxService,
+                     ApplicationEventPublisher eventPublisher, TimeService timeService, MeterRegistry meterRegistry,
+                     int batchSize, long gapTimeoutSeconds, long retentionHours, LongSupplier nanoClock) {
+        this.userOutboxRepository = userOutboxRepository;
+        this.userOutboxService = userOutboxService;
+        this.eventPublisher = eventPublisher;
+        this.timeService = timeService;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = TimeUnit.SECONDS.toNanos(gapTimeoutSeconds);
+        this.retention = Duration.ofHours(retentionHours);
+        this.lag = Timer.builder("users.outbox.lag")
+                .description("Time from writing a user change to handling it on this instance")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.handledEvents = meterRegistry.counter("users.outbox.handled");
+        this.backlog = meterRegistry.gauge("users.outbox.backlog", new AtomicLong());
+        this.missingEvents = meterRegistry.gauge("users.outbox.missing", new AtomicLong());
+        this.nanoClock = nanoClock;
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.poll-interval-millis:200}")
+    public synchronized void poll() {
+        if (cursor == null) {
+            cursor = new OutboxCursor(userOutboxRepository.findMaxId());
+            log.info("Outbox polling starts after event {}", cursor.watermark());
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        List<UserOutboxEvent> events = new ArrayList<>();
+        List<Long> missingIds = cursor.missingIds(batchSize);
+        if (!missingIds.isEmpty()) {
+            events.addAll(userOutboxRepository.findAllById(missingIds));
+            events.sort(Comparator.comparing(UserOutboxEvent::getId));
+        }
+        List<UserOutboxEvent> fresh = userOutboxRepository.findAllAfter(cursor.highestSeen(), PageRequest.of(0, batchSize));
+        events.addAll(fresh);
+        if (!events.isEmpty()) {
+            LocalDateTime handledAt = timeService.utcNow();
+            events.stream().filter(event -> cursor.markHandled(event.getId())).forEach(event -> handle(event, handledAt));
+        }
+        cursor.advance(now, gapTimeoutNanos);
+        backlog.set(fresh.size() < batchSize ? 0 : userOutboxRepository.findMaxId() - cursor.highestSeen());
+        missingEvents.set(cursor.missingCount());
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.purge-interval-millis:60000}")
+    public void purge() {
+        int purged = userOutboxRepository.deleteAllCreatedBefore(timeService.utcNow().minus(retention));
+        log.debug("purge removed {} outbox events", purged);
+    }
+
+    private void handle(UserOutboxEvent event, LocalDateTime handledAt) {
+        log.debug("handle {}", event);
+        try {
+            eventPublisher.publishEvent(new UserChangedEvent(
+                    event.getUserId(),
+                    event.getChangeType(),
+                    event.getPreviousBirthDate(),
+                    event.getBirthDate(),
+                    event.getCreatedAt(),
+                    userOutboxService.getNodeId().equals(event.getNodeId())
+            ));
+        } catch (RuntimeException e) {
+            log.error("Listener failed to handle outbox event {}", event, e);
+        }
+        handledEvents.increment();
+        Duration eventLag = Duration.between(event.getCreatedAt(), handledAt);
+        lag.record(eventLag.isNegative() ? Duration.ZERO : eventLag);
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.transaction.Transactional;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.entity.UserChangeType;
+import org.example.clearsolutionstest.entity.UserOutboxEvent;
+import org.example.clearsolutionstest.repository.UserOutboxRepository;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserOutboxService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Service
+@Transactional(Transactional.TxType.MANDATORY)
+@Slf4j
+public class UserOutboxServiceImpl implements UserOutboxService {
+
+    private static final ThreadLocal<Boolean> SUPPRESSED = new ThreadLocal<>();
+
+    private final UserOutboxRepository userOutboxRepository;
+
+    private final TimeService timeService;
+
+    @Getter
+    private final String nodeId;
+
+    public UserOutboxServiceImpl(UserOutboxRepository userOutboxRepository, TimeService timeService,
+                                 @Value("${application.node-id:${random.uuid}}") String nodeId) {
+        this.userOutboxRepository = userOutboxRepository;
+        this.timeService = timeService;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void record(UserChangeType changeType, UUID userId, LocalDate previousBirthDate, LocalDate birthDate) {
+        log.debug("record {}, {}, {}, {}", changeType, userId, previousBirthDate, birthDate);
+        if (SUPPRESSED.get() != null) {
+            log.debug("end record suppressed");
+            return;
+        }
+        UserOutboxEvent event = userOutboxRepository.save(UserOutboxEvent.builder()
+                .withUserId(userId)
+                .withChangeType(changeType)
+                .withPreviousBirthDate(previousBirthDate)
+                .withBirthDate(birthDate)
+                .withNodeId(nodeId)
+                .withCreatedAt(timeService.utcNow())
+                .build());
+        log.debug("end record {}", event);
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public void runWithoutRecording(Runnable work) {
+        SUPPRESSED.set(Boolean.TRUE);
+        try {
+            work.run();
+        } finally {
+            SUPPRESSED.remove();
+        }
+    }
+
+}
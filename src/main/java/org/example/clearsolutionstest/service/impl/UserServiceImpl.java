@@ -1,27 +1,57 @@
 package org.example.clearsolutionstest.service.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.clearsolutionstest.dto.CreateUserDto;
 import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
 import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.dto.UserCountDto;
 import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserChangeType;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.exception.EmailAlreadyExistsException;
+import org.example.clearsolutionstest.exception.InvalidDateRangeException;
+import org.example.clearsolutionstest.exception.UserNotFoundException;
+import org.example.clearsolutionstest.jfr.UserOperationEvent;
 import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.repository.UserTombstoneRepository;
+import org.example.clearsolutionstest.service.UserCountService;
+import org.example.clearsolutionstest.service.UserOutboxService;
+import org.example.clearsolutionstest.service.TimeService;
 import org.example.clearsolutionstest.service.UserService;
+import org.example.clearsolutionstest.service.UserWrittenEvent;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "application.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
 @Transactional
 @Slf4j
 public class UserServiceImpl implements UserService {
@@ -30,12 +60,61 @@ public class UserServiceImpl implements UserService {
 
     private final ModelMapper modelMapper;
 
+    private final TimeService timeService;
+
+    private final UserOutboxService userOutboxService;
+
+    private final UserCountService userCountService;
+
+    private final UserTombstoneRepository userTombstoneRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int multiGetBatchSize;
+
+    private final UserChangeFeed changeFeed;
+
+    private final long indexOrderMinDays;
+
+    private final SingleFlight<BirthDateRangeQuery, List<User>> birthDateRangeQueries =
+            new SingleFlight<>(BirthDateRangeQuery.SHARE_ROWS);
+
+    public UserServiceImpl(UserRepository userRepository, ModelMapper modelMapper,
+                           UserOutboxService userOutboxService, UserCountService userCountService,
+                           TimeService timeService, MeterRegistry meterRegistry,
+                           UserTombstoneRepository userTombstoneRepository, ApplicationEventPublisher eventPublisher,
+                           @Value("${application.multi-get.batch-size:500}") int multiGetBatchSize,
+                           @Value("${application.change-feed.settle-millis:2000}") long changeFeedSettleMillis,
+                           @Value("${application.change-feed.tombstone-retention-days:30}") long tombstoneRetentionDays,
+                           @Value("${application.sort.index-order-min-days:31}") long indexOrderMinDays) {
+        this.userRepository = userRepository;
+        this.modelMapper = modelMapper;
+        this.userOutboxService = userOutboxService;
+        this.userCountService = userCountService;
+        this.timeService = timeService;
+        this.userTombstoneRepository = userTombstoneRepository;
+        this.eventPublisher = eventPublisher;
+        this.multiGetBatchSize = multiGetBatchSize;
+        this.changeFeed = new UserChangeFeed(Duration.ofMillis(changeFeedSettleMillis),
+                Duration.ofDays(tombstoneRetentionDays));
+        this.indexOrderMinDays = indexOrderMinDays;
+        birthDateRangeQueries.bindTo(meterRegistry, BirthDateRangeQuery.SINGLE_FLIGHT_NAME);
+    }
+
     @Override
     public UUID createUser(@Valid @NotNull CreateUserDto createUserDto) {
         log.debug("createUser {}", createUserDto);
+        UserOperationEvent event = UserOperationEvent.start("createUser");
         User user = modelMapper.map(createUserDto, User.class);
+        LocalDateTime now = timeService.utcNow();
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
         UUID id = userRepository.save(user).getId();
         log.debug("createUser saved {}", user);
+        userOutboxService.record(UserChangeType.CREATED, id, null, user.getBirthDate());
+        userCountService.recordChange(null, user.getBirthDate());
+        eventPublisher.publishEvent(new UserWrittenEvent(id, null, user.getBirthDate()));
+        event.finish(1);
         log.debug("end createUser {}", id);
         return id;
     }
@@ -43,16 +122,18 @@ public class UserServiceImpl implements UserService {
     @Override
     public void updateUser(@NotNull UUID id, @Valid @NotNull UpdateUserDto updateUserDto) {
         log.debug("updateUser {}, {}", id, updateUserDto);
+        UserOperationEvent event = UserOperationEvent.start("updateUser");
         User user = userRepository.findById(id).orElseThrow(() -> {
-                    IllegalArgumentException ex = new IllegalArgumentException("User with id '%s' not found".formatted(id));
+                    UserNotFoundException ex = new UserNotFoundException(id);
                     log.debug("updateUser", ex);
                     return ex;
         }
         );
+        LocalDate previousBirthDate = user.getBirthDate();
         String email = updateUserDto.getEmail();
         if (email != null) {
             userRepository.findByEmail(email).ifPresent(existingUser -> {
-                IllegalArgumentException ex = new IllegalArgumentException("User with email %s already exist".formatted(existingUser.getEmail()));
+                EmailAlreadyExistsException ex = new EmailAlreadyExistsException(existingUser.getEmail());
                 log.debug("updateUser", ex);
                 throw ex;
             });
@@ -84,30 +165,190 @@ public class UserServiceImpl implements UserService {
             user.setPhoneNumber(phoneNumber);
             log.debug("updateUser user {} phoneNumber = {}", id, phoneNumber);
         }
+        user.setUpdatedAt(timeService.utcNow());
+        userOutboxService.record(UserChangeType.UPDATED, id, previousBirthDate, user.getBirthDate());
+        userCountService.recordChange(previousBirthDate, user.getBirthDate());
+        eventPublisher.publishEvent(new UserWrittenEvent(id, previousBirthDate, user.getBirthDate()));
+        event.finish(1);
         log.debug("end updateUser");
     }
 
     @Override
     public void deleteUser(@NotNull UUID id) {
         log.debug("deleteUser {}", id);
-        userRepository.deleteById(id);
+        UserOperationEvent event = UserOperationEvent.start("deleteUser");
+        Optional<User> user = userRepository.findById(id);
+        // Deletes the loaded user, deleteById would look it up again
+        user.ifPresent(userRepository::delete);
         log.debug("deleteUser deleted {}", id);
+        user.ifPresent(deleted -> {
+            userTombstoneRepository.record(id, timeService.utcNow());
+            userOutboxService.record(UserChangeType.DELETED, id, deleted.getBirthDate(), null);
+            userCountService.recordChange(deleted.getBirthDate(), null);
+            eventPublisher.publishEvent(new UserWrittenEvent(id, deleted.getBirthDate(), null));
+        });
+        event.finish(user.isPresent() ? 1 : 0);
         log.debug("end deleteUser");
     }
 
     @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
     public List<GetUserDto> findAllByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
-                                                    @NotNull Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+                                                    @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
         log.debug("findAllByBirthDateRange {}, {}, {}, {}", from, to, pageIndex, pageIndex);
-        if (from.isAfter(to)) {
-            IllegalArgumentException ex = new IllegalArgumentException("From date is after to date");
-            log.debug("findAllByBirthDateRange", ex);
-            throw ex;
-        }
-        List<GetUserDto> list = userRepository.getAllByBirthDateRange(from, to, PageRequest.of(pageIndex, pageSize)).stream()
+        UserOperationEvent event = UserOperationEvent.start("findAllByBirthDateRange", pageSize);
+        List<GetUserDto> list = rowsByBirthDateRange(from, to, pageIndex, pageSize, UserField.ALL, UserSort.BIRTH_DATE)
+                .stream()
                 .map(user -> modelMapper.map(user, GetUserDto.class))
                 .toList();
+        event.finish(list.size());
         log.debug("end findAllByBirthDateRange {}", list);
         return list;
     }
+
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public List<User> findRowsByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                               @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+        log.debug("findRowsByBirthDateRange {}, {}, {}, {}", from, to, pageIndex, pageSize);
+        UserOperationEvent event = UserOperationEvent.start("findRowsByBirthDateRange", pageSize);
+        List<User> rows = rowsByBirthDateRange(from, to, pageIndex, pageSize, UserField.ALL, UserSort.BIRTH_DATE);
+        event.finish(rows.size());
+        log.debug("end findRowsByBirthDateRange {}", rows.size());
+        return rows;
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public List<User> findFieldsByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to,
+                                                 @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize,
+                                                 @NotEmpty Set<UserField> fields, @NotNull UserSort sort) {
+        log.debug("findFieldsByBirthDateRange {}, {}, {}, {}, {}, {}", from, to, pageIndex, pageSize, fields, sort);
+        UserOperationEvent event = UserOperationEvent.start("findFieldsByBirthDateRange", pageSize);
+        List<User> rows = rowsByBirthDateRange(from, to, pageIndex, pageSize, fields, sort);
+        event.finish(rows.size());
+        log.debug("end findFieldsByBirthDateRange {}", rows.size());
+        return rows;
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public UserCountDto countByBirthDateRange(@NotNull LocalDate from, @NotNull LocalDate to) {
+        return userCountService.countByBirthDateRange(from, to);
+    }
+
+    @Override
+    public List<GetUserDto> findUpcomingBirthdays(@NotNull @Min(1) @Max(366) Integer days,
+                                                  @NotNull @Min(0) Integer pageIndex, @NotNull @Max(500) Integer pageSize) {
+        log.debug("findUpcomingBirthdays {}, {}, {}", days, pageIndex, pageSize);
+        UserOperationEvent event = UserOperationEvent.start("findUpcomingBirthdays", pageSize);
+        BirthdayWindow window = BirthdayWindow.of(timeService.utcNow().toLocalDate(), days);
+        List<GetUserDto> list = window.page((long) pageIndex * pageSize, pageSize, new BirthdayWindow.RangeSource() {
+
+            @Override
+            public List<User> fetch(BirthdayWindow.MonthDayRange range, long offset, int limit) {
+                return userRepository.getAllByBirthMonthDayRange(range.from(), range.to(), offset, limit);
+            }
+
+            @Override
+            public long count(BirthdayWindow.MonthDayRange range) {
+                return userRepository.countByBirthMonthDayRange(range.from(), range.to());
+            }
+
+        }).stream()
+                .map(user -> modelMapper.map(user, GetUserDto.class))
+                .toList();
+        event.finish(list.size());
+        log.debug("end findUpcomingBirthdays {}", list);
+        return list;
+    }
+
+    @Override
+    public List<MultiGetUserResultDto> findAllByIds(@Valid @NotNull MultiGetUsersDto multiGetUsersDto) {
+        List<UUID> ids = multiGetUsersDto.getIds();
+        log.debug("findAllByIds {} ids", ids.size());
+        UserOperationEvent event = UserOperationEvent.start("findAllByIds", ids.size());
+        List<User> users = userRepository.findAllByIdInOrder(ids, multiGetBatchSize);
+        List<MultiGetUserResultDto> results = new ArrayList<>(ids.size());
+        int found = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            User user = users.get(i);
+            if (user == null) {
+                results.add(new MultiGetUserResultDto(ids.get(i), false, null));
+            } else {
+                results.add(new MultiGetUserResultDto(ids.get(i), true, modelMapper.map(user, GetUserDto.class)));
+                found++;
+            }
+        }
+        event.finish(found);
+        log.debug("end findAllByIds {} found", found);
+        return results;
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public UserChangesDto findChangesSince(@NotNull LocalDateTime since, @Nullable UUID afterId,
+                                           @NotNull @Min(1) @Max(500) Integer pageSize) {
+        log.debug("findChangesSince {}, {}, {}", since, afterId, pageSize);
+        UserOperationEvent event = UserOperationEvent.start("findChangesSince", pageSize);
+        LocalDateTime now = timeService.utcNow();
+        changeFeed.requireRetained(since, now);
+        UUID after = afterId == null ? UserChangeFeed.FIRST_ID : afterId;
+        LocalDateTime until = changeFeed.until(now);
+        UserChangesDto changes = UserChangeFeed.page(since, afterId, pageSize,
+                userRepository.findChangedSince(since, after, until, pageSize),
+                userTombstoneRepository.findDeletedSince(since, after, until, pageSize),
+                user -> modelMapper.map(user, GetUserDto.class));
+        event.finish(changes.getChanges().size());
+        log.debug("end findChangesSince {} changes", changes.getChanges().size());
+        return changes;
+    }
+
+    @Scheduled(fixedDelayString = "${application.change-feed.purge-interval-millis:3600000}")
+    public void purgeTombstones() {
+        int purged = userTombstoneRepository.deleteAllDeletedBefore(changeFeed.oldestRetained(timeService.utcNow()));
+        log.debug("purgeTombstones removed {} tombstones", purged);
+    }
+
+    /**
+     * Identical concurrent calls share one query. Callers run without a transaction of their own, so callers waiting
+     * for a shared query do not hold database connections. All fields are loaded as entities, which are also in the
+     * entity cache, fewer fields as a projection. Pages in another order than the birth date read the index of
+     * that order when the count snapshot says it reads less than the planner's range scan.
+     */
+    private List<User> rowsByBirthDateRange(LocalDate from, LocalDate to, int pageIndex, int pageSize,
+                                            Set<UserField> fields, UserSort sort) {
+        if (from.isAfter(to)) {
+            InvalidDateRangeException ex = new InvalidDateRangeException(from, to);
+            log.debug("findAllByBirthDateRange", ex);
+            throw ex;
+        }
+        PageRequest pageable = PageRequest.of(pageIndex, pageSize, sort.getSort());
+        return birthDateRangeQueries.execute(new BirthDateRangeQuery(from, to, pageIndex, pageSize, fields, sort),
+                () -> {
+                    if (sort != UserSort.BIRTH_DATE && scansIndexInOrder(from, to, pageable, sort)) {
+                        return userRepository.getFieldsByBirthDateRangeInIndexOrder(from, to, fields, sort, pageable);
+                    }
+                    return fields.containsAll(UserField.ALL)
+                            ? userRepository.getAllByBirthDateRange(from, to, pageable)
+                            : userRepository.getFieldsByBirthDateRange(from, to, fields, pageable);
+                });
+    }
+
+    /**
+     * Ranges shorter than {@code application.sort.index-order-min-days} hold too few users for an ordered scan to
+     * stop early and are not checked. Counts come from the snapshot, so the check runs no query, and without a
+     * snapshot the range is scanned.
+     */
+    private boolean scansIndexInOrder(LocalDate from, LocalDate to, PageRequest pageable, UserSort sort) {
+        if (ChronoUnit.DAYS.between(from, to) < indexOrderMinDays) {
+            return false;
+        }
+        OptionalLong usersInRange = userCountService.countFromSnapshot(from, to);
+        OptionalLong users = userCountService.countFromSnapshot(LocalDate.MIN, LocalDate.MAX);
+        return usersInRange.isPresent() && users.isPresent()
+               && sort.scansIndexInOrder(pageable.getOffset() + pageable.getPageSize(), usersInRange.getAsLong(),
+                users.getAsLong());
+    }
+
 }
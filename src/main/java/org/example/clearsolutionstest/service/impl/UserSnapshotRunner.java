@@ -0,0 +1,59 @@
+package org.example.clearsolutionstest.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.service.UserSnapshotService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Restores users from {@code application.snapshot.restore-from} before the application starts serving, or writes
+ * them to {@code application.snapshot.export-to} and exits. Runs before the other runners, so the seeder adds to the
+ * restored users.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class UserSnapshotRunner implements ApplicationRunner {
+
+    private final UserSnapshotService userSnapshotService;
+
+    private final ConfigurableApplicationContext context;
+
+    private final String restoreFrom;
+
+    private final String exportTo;
+
+    public UserSnapshotRunner(UserSnapshotService userSnapshotService, ConfigurableApplicationContext context,
+                              @Value("${application.snapshot.restore-from:}") String restoreFrom,
+                              @Value("${application.snapshot.export-to:}") String exportTo) {
+        this.userSnapshotService = userSnapshotService;
+        this.context = context;
+        this.restoreFrom = restoreFrom;
+        this.exportTo = exportTo;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!restoreFrom.isBlank()) {
+            long started = System.nanoTime();
+            long restored = userSnapshotService.restore(Path.of(restoreFrom));
+            log.info("Restored {} users from {} in {}", restored, restoreFrom, Duration.ofNanos(System.nanoTime() - started));
+        }
+        if (!exportTo.isBlank()) {
+            long started = System.nanoTime();
+            long exported = userSnapshotService.export(Path.of(exportTo));
+            log.info("Exported {} users to {} in {}", exported, exportTo, Duration.ofNanos(System.nanoTime() - started));
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.repository.UserBulkLoader;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.repository.UserSnapshotFile;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserCountService;
+import org.example.clearsolutionstest.service.UserSnapshotService;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Snapshots are written with one streaming query and restored by decoding the memory mapped blocks of the file in
+ * parallel, each thread loading its blocks with JDBC batches.
+ */
+@Service
+@Slf4j
+public class UserSnapshotServiceImpl implements UserSnapshotService {
+
+    private static final int READ_FETCH_SIZE = 10_000;
+
+    private final UserBulkLoader userBulkLoader;
+
+    private final UserRepository userRepository;
+
+    private final UserCountService userCountService;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final TimeService timeService;
+
+    private final int batchSize;
+
+    private final int threads;
+
+    public UserSnapshotServiceImpl(UserBulkLoader userBulkLoader, UserRepository userRepository,
+                                   UserCountService userCountService, EntityManagerFactory entityManagerFactory,
+                                   TimeService timeService,
+                                   @Value("${application.snapshot.batch-size:5000}") int batchSize,
+                                   @Value("${application.snapshot.threads:0}") int threads) {
+        this.userBulkLoader = userBulkLoader;
+        this.userRepository = userRepository;
+        this.userCountService = userCountService;
+        this.entityManagerFactory = entityManagerFactory;
+        this.timeService = timeService;
+        this.batchSize = batchSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public long export(Path path) {
+        log.debug("export {}", path);
+        long exported;
+        try (UserSnapshotFile.Writer writer = UserSnapshotFile.create(path)) {
+            userBulkLoader.readAll(writer::add, READ_FETCH_SIZE);
+            exported = writer.users();
+        }
+        log.debug("end export {}", exported);
+        return exported;
+    }
+
+    @Override
+    public long restore(Path path) {
+        log.debug("restore {}", path);
+        if (userRepository.count() > 0) {
+            IllegalStateException ex = new IllegalStateException("Users can only be restored into an empty table");
+            log.debug("restore", ex);
+            throw ex;
+        }
+        // Snapshots keep no change times, restored users are all changed now
+        LocalDateTime restoredAt = timeService.utcNow();
+        List<UserSnapshotFile.Block> blocks = UserSnapshotFile.mapBlocks(path);
+        List<Callable<Long>> tasks = blocks.stream()
+                .map(block -> (Callable<Long>) () -> userBulkLoader.load(block.iterator(), batchSize, restoredAt))
+                .toList();
+        long restored = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                restored += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw removeRestored(blocks, new IllegalStateException("Interrupted while restoring " + path, e));
+        } catch (ExecutionException e) {
+            throw removeRestored(blocks, new IllegalStateException("Failed to restore " + path, e.getCause()));
+        } finally {
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        }
+        userCountService.rebuild();
+        log.debug("end restore {}", restored);
+        return restored;
+    }
+
+    /**
+     * Loaders commit per batch, so a failed restore left the batches committed before the failure behind, and a
+     * retry would fail on the table not being empty. Every task has finished by now, so deleting all ids of the
+     * snapshot leaves the table as empty as it was.
+     */
+    private IllegalStateException removeRestored(List<UserSnapshotFile.Block> blocks, IllegalStateException ex) {
+        log.debug("restore", ex);
+        try {
+            long removed = 0;
+            for (UserSnapshotFile.Block block : blocks) {
+                removed += userBulkLoader.delete(block.iterator(), batchSize);
+            }
+            log.debug("restore removed {} users of the failed restore", removed);
+        } catch (RuntimeException e) {
+            ex.addSuppressed(e);
+        }
+        return ex;
+    }
+
+}
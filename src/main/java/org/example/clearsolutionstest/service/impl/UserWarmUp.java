@@ -0,0 +1,219 @@
+package org.example.clearsolutionstest.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserOutboxService;
+import org.example.clearsolutionstest.service.UserService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Exercises the create, update and range query paths before the instance reports ready, so the JIT compiled them
+ * before real traffic arrives, then loads the configured hot ranges into the caches. Writes go to a scratch dataset
+ * in transactions that are rolled back, nothing of it is committed, and it is not recorded in the outbox, so it
+ * uses up no outbox ids the poller would wait for. The latency of a probe query and a probe create before and after
+ * the warm-up is logged.
+ * <p>
+ * Runs as the last {@link ApplicationReadyEvent} listener, after the columnar store was loaded. Readiness is only
+ * reported once all of them returned.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.warm-up", name = "enabled", havingValue = "true")
+@Slf4j
+public class UserWarmUp {
+
+    /**
+     * Far above any index the seeder uses, so scratch emails never collide with real ones.
+     */
+    private static final long SCRATCH_FIRST_INDEX = 1L << 60;
+
+    private final UserService userService;
+
+    private final ObjectProvider<UserServiceImpl> writeService;
+
+    private final UserOutboxService userOutboxService;
+
+    private final TransactionTemplate rollbackOnly;
+
+    private final ObjectMapper objectMapper;
+
+    private final SyntheticUserGenerator generator;
+
+    private final Duration maxDuration;
+
+    private final int iterations;
+
+    private final int usersPerIteration;
+
+    private final List<String> hotRanges;
+
+    private final int hotPages;
+
+    private final int probeSamples;
+
+    private long nextScratchIndex = SCRATCH_FIRST_INDEX;
+
+    public UserWarmUp(UserService userService, ObjectProvider<UserServiceImpl> writeService,
+                      UserOutboxService userOutboxService, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                      TimeService timeService,
+                      @Value("${application.warm-up.max-duration-seconds:30}") long maxDurationSeconds,
+                      @Value("${application.warm-up.iterations:2000}") int iterations,
+                      @Value("${application.warm-up.users-per-iteration:5}") int usersPerIteration,
+                      @Value("${application.warm-up.hot-ranges:}") List<String> hotRanges,
+                      @Value("${application.warm-up.hot-pages:3}") int hotPages,
+                      @Value("${application.warm-up.probe-samples:50}") int probeSamples) {
+        this.userService = userService;
+        this.writeService = writeService;
+        this.userOutboxService = userOutboxService;
+        this.rollbackOnly = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.generator = new SyntheticUserGenerator(System.nanoTime(), timeService.utcNow().toLocalDate());
+        this.maxDuration = Duration.ofSeconds(maxDurationSeconds);
+        this.iterations = iterations;
+        this.usersPerIteration = usersPerIteration;
+        this.hotRanges = hotRanges;
+        this.hotPages = hotPages;
+        this.probeSamples = probeSamples;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void warmUp() {
+        userOutboxService.runWithoutRecording(this::run);
+    }
+
+    private void run() {
+        UserServiceImpl writes = writeService.getIfAvailable();
+        if (writes == null) {
+            log.info("Write paths are not warmed up, they can not be rolled back with sharding");
+        }
+        Latency queryBefore = probe(this::probeQuery);
+        Latency createBefore = writes == null ? null : probe(() -> probeCreate(writes));
+        long started = System.nanoTime();
+        long deadline = started + maxDuration.toNanos();
+        int done = 0;
+        while (done < iterations && System.nanoTime() < deadline) {
+            if (writes != null) {
+                rollbackOnly.executeWithoutResult(status -> {
+                    exerciseWrites(writes);
+                    status.setRollbackOnly();
+                });
+            } else {
+                probeQuery();
+            }
+            done++;
+        }
+        Duration took = Duration.ofNanos(System.nanoTime() - started);
+        primeHotRanges();
+        Latency queryAfter = probe(this::probeQuery);
+        log.info("Warm-up ran {} iterations in {}, range query latency p50 {} -> {} us, max {} -> {} us",
+                done, took, queryBefore.p50Micros(), queryAfter.p50Micros(), queryBefore.maxMicros(), queryAfter.maxMicros());
+        if (writes != null) {
+            Latency createAfter = probe(() -> probeCreate(writes));
+            log.info("Warm-up create latency p50 {} -> {} us, max {} -> {} us",
+                    createBefore.p50Micros(), createAfter.p50Micros(), createBefore.maxMicros(), createAfter.maxMicros());
+        }
+    }
+
+    /**
+     * Creates users, updates them and queries their birth dates, in the caller's transaction.
+     */
+    private void exerciseWrites(UserServiceImpl writes) {
+        LocalDate from = LocalDate.MAX;
+        LocalDate to = LocalDate.MIN;
+        for (int i = 0; i < usersPerIteration; i++) {
+            User user = nextScratchUser();
+            UUID id = writes.createUser(new CreateUserDto(user.getEmail(), user.getFirstName(), user.getLastName(),
+                    user.getBirthDate(), user.getAddress(), user.getPhoneNumber()));
+            writes.updateUser(id, new UpdateUserDto(null, user.getLastName(), user.getFirstName(), null,
+                    null, user.getPhoneNumber()));
+            from = user.getBirthDate().isBefore(from) ? user.getBirthDate() : from;
+            to = user.getBirthDate().isAfter(to) ? user.getBirthDate() : to;
+        }
+        serialize(userService.findAllByBirthDateRange(from, to, 0, 50));
+        userService.countByBirthDateRange(from, to);
+    }
+
+    private void primeHotRanges() {
+        for (String range : hotRanges) {
+            String[] bounds = range.trim().split("/");
+            LocalDate from = LocalDate.parse(bounds[0]);
+            LocalDate to = LocalDate.parse(bounds[1]);
+            for (int page = 0; page < hotPages; page++) {
+                serialize(userService.findAllByBirthDateRange(from, to, page, 50));
+            }
+            userService.countByBirthDateRange(from, to);
+        }
+    }
+
+    private void probeQuery() {
+        LocalDate from = nextScratchUser().getBirthDate();
+        serialize(userService.findAllByBirthDateRange(from, from.plusYears(1), 0, 50));
+    }
+
+    private void probeCreate(UserServiceImpl writes) {
+        rollbackOnly.executeWithoutResult(status -> {
+            User user = nextScratchUser();
+            writes.createUser(new CreateUserDto(user.getEmail(), user.getFirstName(), user.getLastName(),
+                    user.getBirthDate(), user.getAddress(), user.getPhoneNumber()));
+            status.setRollbackOnly();
+        });
+    }
+
+    private Latency probe(Runnable operation) {
+        long[] samples = new long[probeSamples];
+        for (int i = 0; i < probeSamples; i++) {
+            long started = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(samples);
+        return new Latency(samples);
+    }
+
+    private User nextScratchUser() {
+        return generator.generate(nextScratchIndex++);
+    }
+
+    private void serialize(List<GetUserDto> users) {
+        try {
+            objectMapper.writeValueAsBytes(users);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize users", e);
+        }
+    }
+
+    private record Latency(long[] sortedNanos) {
+
+        private long p50Micros() {
+            return sortedNanos.length == 0 ? 0 : sortedNanos[sortedNanos.length / 2] / 1_000;
+        }
+
+        private long maxMicros() {
+            return sortedNanos.length == 0 ? 0 : sortedNanos[sortedNanos.length - 1] / 1_000;
+        }
+
+    }
+
+}
@@ -0,0 +1,32 @@
+create table if not exists users
+(
+    id              uuid         not null primary key,
+    email           varchar(500) not null,
+    first_name      varchar(100) not null,
+    last_name       varchar(100) not null,
+    birth_date      date         not null,
+    birth_month_day int          not null,
+    address         varchar(200),
+    phone_number    varchar(18),
+    created_at      timestamp,
+    updated_at      timestamp,
+    constraint users_email_key unique (email)
+);
+
+create index if not exists users_birth_date_id_idx on users (birth_date, id);
+
+create index if not exists users_last_name_id_birth_date_idx on users (last_name, id, birth_date);
+
+create index if not exists users_email_id_birth_date_idx on users (email, id, birth_date);
+
+create index if not exists users_birth_month_day_id_idx on users (birth_month_day, id);
+
+create index if not exists users_updated_at_id_idx on users (updated_at, id);
+
+create table if not exists user_tombstones
+(
+    user_id    uuid      not null primary key,
+    deleted_at timestamp not null
+);
+
+create index if not exists user_tombstones_deleted_at_user_id_idx on user_tombstones (deleted_at, user_id);
@@ -0,0 +1,266 @@
+package org.example.clearsolutionstest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.servlet.FilterChain;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.config.AdmissionControlProperties;
+import org.example.clearsolutionstest.config.Workload;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlFilterTest {
+
+    AtomicLong nanoClock = new AtomicLong();
+
+    AtomicInteger threadsAwaitingConnection = new AtomicInteger();
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AdmissionControlFilter filter(AdmissionControlProperties properties) {
+        return new AdmissionControlFilter(properties, threadsAwaitingConnection::get,
+                () -> LocalDateTime.of(2024, 1, 1, 0, 0), new ObjectMapper().registerModule(new JavaTimeModule()),
+                meterRegistry, nanoClock::get);
+    }
+
+    @Test
+    void doFilter_shouldReturnTooManyRequests_ifClientExceededEndpointBurst() {
+        //given
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        properties.setEndpoints(Map.of("create-user", new AdmissionControlProperties.RateLimit(1, 2)));
+        AdmissionControlFilter filter = filter(properties);
+        //when
+        MockHttpServletResponse first = send(filter, post("client-a"));
+        MockHttpServletResponse second = send(filter, post("client-a"));
+        MockHttpServletResponse third = send(filter, post("client-a"));
+        MockHttpServletResponse otherClient = send(filter, post("client-b"));
+        //then
+        assertEquals(HttpStatus.OK.value(), first.getStatus());
+        assertEquals(HttpStatus.OK.value(), second.getStatus());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), third.getStatus());
+        assertEquals("1", third.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(HttpStatus.OK.value(), otherClient.getStatus(), "Clients should have separate buckets");
+        assertEquals(1, rejected("rate-limit", "write"));
+        //when
+        nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        //then
+        assertEquals(HttpStatus.OK.value(), send(filter, post("client-a")).getStatus(), "Bucket should refill");
+    }
+
+    @Test
+    void doFilter_shouldLimitClientByRemoteAddress_ifItRotatesClientKeys() {
+        //given
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        properties.setEndpoints(Map.of("create-user", new AdmissionControlProperties.RateLimit(1, 2)));
+        AdmissionControlFilter filter = filter(properties);
+        List<Integer> statuses = new ArrayList<>();
+        //when
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = post("client-a");
+            request.addHeader("X-Client-Key", "key-" + i);
+            statuses.add(send(filter, request).getStatus());
+        }
+        //then
+        assertEquals(List.of(HttpStatus.OK.value(), HttpStatus.OK.value(), HttpStatus.TOO_MANY_REQUESTS.value()),
+                statuses);
+    }
+
+    @Test
+    void doFilter_shouldLimitByClientKey_ifRequestComesFromTrustedProxy() {
+        //given
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        properties.setEndpoints(Map.of("create-user", new AdmissionControlProperties.RateLimit(1, 1)));
+        properties.setTrustedProxies(Set.of("proxy"));
+        AdmissionControlFilter filter = filter(properties);
+        MockHttpServletRequest first = post("proxy");
+        first.addHeader("X-Client-Key", "client-a");
+        MockHttpServletRequest second = post("proxy");
+        second.addHeader("X-Client-Key", "client-b");
+        MockHttpServletRequest retry = post("proxy");
+        retry.addHeader("X-Client-Key", "client-a");
+        //then
+        assertEquals(HttpStatus.OK.value(), send(filter, first).getStatus());
+        assertEquals(HttpStatus.OK.value(), send(filter, second).getStatus(), "Clients should have separate buckets");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), send(filter, retry).getStatus());
+        assertEquals("client-b", AdmissionControlFilter.admittedClientOf(second),
+                "Controllers should see the client the request was admitted for");
+    }
+
+    @Test
+    void doFilter_shouldChargeRangeQueriesByPageSize() {
+        //given
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        properties.setEndpoints(Map.of("list-users", new AdmissionControlProperties.RateLimit(1, 10)));
+        AdmissionControlFilter filter = filter(properties);
+        MockHttpServletRequest bigPage = get("client-a");
+        bigPage.setParameter("pageSize", "500");
+        //then
+        assertEquals(HttpStatus.OK.value(), send(filter, bigPage).getStatus());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), send(filter, get("client-a")).getStatus());
+    }
+
+    @Test
+    void doFilter_shouldShedReadsButAdmitWrites_ifConnectionPoolIsSaturated() {
+        //given
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        AdmissionControlFilter filter = filter(properties);
+        threadsAwaitingConnection.set(properties.getMaxThreadsAwaitingConnection() + 1);
+        //when
+        MockHttpServletResponse read = send(filter, get("client-a"));
+        MockHttpServletResponse write = send(filter, post("client-a"));
+        //then
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), read.getStatus());
+        assertNotNull(read.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(HttpStatus.OK.value(), write.getStatus());
+        assertEquals(1, rejected("pool-saturation", "read"));
+    }
+
+    @Test
+    @SneakyThrows
+    void doFilter_shouldShed_ifNoSlotFreesUpWithinMaxQueueWait() {
+        //given
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        properties.setReads(new AdmissionControlProperties.Bulkhead(1, Duration.ofMillis(10)));
+        AdmissionControlFilter filter = filter(properties);
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+        FilterChain chain = (request, response) -> nested[0] = send(filter, get("client-b"));
+        //when
+        MockHttpServletResponse outer = new MockHttpServletResponse();
+        filter.doFilter(get("client-a"), outer, chain);
+        //then
+        assertEquals(HttpStatus.OK.value(), outer.getStatus());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), nested[0].getStatus());
+        assertTrue(nested[0].getContentAsString().contains("overloaded"), "Body should explain the rejection");
+        assertEquals(HttpStatus.OK.value(), send(filter, get("client-b")).getStatus(), "Slot should be released");
+    }
+
+    @Test
+    @SneakyThrows
+    void doFilter_shouldAdmitWrites_ifAllReadSlotsAreTaken() {
+        //given
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        properties.setReads(new AdmissionControlProperties.Bulkhead(1, Duration.ofMillis(10)));
+        properties.setWrites(new AdmissionControlProperties.Bulkhead(1, Duration.ofMillis(10)));
+        AdmissionControlFilter filter = filter(properties);
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[2];
+        FilterChain chain = (request, response) -> {
+            nested[0] = send(filter, get("client-b"));
+            nested[1] = send(filter, post("client-b"));
+        };
+        //when
+        filter.doFilter(get("client-a"), new MockHttpServletResponse(), chain);
+        //then
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), nested[0].getStatus(), "Read slot should be taken");
+        assertEquals(HttpStatus.OK.value(), nested[1].getStatus(), "Writes should have their own slots");
+    }
+
+    @Test
+    @SneakyThrows
+    void doFilter_shouldBindRequestToItsWorkload_whileItRuns() {
+        //given
+        AdmissionControlFilter filter = filter(new AdmissionControlProperties());
+        List<Workload> workloads = new ArrayList<>();
+        FilterChain chain = (request, response) -> workloads.add(Workload.current());
+        MockHttpServletRequest multiGet = new MockHttpServletRequest("POST", AdmissionControlFilter.MULTI_GET_PATH);
+        //when
+        filter.doFilter(post("client-a"), new MockHttpServletResponse(), chain);
+        filter.doFilter(multiGet, new MockHttpServletResponse(), chain);
+        filter.doFilter(get("client-a"), new MockHttpServletResponse(), chain);
+        //then
+        assertEquals(List.of(Workload.WRITE, Workload.READ, Workload.READ), workloads);
+        assertEquals(Workload.WRITE, Workload.current(), "Workload should be cleared after the request");
+    }
+
+    @Test
+    void endpointOf_shouldNameUserEndpoints() {
+        //given
+        MockHttpServletRequest update = new MockHttpServletRequest("PUT", "/api/v1/users/" + UUID.randomUUID());
+        MockHttpServletRequest multiGet = new MockHttpServletRequest("POST", "/api/v1/users/_mget");
+        MockHttpServletRequest changes = new MockHttpServletRequest("GET", "/api/v1/users/changes");
+        MockHttpServletRequest unknown = new MockHttpServletRequest("GET", "/api/v1/other");
+        //then
+        assertEquals("list-users", AdmissionControlFilter.endpointOf(get(null)));
+        assertEquals("update-user", AdmissionControlFilter.endpointOf(update));
+        assertEquals("multi-get-users", AdmissionControlFilter.endpointOf(multiGet));
+        assertEquals("user-changes", AdmissionControlFilter.endpointOf(changes));
+        assertEquals("get /api/v1/other", AdmissionControlFilter.endpointOf(unknown));
+    }
+
+    @Test
+    void endpointOf_shouldNameOtherMethodsOfUserPathsByMethodAndPath() {
+        //given
+        String user = "/api/v1/users/" + UUID.randomUUID();
+        //then
+        assertEquals("create-user", AdmissionControlFilter.endpointOf(post(null)));
+        assertEquals("delete-user", AdmissionControlFilter.endpointOf(new MockHttpServletRequest("DELETE", user)));
+        assertEquals("delete /api/v1/users", AdmissionControlFilter.endpointOf(request("DELETE", null)));
+        assertEquals("get /api/v1/users/_mget",
+                AdmissionControlFilter.endpointOf(new MockHttpServletRequest("GET", "/api/v1/users/_mget")));
+        assertEquals("post /api/v1/users/changes",
+                AdmissionControlFilter.endpointOf(new MockHttpServletRequest("POST", "/api/v1/users/changes")));
+        assertEquals("get " + user, AdmissionControlFilter.endpointOf(new MockHttpServletRequest("GET", user)));
+        assertEquals("put " + user + "/x",
+                AdmissionControlFilter.endpointOf(new MockHttpServletRequest("PUT", user + "/x")));
+    }
+
+    @Test
+    void clientOf_shouldFallBackToRemoteAddress_ifTrustedProxySendsNoClientKey() {
+        //given
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        properties.setTrustedProxies(Set.of("proxy"));
+        MockHttpServletRequest blankKey = post("proxy");
+        blankKey.addHeader("X-Client-Key", " ");
+        //then
+        assertEquals("proxy", AdmissionControlFilter.clientOf(post("proxy"), properties));
+        assertEquals("proxy", AdmissionControlFilter.clientOf(blankKey, properties));
+        assertEquals("client", AdmissionControlFilter.clientOf(post("client"), properties));
+    }
+
+    private double rejected(String reason, String workload) {
+        return meterRegistry.get("users.admission.rejected").tags("reason", reason, "workload", workload).counter().count();
+    }
+
+    @SneakyThrows
+    private static MockHttpServletResponse send(AdmissionControlFilter filter, MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String remoteAddr) {
+        return request("GET", remoteAddr);
+    }
+
+    private static MockHttpServletRequest post(String remoteAddr) {
+        return request("POST", remoteAddr);
+    }
+
+    private static MockHttpServletRequest request(String method, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, AdmissionControlFilter.USERS_PATH);
+        if (remoteAddr != null) {
+            request.setRemoteAddr(remoteAddr);
+        }
+        return request;
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.example.clearsolutionstest.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.exception.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyKeyStoreTest {
+
+    static final String CLIENT = "10.0.0.1";
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    IdempotencyKeyStore store = new IdempotencyKeyStore(meterRegistry, true, 1000, 300);
+
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    AtomicInteger creates = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void createUser_shouldCreateOnce_andReplayRetriesWithSameKey() {
+        //given
+        UUID id = UUID.randomUUID();
+        //when
+        IdempotencyKeyStore.Result first = store.createUser(CLIENT, "key",
+                createUserDto("email@gmail.com"), () -> create(id));
+        IdempotencyKeyStore.Result retry = store.createUser(CLIENT, "key",
+                createUserDto("email@gmail.com"), () -> create(id));
+        IdempotencyKeyStore.Result withoutKey = store.createUser(CLIENT, null,
+                createUserDto("email@gmail.com"), () -> create(id));
+        //then
+        assertEquals(2, creates.get(), "Only the request without key should create again");
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(id, retry.userId());
+        assertFalse(withoutKey.replayed());
+    }
+
+    @Test
+    void createUser_shouldThrowIdempotencyKeyReusedException_ifKeyIsUsedForAnotherUser() {
+        //given
+        store.createUser(CLIENT, "key", createUserDto("email@gmail.com"), () -> create(UUID.randomUUID()));
+        //then
+        assertThrows(IdempotencyKeyReusedException.class, () ->
+                store.createUser(CLIENT, "key", createUserDto("other@gmail.com"), () -> create(UUID.randomUUID())));
+        assertEquals(1, creates.get());
+    }
+
+    @Test
+    void createUser_shouldThrowIllegalArgumentException_ifKeyIsBlankOrTooLong() {
+        //then
+        assertThrows(IllegalArgumentException.class, () ->
+                store.createUser(CLIENT, " ", createUserDto("email@gmail.com"), () -> create(UUID.randomUUID())));
+        assertThrows(IllegalArgumentException.class, () -> store.createUser(CLIENT, "k".repeat(256),
+                createUserDto("email@gmail.com"), () -> create(UUID.randomUUID())));
+        assertEquals(0, creates.get());
+    }
+
+    @Test
+    void createUser_shouldCreateOnEveryCall_ifDisabled() {
+        //given
+        IdempotencyKeyStore disabled = new IdempotencyKeyStore(meterRegistry, false, 1000, 300);
+        //when
+        disabled.createUser(CLIENT, "key", createUserDto("email@gmail.com"), () -> create(UUID.randomUUID()));
+        IdempotencyKeyStore.Result retry = disabled.createUser(CLIENT, "key", createUserDto("email@gmail.com"),
+                () -> create(UUID.randomUUID()));
+        //then
+        assertFalse(retry.replayed());
+        assertEquals(2, creates.get());
+    }
+
+    @Test
+    void createUser_shouldKeepKeysOfClientsApart() {
+        //given
+        UUID id = UUID.randomUUID();
+        store.createUser(CLIENT, "key", createUserDto("email@gmail.com"), () -> create(id));
+        //when
+        IdempotencyKeyStore.Result otherClient = store.createUser("10.0.0.2", "key", createUserDto("other@gmail.com"),
+                () -> create(UUID.randomUUID()));
+        //then
+        assertFalse(otherClient.replayed());
+        assertEquals(2, creates.get(), "Same key of another client should create its own user");
+    }
+
+    @Test
+    void createUser_shouldCreateAgain_ifFirstAttemptFailed() {
+        //given
+        assertThrows(IllegalStateException.class, () -> store.createUser(CLIENT, "key", createUserDto("email@gmail.com"),
+                () -> {
+                    throw new IllegalStateException("failed");
+                }));
+        //when
+        IdempotencyKeyStore.Result retry = store.createUser(CLIENT, "key", createUserDto("email@gmail.com"),
+                () -> create(UUID.randomUUID()));
+        //then
+        assertFalse(retry.replayed());
+        assertEquals(1, creates.get());
+    }
+
+    @Test
+    @SneakyThrows
+    void createUser_shouldMakeConcurrentRetriesWaitForFirstAttempt() {
+        //given
+        UUID id = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<IdempotencyKeyStore.Result> first = executor.submit(() ->
+                store.createUser(CLIENT, "key", createUserDto("email@gmail.com"), () -> {
+                    started.countDown();
+                    awaitQuietly(release);
+                    return create(id);
+                }));
+        started.await();
+        Future<IdempotencyKeyStore.Result> retry = executor.submit(() ->
+                store.createUser(CLIENT, "key", createUserDto("email@gmail.com"), () -> create(UUID.randomUUID())));
+        while (sharedCalls() == 0) {
+            Thread.sleep(1);
+        }
+        //when
+        release.countDown();
+        //then
+        assertFalse(first.get().replayed());
+        assertTrue(retry.get().replayed());
+        assertEquals(id, retry.get().userId());
+        assertEquals(1, creates.get());
+    }
+
+    private UUID create(UUID id) {
+        creates.incrementAndGet();
+        return id;
+    }
+
+    @SneakyThrows
+    private static void awaitQuietly(CountDownLatch latch) {
+        latch.await();
+    }
+
+    private double sharedCalls() {
+        return meterRegistry.get("single-flight.calls")
+                .tags("name", IdempotencyKeyStore.CACHE_NAME, "outcome", "shared")
+                .functionCounter()
+                .count();
+    }
+
+    private static CreateUserDto createUserDto(String email) {
+        return new CreateUserDto(email, "first", "last", LocalDate.of(2000, 1, 1), "Ukraine, Lviv", "380123123131");
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.example.clearsolutionstest.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.clearsolutionstest.dto.CacheRegionStatisticsDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class UserCacheStatisticsEndpointTest {
+
+    @Test
+    void regions_shouldReportHitRatioOfEveryUserRegion_andSkipRegionsNotCreatedYet() {
+        //given
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Statistics statistics = mock(Statistics.class);
+        given(entityManagerFactory.unwrap(SessionFactory.class)).willReturn(sessionFactory);
+        given(sessionFactory.getStatistics()).willReturn(statistics);
+        CacheRegionStatistics users = region(User.CACHE_REGION, 3, 1, 4, 10);
+        CacheRegionStatistics ranges = region(UserRepository.BIRTH_DATE_RANGE_CACHE_REGION, 0, 0, 0, -1);
+        given(statistics.getCacheRegionStatistics(User.CACHE_REGION)).willReturn(users);
+        given(statistics.getCacheRegionStatistics(UserRepository.BIRTH_DATE_RANGE_CACHE_REGION)).willReturn(ranges);
+        //when
+        List<CacheRegionStatisticsDto> regions = new UserCacheStatisticsEndpoint(entityManagerFactory).regions();
+        //then
+        assertEquals(List.of(
+                new CacheRegionStatisticsDto(User.CACHE_REGION, 3, 1, 4, 0.75, 10L),
+                new CacheRegionStatisticsDto(UserRepository.BIRTH_DATE_RANGE_CACHE_REGION, 0, 0, 0, 0, null)
+        ), regions);
+    }
+
+    private static CacheRegionStatistics region(String name, long hits, long misses, long puts, long elements) {
+        CacheRegionStatistics statistics = mock(CacheRegionStatistics.class);
+        given(statistics.getRegionName()).willReturn(name);
+        given(statistics.getHitCount()).willReturn(hits);
+        given(statistics.getMissCount()).willReturn(misses);
+        given(statistics.getPutCount()).willReturn(puts);
+        given(statistics.getElementCountInMemory()).willReturn(elements);
+        return statistics;
+    }
+
+}
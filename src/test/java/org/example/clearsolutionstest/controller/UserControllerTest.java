@@ -2,11 +2,23 @@ package org.example.clearsolutionstest.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.ConstraintViolationException;
 import lombok.SneakyThrows;
 import org.example.clearsolutionstest.dto.CreateUserDto;
 import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
 import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangeDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.exception.ChangeFeedExpiredException;
+import org.example.clearsolutionstest.exception.ErrorCode;
+import org.example.clearsolutionstest.exception.UserNotFoundException;
 import org.example.clearsolutionstest.service.TimeService;
 import org.example.clearsolutionstest.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,8 +27,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
@@ -26,6 +41,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,9 +51,11 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -47,6 +65,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -76,6 +95,34 @@ class UserControllerTest {
                     LocalDate.of(2000, 2, 1), "Country 2, City 2", "3801243425253")
     );
 
+    List<User> expectedRows = expectedUsers.stream()
+            .map(u -> new User(u.getId(), u.getEmail(), u.getFirstName(), u.getLastName(), u.getBirthDate(),
+                    u.getAddress(), u.getPhoneNumber()))
+            .toList();
+
+    /**
+     * Every test should reach the mocked service, so pages are not cached.
+     */
+    @TestConfiguration
+    static class UserPageCacheConfig {
+
+        @Bean
+        UserPageCache userPageCache(ObjectMapper objectMapper) {
+            return new UserPageCache(objectMapper, new SimpleMeterRegistry(), false, 0, 1, 0);
+        }
+
+    }
+
+    @TestConfiguration
+    static class IdempotencyKeyStoreConfig {
+
+        @Bean
+        IdempotencyKeyStore idempotencyKeyStore() {
+            return new IdempotencyKeyStore(new SimpleMeterRegistry(), true, 1000, 300);
+        }
+
+    }
+
     @BeforeEach
     void resetMocks() {
         reset(userService, modelMapper, objectMapper, timeService);
@@ -89,7 +136,7 @@ class UserControllerTest {
         LocalDate to = LocalDate.of(2000, 5, 1);
         Integer pageIndex = 0;
         Integer pageSize = 50;
-        given(userService.findAllByBirthDateRange(from, to, pageIndex, pageSize)).willReturn(expectedUsers);
+        given(userService.findRowsByBirthDateRange(from, to, pageIndex, pageSize)).willReturn(expectedRows);
         //when
         ResultActions result = mvc.perform(get("/api/v1/users")
                 .param("from", formattedDate(from))
@@ -117,7 +164,27 @@ class UserControllerTest {
         List<GetUserDto> actualUsers = objectMapper.readValue(resultJson, new TypeReference<List<GetUserDto>>() {
         });
         assertTrue(expectedUsers.containsAll(actualUsers), "Result should contain all users.");
-        verify(userService, times(1)).findAllByBirthDateRange(from, to, pageIndex, pageSize);
+        verify(userService, times(1)).findRowsByBirthDateRange(from, to, pageIndex, pageSize);
+    }
+
+    @SneakyThrows
+    @Test
+    void getUpcomingBirthdays_shouldPassSameValuesToServiceAndShouldReturnSameValuesFromIt() {
+        //given
+        Integer days = 7;
+        Integer pageIndex = 1;
+        Integer pageSize = 20;
+        given(userService.findUpcomingBirthdays(days, pageIndex, pageSize)).willReturn(expectedUsers);
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users/upcoming-birthdays")
+                .param("days", days.toString())
+                .param("pageIndex", pageIndex.toString())
+                .param("pageSize", pageSize.toString()));
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(expectedUsers.size())))
+                .andExpect(jsonPath("[0].links[0].rel", is("selfDelete")));
+        verify(userService, times(1)).findUpcomingBirthdays(days, pageIndex, pageSize);
     }
 
     private String formattedDate(LocalDate date) {
@@ -133,7 +200,7 @@ class UserControllerTest {
         Integer pageIndex = 0;
         Integer pageSize = 50;
         String expectedMessage = "From date is after to date";
-        given(userService.findAllByBirthDateRange(from, to, pageIndex, pageSize)).willThrow(new IllegalArgumentException(expectedMessage));
+        given(userService.findRowsByBirthDateRange(from, to, pageIndex, pageSize)).willThrow(new IllegalArgumentException(expectedMessage));
         LocalDateTime expectedExceptionTime = LocalDateTime.of(2001, 1, 1, 0, 0);
         given(timeService.utcNow()).willReturn(expectedExceptionTime);
         //when
@@ -152,7 +219,7 @@ class UserControllerTest {
         assertEquals(expectedExceptionTime, actualResult.getDate());
         assertEquals(BAD_REQUEST, actualResult.getHttpStatus());
         verify(timeService, times(1)).utcNow();
-        verify(userService, times(1)).findAllByBirthDateRange(from, to, pageIndex, pageSize);
+        verify(userService, times(1)).findRowsByBirthDateRange(from, to, pageIndex, pageSize);
     }
 
     @SneakyThrows
@@ -163,7 +230,7 @@ class UserControllerTest {
         LocalDate to = LocalDate.of(2000, 5, 1);
         Integer defaultPageIndex = 0;
         Integer defaultPageSize = 50;
-        given(userService.findAllByBirthDateRange(from, to, defaultPageIndex, defaultPageSize)).willReturn(expectedUsers);
+        given(userService.findRowsByBirthDateRange(from, to, defaultPageIndex, defaultPageSize)).willReturn(expectedRows);
         //when
         ResultActions result = mvc.perform(get("/api/v1/users")
                 .param("from", formattedDate(from))
@@ -189,7 +256,234 @@ class UserControllerTest {
         List<GetUserDto> actualUsers = objectMapper.readValue(resultJson, new TypeReference<List<GetUserDto>>() {
         });
         assertTrue(expectedUsers.containsAll(actualUsers), "Result should contain all users.");
-        verify(userService, times(1)).findAllByBirthDateRange(from, to, defaultPageIndex, defaultPageSize);
+        verify(userService, times(1)).findRowsByBirthDateRange(from, to, defaultPageIndex, defaultPageSize);
+    }
+
+    @SneakyThrows
+    @Test
+    void getUsers_shouldWriteAbsoluteLinksWithHostOfRequest() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 5, 1);
+        given(userService.findRowsByBirthDateRange(from, to, 0, 50)).willReturn(expectedRows);
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users")
+                .header(HttpHeaders.HOST, "other.example:8443")
+                .param("from", formattedDate(from))
+                .param("to", formattedDate(to)));
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(jsonPath("[0].links[0].href",
+                        is("http://other.example:8443/api/v1/users/%s".formatted(expectedUsers.get(0).getId()))));
+    }
+
+    @SneakyThrows
+    @Test
+    void getUsers_shouldReturnCountHeaders_ifCountIsIncluded() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 5, 1);
+        given(userService.findRowsByBirthDateRange(from, to, 0, 50)).willReturn(expectedRows);
+        given(userService.countByBirthDateRange(from, to)).willReturn(new UserCountDto(1234, false, 7));
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users")
+                .param("from", formattedDate(from))
+                .param("to", formattedDate(to))
+                .param("includeCount", "true"));
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(expectedUsers.size())))
+                .andExpect(header().string(UserController.TOTAL_COUNT_HEADER, "1234"))
+                .andExpect(header().string(UserController.TOTAL_COUNT_EXACT_HEADER, "false"))
+                .andExpect(header().string(UserController.TOTAL_COUNT_ERROR_BOUND_HEADER, "7"));
+        verify(userService, times(1)).countByBirthDateRange(from, to);
+    }
+
+    @SneakyThrows
+    @Test
+    void getUsers_shouldNotCount_ifCountIsNotIncluded() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 5, 1);
+        given(userService.findRowsByBirthDateRange(from, to, 0, 50)).willReturn(expectedRows);
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users")
+                .param("from", formattedDate(from))
+                .param("to", formattedDate(to)));
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(header().doesNotExist(UserController.TOTAL_COUNT_HEADER));
+        verify(userService, never()).countByBirthDateRange(from, to);
+    }
+
+    @SneakyThrows
+    @Test
+    void getUsers_shouldReadAndWriteOnlyRequestedFields_ifFieldsAreGiven() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 5, 1);
+        Set<UserField> fields = EnumSet.of(UserField.ID, UserField.EMAIL);
+        List<User> narrowRows = expectedUsers.stream()
+                .map(u -> User.builder().withId(u.getId()).withEmail(u.getEmail()).build())
+                .toList();
+        given(userService.findFieldsByBirthDateRange(from, to, 0, 50, fields, UserSort.BIRTH_DATE)).willReturn(narrowRows);
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users")
+                .param("from", formattedDate(from))
+                .param("to", formattedDate(to))
+                .param("fields", "email"));
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(expectedUsers.size())))
+                .andExpect(jsonPath("[0].id", is(expectedUsers.get(0).getId().toString())))
+                .andExpect(jsonPath("[0].email", is(expectedUsers.get(0).getEmail())))
+                .andExpect(jsonPath("[0].address").doesNotExist())
+                .andExpect(jsonPath("[0].birthDate").doesNotExist())
+                .andExpect(jsonPath("[0].links[0].rel", is("selfDelete")));
+        verify(userService, times(1)).findFieldsByBirthDateRange(from, to, 0, 50, fields, UserSort.BIRTH_DATE);
+        verify(userService, never()).findRowsByBirthDateRange(from, to, 0, 50);
+    }
+
+    @SneakyThrows
+    @Test
+    void getUsers_shouldReturnErrorCode_ifUnknownFieldIsRequested() {
+        //given
+        given(timeService.utcNow()).willReturn(LocalDateTime.of(2001, 1, 1, 0, 0));
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users")
+                .param("from", "2000-01-01")
+                .param("to", "2000-05-01")
+                .param("fields", "email,password"));
+        //then
+        String resultJson = result
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+        ExceptionResponse actualResult = objectMapper.readValue(resultJson, ExceptionResponse.class);
+        assertEquals(ErrorCode.INVALID_ARGUMENT, actualResult.getErrorCode());
+        assertTrue(actualResult.getMessage().contains("'password'"), "Message should name the unknown field");
+    }
+
+    @SneakyThrows
+    @Test
+    void getUsers_shouldReadUsersInRequestedOrder_ifSortIsGiven() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 5, 1);
+        given(userService.findFieldsByBirthDateRange(from, to, 0, 50, UserField.ALL, UserSort.LAST_NAME))
+                .willReturn(expectedRows);
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users")
+                .param("from", formattedDate(from))
+                .param("to", formattedDate(to))
+                .param("sort", "lastName"));
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(expectedUsers.size())))
+                .andExpect(jsonPath("[0].lastName", is(expectedUsers.get(0).getLastName())));
+        verify(userService, never()).findRowsByBirthDateRange(from, to, 0, 50);
+    }
+
+    @SneakyThrows
+    @Test
+    void getUsers_shouldReturnErrorCode_ifUnknownSortIsRequested() {
+        //given
+        given(timeService.utcNow()).willReturn(LocalDateTime.of(2001, 1, 1, 0, 0));
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users")
+                .param("from", "2000-01-01")
+                .param("to", "2000-05-01")
+                .param("sort", "phoneNumber"));
+        //then
+        String resultJson = result
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+        ExceptionResponse actualResult = objectMapper.readValue(resultJson, ExceptionResponse.class);
+        assertEquals(ErrorCode.INVALID_ARGUMENT, actualResult.getErrorCode());
+        assertTrue(actualResult.getMessage().contains("'phoneNumber'"), "Message should name the unknown sort");
+    }
+
+    @SneakyThrows
+    @Test
+    void getUsersByIds_shouldReturnResultsInRequestOrderWithDeleteLinksForFoundUsers() {
+        //given
+        UUID missingId = UUID.randomUUID();
+        MultiGetUsersDto multiGetUsersDto = new MultiGetUsersDto(
+                List.of(expectedUsers.get(1).getId(), missingId, expectedUsers.get(0).getId()));
+        given(userService.findAllByIds(multiGetUsersDto)).willReturn(List.of(
+                new MultiGetUserResultDto(expectedUsers.get(1).getId(), true, expectedUsers.get(1)),
+                new MultiGetUserResultDto(missingId, false, null),
+                new MultiGetUserResultDto(expectedUsers.get(0).getId(), true, expectedUsers.get(0))
+        ));
+        //when
+        ResultActions result = mvc.perform(post("/api/v1/users/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(multiGetUsersDto)));
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("[0].id", is(expectedUsers.get(1).getId().toString())))
+                .andExpect(jsonPath("[0].found", is(true)))
+                .andExpect(jsonPath("[0].user.email", is(expectedUsers.get(1).getEmail())))
+                .andExpect(jsonPath("[0].user.links[0].href",
+                        containsString("/api/v1/users/%s".formatted(expectedUsers.get(1).getId()))))
+                .andExpect(jsonPath("[1].id", is(missingId.toString())))
+                .andExpect(jsonPath("[1].found", is(false)))
+                .andExpect(jsonPath("[2].id", is(expectedUsers.get(0).getId().toString())));
+        verify(userService, times(1)).findAllByIds(multiGetUsersDto);
+    }
+
+    @Test
+    void acceptsGzip_shouldAcceptGzip_unlessItIsMissingOrRefused() {
+        //then
+        assertTrue(UserController.acceptsGzip("deflate, GZIP;q=0.5, br"));
+        assertFalse(UserController.acceptsGzip("gzip;q=0"));
+        assertFalse(UserController.acceptsGzip("gzip;q=x"));
+        assertFalse(UserController.acceptsGzip("br"));
+        assertFalse(UserController.acceptsGzip(null));
+    }
+
+    @SneakyThrows
+    @Test
+    void getUserChanges_shouldPassCursorToServiceAndReturnChangesWithNextCursor() {
+        //given
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 10, 0);
+        UUID afterId = UUID.randomUUID();
+        UUID deletedId = UUID.randomUUID();
+        LocalDateTime changedAt = LocalDateTime.of(2024, 1, 1, 10, 5);
+        given(userService.findChangesSince(since, afterId, 500)).willReturn(new UserChangesDto(
+                List.of(new UserChangeDto(expectedUsers.get(0).getId(), false, changedAt, expectedUsers.get(0)),
+                        new UserChangeDto(deletedId, true, changedAt, null)),
+                changedAt, deletedId));
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users/changes")
+                .param("since", "2024-01-01T10:00:00")
+                .param("afterId", afterId.toString()));
+        //then
+        result.andExpect(status().isOk())
+                .andExpect(jsonPath("changes", hasSize(2)))
+                .andExpect(jsonPath("changes[0].deleted", is(false)))
+                .andExpect(jsonPath("changes[0].user.email", is(expectedUsers.get(0).getEmail())))
+                .andExpect(jsonPath("changes[1].id", is(deletedId.toString())))
+                .andExpect(jsonPath("changes[1].deleted", is(true)))
+                .andExpect(jsonPath("nextAfterId", is(deletedId.toString())));
+        verify(userService, times(1)).findChangesSince(since, afterId, 500);
+    }
+
+    @SneakyThrows
+    @Test
+    void getUserChanges_shouldReturnErrorCode_ifChangesAreNoLongerKept() {
+        //given
+        LocalDateTime since = LocalDateTime.of(2020, 1, 1, 0, 0);
+        given(userService.findChangesSince(since, null, 500))
+                .willThrow(new ChangeFeedExpiredException(since, LocalDateTime.of(2024, 1, 1, 0, 0)));
+        //when
+        ResultActions result = mvc.perform(get("/api/v1/users/changes").param("since", "2020-01-01T00:00:00"));
+        //then
+        String resultJson = result
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+        ExceptionResponse actualResult = objectMapper.readValue(resultJson, ExceptionResponse.class);
+        assertEquals(ErrorCode.CHANGE_FEED_EXPIRED, actualResult.getErrorCode());
     }
 
     @SneakyThrows
@@ -219,6 +513,89 @@ class UserControllerTest {
         verify(userService, times(1)).createUser(createUserDto);
     }
 
+    @SneakyThrows
+    @Test
+    void createUser_shouldReturnIdOfFirstAttempt_ifRequestIsRetriedWithSameIdempotencyKey() {
+        //given
+        CreateUserDto createUserDto = new CreateUserDto(
+                "retried@gmail.com", "first", "last", LocalDate.of(2000, 1, 1), "Ukraine, Lviv", "380123123131");
+        UUID expectedId = UUID.randomUUID();
+        String idempotencyKey = UUID.randomUUID().toString();
+        given(userService.createUser(createUserDto)).willReturn(expectedId);
+        mvc.perform(post("/api/v1/users")
+                        .header(UserController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDto)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(UserController.IDEMPOTENT_REPLAYED_HEADER));
+        //when
+        ResultActions result = mvc.perform(post("/api/v1/users")
+                .header(UserController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createUserDto)));
+        //then
+        result.andExpect(status().isCreated())
+                .andExpect(header().string(UserController.IDEMPOTENT_REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("id", is(expectedId.toString())));
+        verify(userService, times(1)).createUser(createUserDto);
+    }
+
+    @SneakyThrows
+    @Test
+    void createUser_shouldNotReplay_ifSameIdempotencyKeyIsSentByAnotherClient() {
+        //given
+        CreateUserDto createUserDto = new CreateUserDto(
+                "client@gmail.com", "first", "last", LocalDate.of(2000, 1, 1), "Ukraine, Lviv", "380123123131");
+        String idempotencyKey = UUID.randomUUID().toString();
+        given(userService.createUser(createUserDto)).willReturn(UUID.randomUUID());
+        mvc.perform(post("/api/v1/users")
+                        .header(UserController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDto)))
+                .andExpect(status().isCreated());
+        //when
+        ResultActions result = mvc.perform(post("/api/v1/users")
+                .with(request -> {
+                    request.setRemoteAddr("10.0.0.2");
+                    return request;
+                })
+                .header(UserController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createUserDto)));
+        //then
+        result.andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(UserController.IDEMPOTENT_REPLAYED_HEADER));
+        verify(userService, times(2)).createUser(createUserDto);
+    }
+
+    @SneakyThrows
+    @Test
+    void createUser_shouldReturnErrorCode_ifIdempotencyKeyIsReusedForAnotherUser() {
+        //given
+        CreateUserDto createUserDto = new CreateUserDto(
+                "first@gmail.com", "first", "last", LocalDate.of(2000, 1, 1), "Ukraine, Lviv", "380123123131");
+        CreateUserDto otherUserDto = new CreateUserDto(
+                "other@gmail.com", "first", "last", LocalDate.of(2000, 1, 1), "Ukraine, Lviv", "380123123131");
+        String idempotencyKey = UUID.randomUUID().toString();
+        given(userService.createUser(createUserDto)).willReturn(UUID.randomUUID());
+        mvc.perform(post("/api/v1/users")
+                        .header(UserController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDto)))
+                .andExpect(status().isCreated());
+        //when
+        ResultActions result = mvc.perform(post("/api/v1/users")
+                .header(UserController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(otherUserDto)));
+        //then
+        String resultJson = result.andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+        ExceptionResponse actualResult = objectMapper.readValue(resultJson, ExceptionResponse.class);
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, actualResult.getErrorCode());
+        verify(userService, never()).createUser(otherUserDto);
+    }
+
     @SneakyThrows
     @Test
     void createUser_shouldReturnExceptionResponse_ifConstraintViolationExceptionWasThrownInService() {
@@ -347,6 +724,26 @@ class UserControllerTest {
         verify(userService, times(1)).updateUser(id, updateUserDto);
     }
 
+    @SneakyThrows
+    @Test
+    void updateUser_shouldReturnErrorCode_ifUserWasNotFound() {
+        //given
+        UpdateUserDto updateUserDto = new UpdateUserDto(null, "first", null, null, null, null);
+        UUID id = UUID.randomUUID();
+        doThrow(new UserNotFoundException(id)).when(userService).updateUser(id, updateUserDto);
+        //when
+        ResultActions result = mvc.perform(put("/api/v1/users/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updateUserDto)));
+        //then
+        String resultJson = result
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+        ExceptionResponse actualResult = objectMapper.readValue(resultJson, ExceptionResponse.class);
+        assertEquals(ErrorCode.USER_NOT_FOUND, actualResult.getErrorCode());
+        assertEquals("User with id '%s' not found".formatted(id), actualResult.getMessage());
+    }
+
     @SneakyThrows
     @Test
     void deleteUser_shouldPassSameIdToService() {
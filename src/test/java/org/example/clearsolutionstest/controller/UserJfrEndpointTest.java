@@ -0,0 +1,104 @@
+package org.example.clearsolutionstest.controller;
+
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.dto.JfrRecordingDto;
+import org.example.clearsolutionstest.jfr.UserRequestEvent;
+import org.example.clearsolutionstest.service.TimeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class UserJfrEndpointTest {
+
+    static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    TimeService timeService = mock(TimeService.class);
+
+    UserJfrEndpoint endpoint;
+
+    @BeforeEach
+    void init() {
+        given(timeService.utcNow()).willReturn(NOW, NOW.plusSeconds(1), NOW.plusSeconds(2));
+        endpoint = new UserJfrEndpoint(timeService, directory.resolve("jfr"), Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        endpoint.stop();
+    }
+
+    @SneakyThrows
+    @Test
+    void control_shouldStartDumpAndStopRecordingOfUserEvents() {
+        //when
+        JfrRecordingDto started = endpoint.control("start", null);
+        UserRequestEvent.start("getUsers", 50).finish(10);
+        JfrRecordingDto dumped = endpoint.control("dump", null);
+        JfrRecordingDto stopped = endpoint.stop();
+        //then
+        assertEquals(RecordingState.RUNNING.name(), started.getState());
+        assertEquals("default", started.getSettings());
+        assertNull(started.getFile());
+        assertEquals(RecordingState.RUNNING.name(), dumped.getState());
+        assertEquals(RecordingState.CLOSED.name(), stopped.getState());
+        assertNotEquals(dumped.getFile(), stopped.getFile());
+        for (String file : new String[]{dumped.getFile(), stopped.getFile()}) {
+            Path path = Path.of(file);
+            assertEquals(directory.resolve("jfr"), path.getParent());
+            assertTrue(Files.exists(path), () -> file + " should have been written");
+            assertTrue(RecordingFile.readAllEvents(path).stream()
+                            .anyMatch(event -> event.getEventType().getName().equals(UserRequestEvent.NAME)),
+                    () -> file + " should contain the user request event");
+        }
+        assertEquals(stopped, endpoint.status());
+    }
+
+    @Test
+    void control_shouldKeepRunningRecording_ifStartedAgain() {
+        //given
+        endpoint.control("start", "profile");
+        //when
+        JfrRecordingDto dto = endpoint.control("start", "default");
+        //then
+        assertEquals(RecordingState.RUNNING.name(), dto.getState());
+        assertEquals("profile", dto.getSettings());
+    }
+
+    @Test
+    void status_shouldBeNew_beforeRecordingWasStarted() {
+        //when
+        JfrRecordingDto dto = endpoint.status();
+        //then
+        assertEquals(new JfrRecordingDto("users", RecordingState.NEW.name(), null, null), dto);
+        assertEquals(dto, endpoint.stop());
+    }
+
+    @Test
+    void control_shouldThrowIllegalArgumentException_ifActionOrSettingsAreUnknown() {
+        //then
+        assertThrows(IllegalArgumentException.class, () -> endpoint.control("restart", null));
+        assertThrows(IllegalArgumentException.class, () -> endpoint.control("start", "unknown"));
+        assertThrows(IllegalArgumentException.class, () -> endpoint.control("dump", null));
+        assertEquals(RecordingState.NEW.name(), endpoint.status().getState());
+    }
+
+}
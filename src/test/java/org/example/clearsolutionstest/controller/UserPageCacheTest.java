@@ -0,0 +1,143 @@
+package org.example.clearsolutionstest.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UserPageCacheTest {
+
+    static final String USERS_HREF = "http://localhost/api/v1/users";
+
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    UserPageCache cache = new UserPageCache(objectMapper, new SimpleMeterRegistry(),
+            true, 1_000_000, 300, 1024);
+
+    @SneakyThrows
+    @Test
+    void get_shouldLoadPageOnce_andServeCachedBytes() {
+        //given
+        List<User> users = users(2, LocalDate.of(2000, 1, 1));
+        AtomicInteger loads = new AtomicInteger();
+        UserPageCache.Key key = key(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31));
+        //when
+        UserPageCache.Page first = cache.get(key, () -> {
+            loads.incrementAndGet();
+            return users;
+        });
+        UserPageCache.Page second = cache.get(key(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31)), List::of);
+        //then
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertEquals(2, second.rows());
+        assertEquals(2, objectMapper.readTree(second.body(USERS_HREF)).size());
+        assertEquals(users.get(1).getEmail(),
+                objectMapper.readTree(second.body(USERS_HREF)).get(1).get("email").asText());
+        assertNull(second.gzippedBody(USERS_HREF), "Small pages should not be compressed");
+    }
+
+    @Test
+    void invalidate_shouldDropOnlyPagesWhoseRangeContainsChangedBirthDate() {
+        //given
+        cache.get(key(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 6, 30)), List::of);
+        cache.get(key(LocalDate.of(2000, 7, 1), LocalDate.of(2000, 12, 31)), List::of);
+        cache.get(key(LocalDate.of(2001, 1, 1), LocalDate.of(2001, 12, 31)), List::of);
+        //when
+        cache.invalidate(LocalDate.of(2000, 3, 1), LocalDate.of(2000, 7, 1));
+        //then
+        assertEquals(1, cache.size());
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(key(LocalDate.of(2001, 1, 1), LocalDate.of(2001, 12, 31)), () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+        assertEquals(0, loads.get(), "Page of unchanged range should still be cached");
+    }
+
+    @Test
+    void get_shouldNotStorePage_ifUserChangedWhileItWasRead() {
+        //given
+        UserPageCache.Key key = key(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31));
+        //when
+        UserPageCache.Page page = cache.get(key, () -> {
+            cache.invalidate(LocalDate.of(2000, 5, 5), LocalDate.of(2000, 5, 5));
+            return users(1, LocalDate.of(2000, 1, 1));
+        });
+        //then
+        assertEquals(1, page.rows(), "Page read while the user changed should still be returned");
+        assertEquals(0, cache.size());
+    }
+
+    @SneakyThrows
+    @Test
+    void get_shouldKeepLargePagesGzipped() {
+        //given
+        UserPageCache.Key key = key(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31));
+        //when
+        UserPageCache.Page page = cache.get(key, () -> users(50, LocalDate.of(2000, 1, 1)));
+        //then
+        assertNotNull(page.gzippedBody(USERS_HREF));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(page.gzippedBody(USERS_HREF)))) {
+            assertArrayEquals(page.body(USERS_HREF), gzip.readAllBytes());
+        }
+    }
+
+    @SneakyThrows
+    @Test
+    void get_shouldSharePageAcrossHosts_andWriteLinksOfEachRequest() {
+        //given
+        List<User> users = users(50, LocalDate.of(2000, 1, 1));
+        UserPageCache.Page page = cache.get(key(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31)), () -> users);
+        String otherHref = "https://other.example:8443/api/v1/users";
+        //when
+        UserPageCache.Page cached = cache.get(key(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31)), List::of);
+        byte[] body = cached.body(otherHref);
+        byte[] gzippedBody = cached.gzippedBody(otherHref);
+        //then
+        assertSame(page, cached);
+        JsonNode rows = objectMapper.readTree(body);
+        for (int i = 0; i < users.size(); i++) {
+            assertEquals(otherHref + "/" + users.get(i).getId(), rows.get(i).get("links").get(0).get("href").asText());
+        }
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(gzippedBody))) {
+            assertArrayEquals(body, gzip.readAllBytes());
+        }
+        assertEquals(USERS_HREF + "/" + users.get(0).getId(),
+                objectMapper.readTree(cached.body(USERS_HREF)).get(0).get("links").get(0).get("href").asText());
+    }
+
+    private static UserPageCache.Key key(LocalDate from, LocalDate to) {
+        return new UserPageCache.Key(from, to, 0, 50, UserField.ALL, UserSort.BIRTH_DATE);
+    }
+
+    private static List<User> users(int count, LocalDate birthDate) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new User(UUID.randomUUID(), "email%d@gmail.com".formatted(i), "first " + i,
+                        "last " + i, birthDate, "Country %d, City %d".formatted(i, i), "3803424234242"))
+                .toList();
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.example.clearsolutionstest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserRowsWriterTest {
+
+    static final String USERS_HREF = "http://localhost/api/v1/users";
+
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    UserRowsWriter writer = new UserRowsWriter(objectMapper);
+
+    @SneakyThrows
+    @Test
+    void write_shouldWriteSameJsonAsJacksonWritesGetUserDtosWithDeleteLinks() {
+        //given
+        List<User> users = List.of(
+                new User(UUID.randomUUID(), "email1@gmail.com", "first \"1\"", "last\\1",
+                        LocalDate.of(2000, 1, 1), "Країна 1, Місто 1", "3803424234242"),
+                new User(new UUID(0, 1), "email2@gmail.com", "first 2", "last 2",
+                        LocalDate.of(987, 12, 31), null, null),
+                new User(new UUID(0, 2), "email3@gmail.com", "first 3", "last 3",
+                        LocalDate.of(10000, 1, 1), null, null),
+                new User(new UUID(0, 3), "email4@gmail.com", "first 4", "last 4",
+                        LocalDate.of(-5, 6, 7), null, null),
+                new User(new UUID(0, 4), "email5@gmail.com", "first 5", "last 5", null, null, null)
+        );
+        List<GetUserDto> dtos = users.stream()
+                .map(user -> {
+                    GetUserDto dto = new GetUserDto(user.getId(), user.getEmail(), user.getFirstName(),
+                            user.getLastName(), user.getBirthDate(), user.getAddress(), user.getPhoneNumber());
+                    dto.add(Link.of(USERS_HREF + "/" + user.getId()).withRel("selfDelete").withType("DELETE"));
+                    return dto;
+                })
+                .toList();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        //when
+        writer.write(new UserRows(users, USERS_HREF), body);
+        //then
+        assertEquals(new String(objectMapper.writeValueAsBytes(dtos), StandardCharsets.UTF_8), body.toString(StandardCharsets.UTF_8));
+    }
+
+    @SneakyThrows
+    @Test
+    void write_shouldLeaveOutFieldsThatWereNotRequested() {
+        //given
+        UUID id = new UUID(0, 1);
+        User user = User.builder().withId(id).withEmail("email1@gmail.com").build();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        //when
+        writer.write(new UserRows(List.of(user), USERS_HREF, UserField.parse("email")), body);
+        //then
+        assertEquals(("[{\"id\":\"%s\",\"email\":\"email1@gmail.com\"," +
+                      "\"links\":[{\"rel\":\"selfDelete\",\"href\":\"%s/%s\",\"type\":\"DELETE\"}]}]")
+                .formatted(id, USERS_HREF, id), body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeUuid_shouldWriteSameTextAsUuidToString() {
+        //given
+        UUID id = UUID.randomUUID();
+        char[] buffer = new char[40];
+        //when
+        UserRowsWriter.writeUuid(id, buffer, 4);
+        //then
+        assertEquals(id.toString(), new String(buffer, 4, 36));
+    }
+
+}
@@ -0,0 +1,36 @@
+package org.example.clearsolutionstest.entity;
+
+import org.example.clearsolutionstest.exception.UnknownUserFieldException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserFieldTest {
+
+    @Test
+    void parse_shouldAlwaysIncludeIdAndKeepDeclarationOrder() {
+        //when
+        List<UserField> fields = List.copyOf(UserField.parse(" phoneNumber,email,, email"));
+        //then
+        assertEquals(List.of(UserField.ID, UserField.EMAIL, UserField.PHONE_NUMBER), fields);
+    }
+
+    @Test
+    void parse_shouldReturnAllFields_ifNoFieldsAreGiven() {
+        //then
+        assertEquals(UserField.ALL, UserField.parse(null));
+        assertEquals(UserField.ALL, UserField.parse(" "));
+    }
+
+    @Test
+    void parse_shouldThrowUnknownUserFieldException_ifFieldIsUnknown() {
+        //then
+        UnknownUserFieldException ex = assertThrows(UnknownUserFieldException.class,
+                () -> UserField.parse("email,birthMonthDay"));
+        assertEquals("birthMonthDay", ex.getField());
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.example.clearsolutionstest.entity;
+
+import org.example.clearsolutionstest.exception.UnknownUserSortException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserSortTest {
+
+    @Test
+    void parse_shouldReturnSortOfProperty_andBirthDate_ifNoSortIsGiven() {
+        //then
+        assertEquals(UserSort.LAST_NAME, UserSort.parse(" lastName "));
+        assertEquals(UserSort.BIRTH_DATE, UserSort.parse(null));
+        assertEquals(UserSort.BIRTH_DATE, UserSort.parse(""));
+    }
+
+    @Test
+    void parse_shouldThrowUnknownUserSortException_ifSortIsUnknown() {
+        //then
+        UnknownUserSortException ex = assertThrows(UnknownUserSortException.class, () -> UserSort.parse("address"));
+        assertEquals("address", ex.getSort());
+    }
+
+    @Test
+    void getSort_shouldBreakTiesById() {
+        //then
+        assertEquals(Sort.by("email", "id"), UserSort.EMAIL.getSort());
+    }
+
+    @Test
+    void scansIndexInOrder_shouldScanIndex_onlyIfRangeHoldsEnoughUsersToFillPageEarly() {
+        //then
+        assertTrue(UserSort.LAST_NAME.scansIndexInOrder(150, 25_000, 50_000), "Half of the users are in range");
+        assertFalse(UserSort.LAST_NAME.scansIndexInOrder(150, 900, 50_000), "Scan would pass most of the index");
+        assertFalse(UserSort.EMAIL.scansIndexInOrder(150, 0, 0), "Nothing to scan");
+        assertTrue(UserSort.BIRTH_DATE.scansIndexInOrder(150, 900, 50_000), "Range is the index order");
+    }
+
+}
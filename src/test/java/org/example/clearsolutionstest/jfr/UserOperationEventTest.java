@@ -0,0 +1,63 @@
+package org.example.clearsolutionstest.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserOperationEventTest {
+
+    @TempDir
+    Path directory;
+
+    @SneakyThrows
+    @Test
+    void finish_shouldRecordRowsAndSessionActivityOfOperation() {
+        //given
+        SessionActivityListener listener = new SessionActivityListener();
+        listener.cacheGetEnd(true);
+        Path file = directory.resolve("users.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(UserOperationEvent.NAME).withoutThreshold();
+            recording.start();
+            //when
+            UserOperationEvent event = UserOperationEvent.start("findAllByBirthDateRange", 50);
+            listener.cacheGetEnd(true);
+            listener.cacheGetEnd(false);
+            listener.jdbcExecuteStatementEnd();
+            event.finish(20);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(recorded -> recorded.getEventType().getName().equals(UserOperationEvent.NAME))
+                .toList();
+        //then
+        assertEquals(1, events.size());
+        RecordedEvent recorded = events.get(0);
+        assertEquals("findAllByBirthDateRange", recorded.getString("operation"));
+        assertEquals(50, recorded.getInt("pageSize"));
+        assertEquals(20, recorded.getLong("rows"));
+        assertEquals(1, recorded.getLong("cacheHits"), "Hits before the operation should not count");
+        assertEquals(1, recorded.getLong("cacheMisses"));
+        assertEquals(1, recorded.getLong("statements"));
+    }
+
+    @Test
+    void start_shouldReturnEventThatIsNotRecorded_ifNoRecordingEnablesIt() {
+        //when
+        UserOperationEvent event = UserOperationEvent.start("createUser");
+        event.finish(1);
+        //then
+        assertNull(event.operation, "Disabled event should not be filled");
+    }
+
+}
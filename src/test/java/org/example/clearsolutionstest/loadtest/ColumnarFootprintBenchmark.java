@@ -0,0 +1,119 @@
+package org.example.clearsolutionstest.loadtest;
+
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.service.impl.ColumnarUserStore;
+import org.example.clearsolutionstest.service.impl.SyntheticUserGenerator;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+/**
+ * Compares the memory per user of {@link User} entities in a sorted list with {@link ColumnarUserStore} on and off
+ * the heap, and the time to read the first page of a one year birth date range from each. Run with
+ * {@code ./mvnw -Pload-test test-compile exec:java -Dloadtest.main-class=org.example.clearsolutionstest.loadtest.ColumnarFootprintBenchmark}
+ * and {@code -Dbenchmark.users=1000000}. Memory is measured as the heap growth after full collections, give the JVM
+ * enough heap, e.g. {@code MAVEN_OPTS=-Xmx4g}, and nothing else to do.
+ */
+public class ColumnarFootprintBenchmark {
+
+    private static final int QUERIES = 100_000;
+
+    private static final int PAGE_SIZE = 50;
+
+    private static final LocalDate REFERENCE_DATE = LocalDate.of(2024, 1, 1);
+
+    public static void main(String[] args) {
+        long users = Long.getLong("benchmark.users", 1_000_000L);
+        SyntheticUserGenerator generator = new SyntheticUserGenerator(42, REFERENCE_DATE);
+        System.out.printf("%-22s %14s %14s %14s%n", "storage", "heap B/user", "direct B/user", "page query us");
+
+        long heapBefore = usedHeap();
+        List<User> entities = new ArrayList<>(LongStream.range(0, users).mapToObj(generator::generate)
+                .sorted(Comparator.comparing(User::getBirthDate))
+                .toList());
+        long entitiesHeap = usedHeap() - heapBefore;
+        double entitiesQuery = queryMicros(from -> {
+            int index = firstBornOnOrAfter(entities, from);
+            return List.copyOf(entities.subList(index, Math.min(entities.size(), index + PAGE_SIZE)));
+        });
+        print("User entities", entitiesHeap, 0, users, entitiesQuery);
+        entities.clear();
+
+        for (boolean offHeap : new boolean[]{false, true}) {
+            heapBefore = usedHeap();
+            long directBefore = usedDirect();
+            ColumnarUserStore.Builder builder = ColumnarUserStore.builder(offHeap);
+            LongStream.range(0, users).mapToObj(generator::generate).forEach(builder::add);
+            ColumnarUserStore store = builder.build();
+            builder = null;
+            long storeHeap = usedHeap() - heapBefore;
+            long storeDirect = usedDirect() - directBefore;
+            double storeQuery = queryMicros(from -> {
+                int index = store.firstIndexBornOnOrAfter(from);
+                int end = Math.min(store.size(), index + PAGE_SIZE);
+                List<User> page = new ArrayList<>(PAGE_SIZE);
+                for (int i = index; i < end; i++) {
+                    page.add(store.userAt(i));
+                }
+                return page;
+            });
+            print(offHeap ? "columnar, off heap" : "columnar, on heap", storeHeap, storeDirect, users, storeQuery);
+        }
+    }
+
+    private static double queryMicros(Function<LocalDate, List<User>> query) {
+        SplittableRandom random = new SplittableRandom(7);
+        long sink = 0;
+        // Warm up before timing
+        for (int i = 0; i < QUERIES; i++) {
+            sink += query.apply(REFERENCE_DATE.minusDays(18 * 365 + random.nextInt(70 * 365))).size();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            sink += query.apply(REFERENCE_DATE.minusDays(18 * 365 + random.nextInt(70 * 365))).size();
+        }
+        double micros = (System.nanoTime() - started) / 1_000.0 / QUERIES;
+        return sink == 0 ? Double.NaN : micros;
+    }
+
+    private static int firstBornOnOrAfter(List<User> users, LocalDate date) {
+        int low = 0;
+        int high = users.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (users.get(middle).getBirthDate().isBefore(date)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    private static void print(String storage, long heap, long direct, long users, double queryMicros) {
+        System.out.printf("%-22s %14.1f %14.1f %14.2f%n", storage, (double) heap / users, (double) direct / users,
+                queryMicros);
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.example.clearsolutionstest.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.example.clearsolutionstest.controller.ExceptionResponse;
+import org.example.clearsolutionstest.exception.ErrorCode;
+import org.example.clearsolutionstest.exception.UserDomainException;
+import org.example.clearsolutionstest.exception.UserNotFoundException;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Compares the throughput of the error path, from throwing in the service to the serialized
+ * {@link ExceptionResponse}, with an {@link IllegalArgumentException} as the services threw before and with a
+ * stackless {@link UserDomainException}. Run with
+ * {@code ./mvnw -Pload-test test-compile exec:java -Dloadtest.main-class=org.example.clearsolutionstest.loadtest.ErrorPathBenchmark},
+ * {@code -Dbenchmark.depth=40} sets how many frames deep the exception is thrown, real requests are well over a
+ * hundred frames deep by the time they reach a service.
+ */
+public class ErrorPathBenchmark {
+
+    private static final int ERRORS = 1_000_000;
+
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    public static void main(String[] args) throws Exception {
+        int depth = Integer.getInteger("benchmark.depth", 40);
+        System.out.printf("%-28s %14s%n", "exception", "errors/s");
+        for (int round = 0; round < 2; round++) {
+            // The first round only warms up
+            boolean print = round == 1;
+            run("IllegalArgumentException", depth, print,
+                    id -> new IllegalArgumentException("User with id '%s' not found".formatted(id)));
+            run("UserNotFoundException", depth, print, UserNotFoundException::new);
+        }
+    }
+
+    private static void run(String name, int depth, boolean print, Function<UUID, RuntimeException> exception)
+            throws Exception {
+        UUID id = UUID.randomUUID();
+        long bytes = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < ERRORS; i++) {
+            try {
+                throwAt(depth, () -> exception.apply(id));
+            } catch (RuntimeException e) {
+                bytes += OBJECT_MAPPER.writeValueAsBytes(ExceptionResponse.builder()
+                        .withMessage(e.getMessage())
+                        .withHttpStatus(HttpStatus.BAD_REQUEST)
+                        .withErrorCode(e instanceof UserDomainException domain
+                                ? domain.getErrorCode() : ErrorCode.INVALID_ARGUMENT)
+                        .withDate(LocalDateTime.now(ZoneOffset.UTC))
+                        .build()).length;
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        if (print && bytes > 0) {
+            System.out.printf("%-28s %14.0f%n", name, ERRORS / seconds);
+        }
+    }
+
+    private static void throwAt(int depth, Supplier<RuntimeException> exception) {
+        if (depth == 0) {
+            throw exception.get();
+        }
+        throwAt(depth - 1, exception);
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.example.clearsolutionstest.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load test parameters, read from {@code loadtest.*} system properties.
+ *
+ * @param requestsPerSecond constant arrival rate, requests are sent on schedule whether or not earlier ones finished
+ * @param mix               relative weight of each operation
+ */
+record LoadTestSettings(URI baseUrl, int requestsPerSecond, Duration warmUp, Duration duration,
+                        Map<UserApiOperation, Integer> mix, int rangeDays, int pageSize, long seed) {
+
+    static LoadTestSettings fromSystemProperties() {
+        Map<UserApiOperation, Integer> mix = new EnumMap<>(UserApiOperation.class);
+        mix.put(UserApiOperation.CREATE, Integer.getInteger("loadtest.mix.create", 10));
+        mix.put(UserApiOperation.UPDATE, Integer.getInteger("loadtest.mix.update", 10));
+        mix.put(UserApiOperation.DELETE, Integer.getInteger("loadtest.mix.delete", 5));
+        mix.put(UserApiOperation.RANGE_QUERY, Integer.getInteger("loadtest.mix.range-query", 75));
+        return new LoadTestSettings(
+                URI.create(System.getProperty("loadtest.base-url", "http://localhost:8080")),
+                Integer.getInteger("loadtest.rate", 200),
+                Duration.ofSeconds(Integer.getInteger("loadtest.warmup-seconds", 10)),
+                Duration.ofSeconds(Integer.getInteger("loadtest.duration-seconds", 60)),
+                mix,
+                Integer.getInteger("loadtest.range-days", 365),
+                Integer.getInteger("loadtest.page-size", 50),
+                Long.getLong("loadtest.seed", 42L)
+        );
+    }
+
+    UserApiOperation pick(int roll) {
+        for (Map.Entry<UserApiOperation, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return UserApiOperation.RANGE_QUERY;
+    }
+
+    int totalWeight() {
+        return mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+}
@@ -0,0 +1,50 @@
+package org.example.clearsolutionstest.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of one operation, measured from the moment the request was scheduled to be sent, so a stalled server
+ * shows up as latency instead of as fewer requests.
+ */
+class OperationStats {
+
+    private final Histogram latencies = new ConcurrentHistogram(3);
+
+    private final LongAdder errors = new LongAdder();
+
+    void record(long latencyNanos, boolean success) {
+        latencies.recordValue(latencyNanos);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    static void printHeader(PrintStream out) {
+        out.printf("%-12s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    void print(PrintStream out, String name, Duration elapsed) {
+        long count = latencies.getTotalCount();
+        out.printf("%-12s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                count,
+                errors.sum(),
+                count / (elapsed.toNanos() / 1e9),
+                millis(latencies.getValueAtPercentile(50)),
+                millis(latencies.getValueAtPercentile(90)),
+                millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+}
@@ -0,0 +1,193 @@
+package org.example.clearsolutionstest.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives a running instance with a configurable mix of {@code /api/v1/users} requests at a constant arrival rate
+ * and prints throughput and latency percentiles per operation. Requests are sent asynchronously on schedule, so a
+ * slow server can not slow the generator down and hide its own latency (coordinated omission).
+ * <p>
+ * Run with {@code ./mvnw -Pload-test test-compile exec:java}, see {@link LoadTestSettings} for the properties.
+ */
+@Slf4j
+public class UserApiLoadGenerator {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-f-]{36})\"");
+
+    private static final LocalDate EARLIEST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+    private static final int BIRTH_DATE_SPAN_DAYS = 50 * 365;
+
+    private final LoadTestSettings settings;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final SplittableRandom random;
+
+    private final String runId = Long.toHexString(System.currentTimeMillis());
+
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final List<UUID> knownIds = new ArrayList<>();
+
+    public UserApiLoadGenerator(LoadTestSettings settings) {
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.seed());
+    }
+
+    public static void main(String[] args) {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        log.info("Running load test {}", settings);
+        UserApiLoadGenerator generator = new UserApiLoadGenerator(settings);
+        generator.run(settings.warmUp());
+        Map<UserApiOperation, OperationStats> stats = generator.run(settings.duration());
+        generator.print(stats);
+    }
+
+    Map<UserApiOperation, OperationStats> run(Duration duration) {
+        Map<UserApiOperation, OperationStats> stats = new EnumMap<>(UserApiOperation.class);
+        for (UserApiOperation operation : UserApiOperation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+        long intervalNanos = 1_000_000_000L / settings.requestsPerSecond();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long intended = start; intended < end; intended += intervalNanos) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            UserApiOperation operation = settings.pick(random.nextInt(settings.totalWeight()));
+            send(operation, intended, stats);
+        }
+        awaitInFlight();
+        return stats;
+    }
+
+    /**
+     * Updates and deletes picked before any user is known create one instead and are recorded as creates, so the
+     * update and delete latencies are only those of updates and deletes.
+     */
+    private void send(UserApiOperation picked, long intendedStart, Map<UserApiOperation, OperationStats> allStats) {
+        Optional<UUID> id = switch (picked) {
+            case UPDATE -> randomKnownId(false);
+            case DELETE -> randomKnownId(true);
+            default -> Optional.empty();
+        };
+        UserApiOperation operation = (picked == UserApiOperation.UPDATE || picked == UserApiOperation.DELETE)
+                                     && id.isEmpty() ? UserApiOperation.CREATE : picked;
+        HttpRequest request = switch (operation) {
+            case CREATE -> json(uri(""), "POST", randomUserJson(true));
+            case UPDATE -> json(uri("/" + id.orElseThrow()), "PUT", randomUserJson(false));
+            case DELETE -> HttpRequest.newBuilder(uri("/" + id.orElseThrow())).DELETE().build();
+            case RANGE_QUERY -> HttpRequest.newBuilder(uri(randomRangeQuery())).GET().build();
+        };
+        OperationStats stats = allStats.get(operation);
+        inFlight.incrementAndGet();
+        CompletableFuture<HttpResponse<String>> response = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        response.whenComplete((result, error) -> {
+            long latency = System.nanoTime() - intendedStart;
+            boolean success = error == null && result.statusCode() < 400;
+            stats.record(latency, success);
+            if (success && "POST".equals(request.method())) {
+                rememberCreatedId(result.body());
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    private void print(Map<UserApiOperation, OperationStats> stats) {
+        OperationStats.printHeader(System.out);
+        stats.forEach((operation, operationStats) ->
+                operationStats.print(System.out, operation.name(), settings.duration()));
+    }
+
+    private void awaitInFlight() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+        if (inFlight.get() > 0) {
+            log.warn("{} requests still in flight after waiting 30s", inFlight.get());
+        }
+    }
+
+    private Optional<UUID> randomKnownId(boolean remove) {
+        synchronized (knownIds) {
+            if (knownIds.isEmpty()) {
+                return Optional.empty();
+            }
+            int index = random.nextInt(knownIds.size());
+            UUID id = knownIds.get(index);
+            if (remove) {
+                knownIds.set(index, knownIds.get(knownIds.size() - 1));
+                knownIds.remove(knownIds.size() - 1);
+            }
+            return Optional.of(id);
+        }
+    }
+
+    private void rememberCreatedId(String body) {
+        Matcher matcher = ID_PATTERN.matcher(body);
+        if (matcher.find()) {
+            synchronized (knownIds) {
+                knownIds.add(UUID.fromString(matcher.group(1)));
+            }
+        }
+    }
+
+    private String randomUserJson(boolean create) {
+        long n = emailSequence.incrementAndGet();
+        LocalDate birthDate = EARLIEST_BIRTH_DATE.plusDays(random.nextInt(BIRTH_DATE_SPAN_DAYS));
+        if (!create) {
+            return "{\"firstName\":\"Updated%d\",\"birthDate\":\"%s\"}".formatted(n, birthDate);
+        }
+        return ("{\"email\":\"loadtest-%s-%d@example.com\",\"firstName\":\"First%d\",\"lastName\":\"Last%d\"," +
+                "\"birthDate\":\"%s\",\"address\":\"Ukraine, Lviv\",\"phoneNumber\":\"380%09d\"}")
+                .formatted(runId, n, n, n, birthDate, n % 1_000_000_000);
+    }
+
+    private String randomRangeQuery() {
+        LocalDate from = EARLIEST_BIRTH_DATE.plusDays(random.nextInt(BIRTH_DATE_SPAN_DAYS));
+        return "?from=%s&to=%s&pageIndex=0&pageSize=%d".formatted(from, from.plusDays(settings.rangeDays()),
+                settings.pageSize());
+    }
+
+    private URI uri(String suffix) {
+        return settings.baseUrl().resolve("/api/v1/users" + suffix);
+    }
+
+    private static HttpRequest json(URI uri, String method, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+}
@@ -0,0 +1,8 @@
+package org.example.clearsolutionstest.loadtest;
+
+public enum UserApiOperation {
+    CREATE,
+    UPDATE,
+    DELETE,
+    RANGE_QUERY
+}
@@ -0,0 +1,88 @@
+package org.example.clearsolutionstest.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.example.clearsolutionstest.controller.UserRows;
+import org.example.clearsolutionstest.controller.UserRowsWriter;
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.service.impl.SyntheticUserGenerator;
+import org.modelmapper.ModelMapper;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpMethod;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Compares bytes allocated and throughput of writing a page of users as JSON, mapped to {@link GetUserDto} with a
+ * {@link Link} each and serialized by Jackson data binding as the controller did before, and written straight from the
+ * entities by {@link UserRowsWriter}. Run with
+ * {@code ./mvnw -Pload-test test-compile exec:java -Dloadtest.main-class=org.example.clearsolutionstest.loadtest.UserJsonAllocationBenchmark},
+ * {@code -Dbenchmark.page-size=50} sets the number of users per page.
+ */
+public class UserJsonAllocationBenchmark {
+
+    private static final int PAGES = 50_000;
+
+    private static final String USERS_HREF = "http://localhost:8080/api/v1/users";
+
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private static final ModelMapper MODEL_MAPPER = new ModelMapper();
+
+    private static final UserRowsWriter WRITER = new UserRowsWriter(OBJECT_MAPPER);
+
+    public static void main(String[] args) throws Exception {
+        int pageSize = Integer.getInteger("benchmark.page-size", 50);
+        SyntheticUserGenerator generator = new SyntheticUserGenerator(42, LocalDate.of(2024, 1, 1));
+        List<User> users = LongStream.range(0, pageSize).mapToObj(generator::generate).toList();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        System.out.printf("%-20s %16s %14s%n", "writer", "bytes alloc/page", "pages/s");
+        for (int round = 0; round < 2; round++) {
+            // The first round only warms up
+            boolean print = round == 1;
+            run("GetUserDto+Jackson", print, body, () -> OBJECT_MAPPER.writeValue(body, users.stream()
+                    .map(user -> {
+                        GetUserDto dto = MODEL_MAPPER.map(user, GetUserDto.class);
+                        dto.add(Link.of(USERS_HREF + "/" + user.getId())
+                                .withRel("selfDelete")
+                                .withType(HttpMethod.DELETE.name()));
+                        return dto;
+                    })
+                    .toList()));
+            run("UserRowsWriter", print, body, () -> WRITER.write(new UserRows(users, USERS_HREF), body));
+        }
+    }
+
+    private static void run(String name, boolean print, ByteArrayOutputStream body, Page page) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        long bytes = 0;
+        for (int i = 0; i < PAGES; i++) {
+            body.reset();
+            page.write();
+            bytes += body.size();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        if (print && bytes > 0) {
+            System.out.printf("%-20s %16d %14.0f%n", name, allocated / PAGES, PAGES / seconds);
+        }
+    }
+
+    private interface Page {
+
+        void write() throws Exception;
+
+    }
+
+}
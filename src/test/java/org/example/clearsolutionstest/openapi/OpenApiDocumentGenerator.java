@@ -0,0 +1,54 @@
+package org.example.clearsolutionstest.openapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.example.clearsolutionstest.ClearSolutionsTestApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the OpenAPI document of the application to the file given as the only argument. Starts the application on
+ * a random port with runtime scanning enabled, reads {@code /v3/api-docs} and stores it without the server list,
+ * which would name that port, so clients resolve paths against the host serving the file. Keys are sorted and
+ * indented, so the document only changes with the annotations.
+ * <p>
+ * Runs in the {@code prepare-package} phase with the output in {@code static/openapi.json} of the classes
+ * directory, so the jar serves it as {@code /openapi.json} while runtime scanning stays off. Skip it with
+ * {@code -Dopenapi.skip=true}.
+ */
+public class OpenApiDocumentGenerator {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path output = Path.of(args[0]);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ClearSolutionsTestApplication.class)
+                .run("--server.port=0",
+                        "--springdoc.api-docs.enabled=true",
+                        "--springdoc.writer-with-order-by-keys=true",
+                        "--application.outbox.poller.enabled=false")) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v3/api-docs")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("OpenAPI document request failed with " + response.statusCode());
+            }
+            ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            ObjectNode document = (ObjectNode) objectMapper.readTree(response.body());
+            document.remove("servers");
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            objectMapper.writeValue(output.toFile(), document);
+            System.out.println("Wrote OpenAPI document to " + output.toAbsolutePath());
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package org.example.clearsolutionstest.repository;
+
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Records the JDBC statements the current thread executes through a {@link #wrap wrapped} data source and the rows
+ * it reads from their results, so tests can hold operations to a budget of database round trips. A batch counts as
+ * one statement, like the round trip it is. Statements of other threads, such as pollers, are not recorded.
+ */
+public final class StatementRecorder {
+
+    private static final ThreadLocal<Recording> CURRENT = new ThreadLocal<>();
+
+    private StatementRecorder() {
+    }
+
+    public static DataSource wrap(DataSource dataSource) {
+        return proxy(dataSource, (method, result, args) ->
+                result instanceof Connection connection ? wrapConnection(connection) : result);
+    }
+
+    /**
+     * Runs {@code operation} and returns what it executed.
+     *
+     * @param flushCount Hibernate's flush count, read before and after, e.g. {@code Statistics::getFlushCount}
+     */
+    public static Recording record(Runnable operation, LongSupplier flushCount) {
+        Recording recording = new Recording();
+        Recording outer = CURRENT.get();
+        long flushesBefore = flushCount.getAsLong();
+        CURRENT.set(recording);
+        try {
+            operation.run();
+        } finally {
+            CURRENT.set(outer);
+        }
+        recording.flushes = flushCount.getAsLong() - flushesBefore;
+        return recording;
+    }
+
+    public static void assertWithinBudget(Recording recording, int statements, long rows, long flushes) {
+        assertAll(
+                () -> assertTrue(recording.statements.size() <= statements,
+                        () -> "Expected at most %d statements, executed %s".formatted(statements, recording)),
+                () -> assertTrue(recording.rows <= rows,
+                        () -> "Expected at most %d rows, read %s".formatted(rows, recording)),
+                () -> assertTrue(recording.flushes <= flushes,
+                        () -> "Expected at most %d flushes, did %s".formatted(flushes, recording))
+        );
+    }
+
+    private static Connection wrapConnection(Connection connection) {
+        return proxy(connection, (method, result, args) -> {
+            if (result instanceof Statement statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                return wrapStatement(statement, sql);
+            }
+            return result;
+        });
+    }
+
+    private static Statement wrapStatement(Statement statement, String preparedSql) {
+        return proxy(statement, (method, result, args) -> {
+            Recording recording = CURRENT.get();
+            if (recording != null && method.getName().startsWith("execute")) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+                recording.statements.add(method.getName().equals("executeBatch") ? "batch: " + sql : sql);
+            }
+            return result instanceof ResultSet resultSet ? wrapResultSet(resultSet) : result;
+        });
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet) {
+        return proxy(resultSet, (method, result, args) -> {
+            Recording recording = CURRENT.get();
+            if (recording != null && method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                recording.rows++;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Proxy of all interfaces of {@code target} passing every result through {@code after}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, ResultHandler after) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return after.handle(method, result, args);
+        };
+        return (T) Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(),
+                ClassUtils.getAllInterfacesForClass(target.getClass(), StatementRecorder.class.getClassLoader()),
+                handler);
+    }
+
+    @FunctionalInterface
+    private interface ResultHandler {
+
+        Object handle(java.lang.reflect.Method method, Object result, Object[] args) throws Throwable;
+
+    }
+
+    public static final class Recording {
+
+        private final List<String> statements = new ArrayList<>();
+
+        private long rows;
+
+        private long flushes;
+
+        public List<String> statements() {
+            return statements;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public long flushes() {
+            return flushes;
+        }
+
+        @Override
+        public String toString() {
+            return "%d statements, %d rows, %d flushes: %s".formatted(statements.size(), rows, flushes, statements);
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+package org.example.clearsolutionstest.repository;
+
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.config.TestRepositoryConfig;
+import org.example.clearsolutionstest.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ContextConfiguration(classes = TestRepositoryConfig.class)
+class UserBirthDateCountRepositoryTest {
+
+    @Autowired
+    UserBirthDateCountRepository userBirthDateCountRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void add_shouldCreateAndUpdateDailyCounts() {
+        //given
+        LocalDate day = LocalDate.of(2000, 2, 1);
+        LocalDate nextDay = day.plusDays(1);
+        //when
+        userBirthDateCountRepository.add(day, 1);
+        userBirthDateCountRepository.add(day, 1);
+        userBirthDateCountRepository.add(nextDay, 1);
+        userBirthDateCountRepository.add(day, -1);
+        //then
+        assertEquals(1, userBirthDateCountRepository.sumByBirthDateRange(day, day));
+        assertEquals(2, userBirthDateCountRepository.sumByBirthDateRange(day, nextDay));
+        assertEquals(0, userBirthDateCountRepository.sumByBirthDateRange(day.minusYears(1), day.minusDays(1)));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void add_shouldCountBoth_ifTwoTransactionsCreateSameDayAtOnce() throws Exception {
+        //given
+        LocalDate day = LocalDate.of(2000, 2, 1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch firstInserted = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            //when
+            Future<?> first = executor.submit(() -> transaction.executeWithoutResult(status -> {
+                userBirthDateCountRepository.add(day, 1);
+                firstInserted.countDown();
+                await(secondStarted);
+                // Lets the second transaction reach its insert of the same day before this one commits
+                sleep();
+            }));
+            Future<?> second = executor.submit(() -> {
+                await(firstInserted);
+                transaction.executeWithoutResult(status -> {
+                    secondStarted.countDown();
+                    userBirthDateCountRepository.add(day, 1);
+                });
+            });
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+            //then
+            assertEquals(2, userBirthDateCountRepository.sumByBirthDateRange(day, day));
+        } finally {
+            executor.shutdownNow();
+            userBirthDateCountRepository.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    void insertCountsOfUsers_shouldCountUsersPerBirthDate() {
+        //given
+        userRepository.saveAllAndFlush(List.of(
+                new User(null, "email1@gmail.com", "first 1", "last 1",
+                        LocalDate.of(2000, 1, 1), "Country 1, City 1", "3803424234242"),
+                new User(null, "email2@gmail.com", "first 2", "last 2",
+                        LocalDate.of(2000, 1, 1), "Country 2, City 2", "3803424234242"),
+                new User(null, "email3@gmail.com", "first 3", "last 3",
+                        LocalDate.of(2000, 3, 1), "Country 3, City 3", "3801243425253")
+        ));
+        userBirthDateCountRepository.add(LocalDate.of(1999, 1, 1), 5);
+        //when
+        userBirthDateCountRepository.deleteAllRows();
+        int days = userBirthDateCountRepository.insertCountsOfUsers();
+        //then
+        assertEquals(2, days);
+        assertEquals(3, userBirthDateCountRepository.sumByBirthDateRange(LocalDate.of(1999, 1, 1), LocalDate.of(2000, 12, 31)));
+    }
+
+    @SneakyThrows
+    private static void await(CountDownLatch latch) {
+        assertTrue(latch.await(5, TimeUnit.SECONDS), "Other transaction should have started");
+    }
+
+    @SneakyThrows
+    private static void sleep() {
+        Thread.sleep(200);
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.example.clearsolutionstest.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.clearsolutionstest.config.TestRepositoryConfig;
+import org.example.clearsolutionstest.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@ContextConfiguration(classes = TestRepositoryConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserRepositoryCacheTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void init() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void findById_shouldBeServedFromSecondLevelCache_afterUserWasSaved() {
+        //given
+        User user = userRepository.save(new User(null, "email1@gmail.com", "first 1", "last 1",
+                LocalDate.of(2000, 1, 1), "Country 1, City 1", "3803424234242"));
+        statistics.clear();
+        //when
+        userRepository.findById(user.getId());
+        userRepository.findById(user.getId());
+        //then
+        assertEquals(0, statistics.getEntityLoadCount(), "User should not be loaded from database");
+        assertEquals(2, statistics.getSecondLevelCacheHitCount(), "Both lookups should hit second-level cache");
+    }
+
+    @Test
+    void getAllByBirthDateRange_shouldBeServedFromQueryCache_ifUsersWereNotChanged() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 5, 1);
+        userRepository.saveAll(List.of(
+                new User(null, "email1@gmail.com", "first 1", "last 1",
+                        LocalDate.of(2000, 1, 1), "Country 1, City 1", "3803424234242"),
+                new User(null, "email2@gmail.com", "first 2", "last 2",
+                        LocalDate.of(2000, 2, 1), "Country 2, City 2", "3801243425253")
+        ));
+        userRepository.getAllByBirthDateRange(from, to, Pageable.ofSize(10));
+        statistics.clear();
+        //when
+        List<User> actual = userRepository.getAllByBirthDateRange(from, to, Pageable.ofSize(10));
+        //then
+        assertEquals(2, actual.size(), "Should return cached users");
+        assertEquals(1, statistics.getQueryCacheHitCount(), "Should hit query cache");
+        assertEquals(0, statistics.getQueryExecutionCount(), "Should not execute query");
+    }
+
+    @Test
+    void getAllByBirthDateRange_shouldNotReturnStaleResult_afterUserWasSaved() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 5, 1);
+        userRepository.save(new User(null, "email1@gmail.com", "first 1", "last 1",
+                LocalDate.of(2000, 1, 1), "Country 1, City 1", "3803424234242"));
+        userRepository.getAllByBirthDateRange(from, to, Pageable.ofSize(10));
+        userRepository.save(new User(null, "email2@gmail.com", "first 2", "last 2",
+                LocalDate.of(2000, 2, 1), "Country 2, City 2", "3801243425253"));
+        //when
+        List<User> actual = userRepository.getAllByBirthDateRange(from, to, Pageable.ofSize(10));
+        //then
+        assertEquals(2, actual.size(), "Query cache should be invalidated by write");
+    }
+
+}
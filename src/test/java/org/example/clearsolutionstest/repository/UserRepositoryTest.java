@@ -2,15 +2,21 @@ package org.example.clearsolutionstest.repository;
 
 import org.example.clearsolutionstest.config.TestRepositoryConfig;
 import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -59,6 +65,44 @@ class UserRepositoryTest {
         assertTrue(actual.isEmpty(), "should be empty");
     }
 
+    @Test
+    void getFieldsByBirthDateRange_shouldPageEveryUserInRangeExactlyOnce_inEverySortOrder() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 12, 31);
+        List<User> users = userRepository.saveAllAndFlush(IntStream.range(0, 20)
+                .mapToObj(i -> new User(null, "email%d@gmail.com".formatted(19 - i), "first " + i, "last " + i % 3,
+                        LocalDate.of(1999, 12, 30).plusMonths(i % 14), "Country %d, City %d".formatted(i, i),
+                        "3803424234242"))
+                .toList());
+        List<UUID> inRange = users.stream()
+                .filter(u -> !u.getBirthDate().isBefore(from) && !u.getBirthDate().isAfter(to))
+                .map(User::getId)
+                .toList();
+        for (UserSort sort : UserSort.values()) {
+            //when
+            List<User> pages = new ArrayList<>();
+            List<User> indexOrderPages = new ArrayList<>();
+            for (int pageIndex = 0; pageIndex * 3 < inRange.size() + 3; pageIndex++) {
+                PageRequest pageable = PageRequest.of(pageIndex, 3, sort.getSort());
+                pages.addAll(userRepository.getFieldsByBirthDateRange(from, to, UserField.ALL, pageable));
+                indexOrderPages.addAll(userRepository.getFieldsByBirthDateRangeInIndexOrder(from, to, UserField.ALL,
+                        sort, pageable));
+            }
+            //then
+            List<UUID> ids = pages.stream().map(User::getId).toList();
+            assertEquals(inRange.size(), ids.size(), sort + " pages should not repeat users");
+            assertTrue(ids.containsAll(inRange), sort + " pages should not skip users");
+            assertEquals(pages, indexOrderPages, sort + " index order should be the same order");
+            List<String> sortedValues = pages.stream().map(user -> String.valueOf(switch (sort) {
+                case BIRTH_DATE -> user.getBirthDate();
+                case LAST_NAME -> user.getLastName();
+                case EMAIL -> user.getEmail();
+            })).toList();
+            assertEquals(sortedValues.stream().sorted().toList(), sortedValues, "Pages should be in " + sort + " order");
+        }
+    }
+
     @Test
     void findByEmail_shouldReturnRightUser() {
         //given
@@ -0,0 +1,57 @@
+package org.example.clearsolutionstest.repository;
+
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.service.impl.SyntheticUserGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mapBlocks_shouldReadBackEveryWrittenUser_acrossSeveralBlocks() {
+        //given
+        SyntheticUserGenerator generator = new SyntheticUserGenerator(42, LocalDate.of(2024, 1, 1));
+        // About 120 bytes per user, so this needs more than one block
+        List<User> users = new ArrayList<>(LongStream.range(0, 200_000).mapToObj(generator::generate).toList());
+        users.add(new User(UUID.randomUUID(), "email@gmail.com", "Андрій", "Шевченко", LocalDate.of(1990, 1, 1),
+                null, null));
+        Path path = directory.resolve("users.snapshot");
+        //when
+        try (UserSnapshotFile.Writer writer = UserSnapshotFile.create(path)) {
+            users.forEach(writer::add);
+        }
+        List<UserSnapshotFile.Block> blocks = UserSnapshotFile.mapBlocks(path);
+        //then
+        List<User> read = new ArrayList<>();
+        blocks.forEach(block -> block.iterator().forEachRemaining(read::add));
+        assertTrue(blocks.size() > 1, "Users should be split into blocks");
+        assertEquals(users, read);
+    }
+
+    @Test
+    @SneakyThrows
+    void mapBlocks_shouldThrowIllegalArgumentException_ifFileIsNotSnapshot() {
+        //given
+        Path path = directory.resolve("other.bin");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        //then
+        assertThrows(IllegalArgumentException.class, () -> UserSnapshotFile.mapBlocks(path));
+    }
+
+}
@@ -0,0 +1,245 @@
+package org.example.clearsolutionstest.repository.shard;
+
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.entity.UserTombstone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedUserRepositoryTest {
+
+    List<EmbeddedDatabase> databases = new ArrayList<>();
+
+    ShardedUserRepository repository;
+
+    @AfterEach
+    @SneakyThrows
+    void shutdown() {
+        if (repository != null) {
+            repository.close();
+        }
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @Test
+    void getAllByBirthDateRange_shouldMergeShardsInBirthDateOrderAndPageCorrectly() {
+        //given
+        repository = new ShardedUserRepository(createShards(3), new HashedIdShardRouter(3));
+        List<User> users = IntStream.range(0, 40)
+                .mapToObj(i -> user(i, LocalDate.of(1990, 1, 1).plusDays(i % 13)))
+                .map(repository::insert)
+                .toList();
+        LocalDate from = LocalDate.of(1990, 1, 3);
+        LocalDate to = LocalDate.of(1990, 1, 10);
+        List<User> expected = users.stream()
+                .filter(u -> !u.getBirthDate().isBefore(from) && !u.getBirthDate().isAfter(to))
+                .sorted(ShardedUserRepository.BIRTH_DATE_ORDER)
+                .toList();
+        //when
+        List<User> actual = new ArrayList<>();
+        for (int pageIndex = 0; pageIndex * 7 < expected.size() + 7; pageIndex++) {
+            actual.addAll(repository.getAllByBirthDateRange(from, to, pageIndex, 7));
+        }
+        //then
+        assertEquals(expected, actual, "Pages should contain every user in range exactly once in birth date order");
+    }
+
+    @Test
+    void getFieldsByBirthDateRange_shouldMergeShardsInSortOrderAndPageCorrectly() {
+        //given
+        repository = new ShardedUserRepository(createShards(3), new HashedIdShardRouter(3));
+        List<User> users = IntStream.range(0, 40)
+                .mapToObj(i -> user(i, LocalDate.of(1990, 1, 1).plusDays(i % 13)))
+                .map(repository::insert)
+                .toList();
+        LocalDate from = LocalDate.of(1990, 1, 3);
+        LocalDate to = LocalDate.of(1990, 1, 10);
+        List<UUID> expected = users.stream()
+                .filter(u -> !u.getBirthDate().isBefore(from) && !u.getBirthDate().isAfter(to))
+                .sorted(ShardedUserRepository.LAST_NAME_ORDER)
+                .map(User::getId)
+                .toList();
+        //when
+        List<User> actual = new ArrayList<>();
+        for (int pageIndex = 0; pageIndex * 7 < expected.size() + 7; pageIndex++) {
+            actual.addAll(repository.getFieldsByBirthDateRange(from, to, EnumSet.of(UserField.ID), UserSort.LAST_NAME,
+                    pageIndex, 7));
+        }
+        //then
+        assertEquals(expected, actual.stream().map(User::getId).toList(),
+                "Pages should contain every user in range exactly once in last name order");
+        assertTrue(actual.stream().allMatch(u -> u.getLastName() == null && u.getBirthDate() == null),
+                "Only requested fields should be set");
+    }
+
+    @Test
+    void getAllByBirthMonthDayRange_shouldMergeShardsInMonthDayOrder() {
+        //given
+        repository = new ShardedUserRepository(createShards(2), new BirthYearRangeShardRouter(List.of(Integer.MIN_VALUE, 1990)));
+        List<User> users = IntStream.range(0, 20)
+                .mapToObj(i -> user(i, LocalDate.of(1980 + i, 3, 1).plusDays(i % 7)))
+                .map(repository::insert)
+                .toList();
+        List<User> expected = users.stream()
+                .filter(u -> u.getBirthMonthDay() >= 302 && u.getBirthMonthDay() <= 305)
+                .sorted(ShardedUserRepository.BIRTH_MONTH_DAY_ORDER)
+                .toList();
+        //when
+        List<User> firstPage = repository.getAllByBirthMonthDayRange(302, 305, 0, 5);
+        List<User> rest = repository.getAllByBirthMonthDayRange(302, 305, 5, 50);
+        //then
+        assertEquals(expected.subList(0, 5), firstPage);
+        assertEquals(expected.subList(5, expected.size()), rest);
+        assertEquals(expected.size(), repository.countByBirthMonthDayRange(302, 305));
+    }
+
+    @Test
+    void insert_shouldPlaceUserIntoShardOwningItsBirthYear() {
+        //given
+        List<DataSource> shards = createShards(3);
+        repository = new ShardedUserRepository(shards, new BirthYearRangeShardRouter(List.of(Integer.MIN_VALUE, 1970, 1990)));
+        //when
+        repository.insert(user(1, LocalDate.of(1965, 5, 5)));
+        repository.insert(user(2, LocalDate.of(1980, 5, 5)));
+        repository.insert(user(3, LocalDate.of(1990, 1, 1)));
+        repository.insert(user(4, LocalDate.of(2001, 5, 5)));
+        //then
+        assertEquals(1, countUsers(shards.get(0)));
+        assertEquals(1, countUsers(shards.get(1)));
+        assertEquals(2, countUsers(shards.get(2)));
+    }
+
+    @Test
+    void update_shouldMoveUserToAnotherShard_ifBirthYearMovedOutOfShardRange() {
+        //given
+        List<DataSource> shards = createShards(2);
+        repository = new ShardedUserRepository(shards, new BirthYearRangeShardRouter(List.of(Integer.MIN_VALUE, 1990)));
+        User user = repository.insert(user(1, LocalDate.of(1980, 5, 5)));
+        User updated = new User(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                LocalDate.of(1995, 5, 5), user.getAddress(), user.getPhoneNumber());
+        //when
+        repository.update(user, updated);
+        //then
+        assertEquals(0, countUsers(shards.get(0)));
+        assertEquals(1, countUsers(shards.get(1)));
+        assertEquals(Optional.of(updated), repository.findById(user.getId()));
+    }
+
+    @Test
+    void findByIdAndDeleteById_shouldFindUserOnAnyShard() {
+        //given
+        repository = new ShardedUserRepository(createShards(2), new BirthYearRangeShardRouter(List.of(Integer.MIN_VALUE, 1990)));
+        User user = repository.insert(user(1, LocalDate.of(1995, 5, 5)));
+        //when
+        Optional<User> found = repository.findById(user.getId());
+        repository.deleteById(user.getId(), LocalDateTime.now());
+        //then
+        assertEquals(Optional.of(user), found);
+        assertTrue(repository.findById(user.getId()).isEmpty(), "User should be deleted");
+        assertTrue(repository.findByEmail(user.getEmail()).isEmpty(), "User should be deleted");
+    }
+
+    @Test
+    void findChangedSinceAndFindDeletedSince_shouldReadChangesOfAllShardsInWindow() {
+        //given
+        repository = new ShardedUserRepository(createShards(3), new HashedIdShardRouter(3));
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 10, 0);
+        List<User> users = IntStream.range(0, 12)
+                .mapToObj(i -> {
+                    User user = user(i, LocalDate.of(1990, 1, 1).plusDays(i));
+                    user.setUpdatedAt(since.plusSeconds(i % 4));
+                    return repository.insert(user);
+                })
+                .toList();
+        User deleted = users.get(5);
+        repository.deleteById(deleted.getId(), since.plusSeconds(2));
+        LocalDateTime until = since.plusSeconds(2);
+        //when
+        List<User> changed = repository.findChangedSince(since, new UUID(0, 0), until, 100);
+        List<UserTombstone> tombstones = repository.findDeletedSince(since, new UUID(0, 0), until, 100);
+        //then
+        assertEquals(users.stream().filter(u -> u != deleted && !u.getUpdatedAt().isAfter(until)).count(),
+                changed.size());
+        assertEquals(List.of(new UserTombstone(deleted.getId(), since.plusSeconds(2))), tombstones);
+        assertEquals(1, repository.deleteTombstonesBefore(since.plusSeconds(3)));
+    }
+
+    @Test
+    void findAllById_shouldFindUsersOnAllShardsInBatches() {
+        //given
+        repository = new ShardedUserRepository(createShards(3), new HashedIdShardRouter(3));
+        List<User> users = IntStream.range(0, 25)
+                .mapToObj(i -> user(i, LocalDate.of(1990, 1, 1).plusDays(i)))
+                .map(repository::insert)
+                .toList();
+        List<UUID> ids = new ArrayList<>(users.stream().map(User::getId).toList());
+        ids.add(UUID.randomUUID());
+        //when
+        Map<UUID, User> found = repository.findAllById(ids, 4);
+        //then
+        assertEquals(users.size(), found.size());
+        users.forEach(user -> assertEquals(user, found.get(user.getId())));
+    }
+
+    @Test
+    void birthYearRangeShardRouter_shouldRouteRangeOnlyToOverlappingShards() {
+        //given
+        BirthYearRangeShardRouter router = new BirthYearRangeShardRouter(List.of(Integer.MIN_VALUE, 1970, 1990));
+        //then
+        assertEquals(List.of(0), router.shardsForBirthDateRange(LocalDate.of(1950, 1, 1), LocalDate.of(1969, 12, 31)));
+        assertEquals(List.of(1, 2), router.shardsForBirthDateRange(LocalDate.of(1980, 1, 1), LocalDate.of(1990, 1, 1)));
+        assertEquals(List.of(0, 1, 2), router.shardsForId(UUID.randomUUID()));
+    }
+
+    @Test
+    void birthYearRangeShardRouter_shouldThrowIllegalArgumentException_ifYearsAreMissingOrNotAscending() {
+        //then
+        assertThrows(IllegalArgumentException.class, () -> new BirthYearRangeShardRouter(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new BirthYearRangeShardRouter(List.of(1990, 1970)));
+        assertThrows(IllegalArgumentException.class, () -> new HashedIdShardRouter(0));
+    }
+
+    private List<DataSource> createShards(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> {
+                    EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                            .setType(EmbeddedDatabaseType.H2)
+                            .generateUniqueName(true)
+                            .build();
+                    databases.add(database);
+                    return (DataSource) database;
+                })
+                .toList();
+    }
+
+    private Integer countUsers(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from users", Integer.class);
+    }
+
+    private User user(int i, LocalDate birthDate) {
+        return new User(null, "email%d@gmail.com".formatted(i), "first " + i, "last " + i,
+                birthDate, "Country %d, City %d".formatted(i, i), "3803424234242");
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.UserBirthDateCount;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BirthDateCountSnapshotTest {
+
+    @Test
+    void count_shouldSumUsersBornWithinRange() {
+        //given
+        BirthDateCountSnapshot snapshot = BirthDateCountSnapshot.of(List.of(
+                new UserBirthDateCount(LocalDate.of(1990, 1, 1), 3),
+                new UserBirthDateCount(LocalDate.of(1990, 1, 5), 2),
+                new UserBirthDateCount(LocalDate.of(2000, 6, 1), 4),
+                new UserBirthDateCount(LocalDate.of(2001, 1, 1), 1)
+        ));
+        //then
+        assertEquals(3, snapshot.count(LocalDate.of(1990, 1, 1), LocalDate.of(1990, 1, 1)));
+        assertEquals(5, snapshot.count(LocalDate.of(1990, 1, 1), LocalDate.of(1990, 1, 5)));
+        assertEquals(7, snapshot.count(LocalDate.of(1990, 1, 2), LocalDate.of(2001, 1, 1)));
+        assertEquals(0, snapshot.count(LocalDate.of(1990, 1, 2), LocalDate.of(1990, 1, 4)));
+    }
+
+    @Test
+    void count_shouldHandleRangesOutsideKnownDays() {
+        //given
+        BirthDateCountSnapshot snapshot = BirthDateCountSnapshot.of(List.of(
+                new UserBirthDateCount(LocalDate.of(1990, 1, 1), 3),
+                new UserBirthDateCount(LocalDate.of(1995, 1, 1), 2)
+        ));
+        BirthDateCountSnapshot empty = BirthDateCountSnapshot.of(List.of());
+        //then
+        assertEquals(5, snapshot.count(LocalDate.of(1900, 1, 1), LocalDate.of(2100, 1, 1)));
+        assertEquals(0, snapshot.count(LocalDate.of(1900, 1, 1), LocalDate.of(1989, 12, 31)));
+        assertEquals(0, snapshot.count(LocalDate.of(1995, 1, 2), LocalDate.of(2100, 1, 1)));
+        assertEquals(0, empty.count(LocalDate.of(1900, 1, 1), LocalDate.of(2100, 1, 1)));
+    }
+
+}
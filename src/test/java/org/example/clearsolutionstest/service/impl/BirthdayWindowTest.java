@@ -0,0 +1,109 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.service.impl.BirthdayWindow.MonthDayRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BirthdayWindowTest {
+
+    @Test
+    void of_shouldReturnOneRange_ifWindowEndsInSameYear() {
+        //when
+        BirthdayWindow window = BirthdayWindow.of(LocalDate.of(2024, 5, 10), 7);
+        //then
+        assertEquals(List.of(new MonthDayRange(510, 516)), window.ranges());
+    }
+
+    @Test
+    void of_shouldSplitRangeAtNewYear() {
+        //when
+        BirthdayWindow window = BirthdayWindow.of(LocalDate.of(2024, 12, 28), 7);
+        //then
+        assertEquals(List.of(new MonthDayRange(1228, 1231), new MonthDayRange(101, 103)), window.ranges());
+    }
+
+    @Test
+    void of_shouldIncludeFebruary29_onlyOnFebruary28OfNonLeapYears() {
+        //then
+        assertEquals(List.of(new MonthDayRange(225, 229)), BirthdayWindow.of(LocalDate.of(2025, 2, 25), 4).ranges());
+        assertEquals(List.of(new MonthDayRange(225, 228)), BirthdayWindow.of(LocalDate.of(2024, 2, 25), 4).ranges());
+        assertEquals(List.of(new MonthDayRange(301, 302)), BirthdayWindow.of(LocalDate.of(2025, 3, 1), 2).ranges());
+        assertEquals(List.of(new MonthDayRange(1231, 1231), new MonthDayRange(101, 229)),
+                BirthdayWindow.of(LocalDate.of(2024, 12, 31), 60).ranges());
+    }
+
+    @Test
+    void of_shouldCoverWholeYear_forMaxDays() {
+        //then
+        assertEquals(List.of(new MonthDayRange(229, 1231), new MonthDayRange(101, 228)),
+                BirthdayWindow.of(LocalDate.of(2024, 2, 29), 366).ranges());
+        assertEquals(List.of(new MonthDayRange(301, 1231), new MonthDayRange(101, 300)),
+                BirthdayWindow.of(LocalDate.of(2023, 3, 1), 366).ranges());
+        assertEquals(List.of(new MonthDayRange(101, 1231)), BirthdayWindow.of(LocalDate.of(2024, 1, 1), 366).ranges());
+        assertEquals(List.of(new MonthDayRange(229, 1231), new MonthDayRange(101, 227)),
+                BirthdayWindow.of(LocalDate.of(2024, 2, 29), 365).ranges());
+    }
+
+    @Test
+    void of_shouldThrowIllegalArgumentException_ifDaysAreOutOfBounds() {
+        //then
+        assertThrows(IllegalArgumentException.class, () -> BirthdayWindow.of(LocalDate.of(2024, 1, 1), 0));
+        assertThrows(IllegalArgumentException.class, () -> BirthdayWindow.of(LocalDate.of(2024, 1, 1), 367));
+    }
+
+    @Test
+    void page_shouldPageAcrossRangesInWindowOrder() {
+        //given
+        BirthdayWindow window = BirthdayWindow.of(LocalDate.of(2024, 12, 25), 14);
+        List<User> users = IntStream.range(0, 30)
+                .mapToObj(i -> user(i, LocalDate.of(1990, 12, 20).plusDays(i)))
+                .toList();
+        FakeRangeSource source = new FakeRangeSource(users);
+        //when
+        List<User> actual = new ArrayList<>();
+        for (int pageIndex = 0; pageIndex < 5; pageIndex++) {
+            actual.addAll(window.page(pageIndex * 4L, 4, source));
+        }
+        //then
+        List<LocalDate> expected = IntStream.range(0, 14)
+                .mapToObj(i -> LocalDate.of(1990, 12, 25).plusDays(i))
+                .toList();
+        assertEquals(expected, actual.stream().map(User::getBirthDate).toList());
+    }
+
+    private static User user(int i, LocalDate birthDate) {
+        return new User(new UUID(0, i), "email%d@gmail.com".formatted(i), "first", "last", birthDate, null, null);
+    }
+
+    private record FakeRangeSource(List<User> users) implements BirthdayWindow.RangeSource {
+
+        @Override
+        public List<User> fetch(MonthDayRange range, long offset, int limit) {
+            return inRange(range).skip(offset).limit(limit).toList();
+        }
+
+        @Override
+        public long count(MonthDayRange range) {
+            return inRange(range).count();
+        }
+
+        private Stream<User> inRange(MonthDayRange range) {
+            return users.stream()
+                    .filter(user -> user.getBirthMonthDay() >= range.from() && user.getBirthMonthDay() <= range.to())
+                    .sorted(Comparator.comparingInt(User::getBirthMonthDay));
+        }
+
+    }
+
+}
@@ -0,0 +1,322 @@
+package org.example.clearsolutionstest.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
+import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserChangeType;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserOutboxEvent;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.exception.InvalidDateRangeException;
+import org.example.clearsolutionstest.repository.UserBulkLoader;
+import org.example.clearsolutionstest.repository.UserOrders;
+import org.example.clearsolutionstest.repository.UserOutboxRepository;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+class ColumnarUserServiceTest {
+
+    static final LocalDate FROM = LocalDate.of(1900, 1, 1);
+
+    static final LocalDate TO = LocalDate.of(2100, 1, 1);
+
+    SyntheticUserGenerator generator = new SyntheticUserGenerator(42, LocalDate.of(2024, 1, 1));
+
+    UserRepository userRepository = mock(UserRepository.class);
+
+    UserOutboxRepository userOutboxRepository = mock(UserOutboxRepository.class);
+
+    UserBulkLoader userBulkLoader = mock(UserBulkLoader.class);
+
+    UserServiceImpl delegate = mock(UserServiceImpl.class);
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    Map<UUID, User> database = new ConcurrentHashMap<>();
+
+    List<User> loaded = new ArrayList<>();
+
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @BeforeEach
+    void init() {
+        LongStream.range(0, 200).mapToObj(generator::generate).forEach(user -> {
+            database.put(user.getId(), user);
+            loaded.add(user);
+        });
+        given(userBulkLoader.readAll(any(), anyInt())).willAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            loaded.forEach(consumer);
+            return (long) loaded.size();
+        });
+        given(userRepository.findById(any())).willAnswer(invocation ->
+                Optional.ofNullable(database.get(invocation.<UUID>getArgument(0))));
+        given(userOutboxRepository.findAllAfter(anyLong(), any(Pageable.class))).willReturn(List.of());
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void findRowsByBirthDateRange_shouldMergeChangedUsersIntoStoredOnes_onEveryPage() {
+        //given
+        ColumnarUserService service = load(1000);
+        User moved = loaded.get(7);
+        change(service, withBirthDate(moved, moved.getBirthDate().minusYears(30)));
+        change(service, generator.generate(1000));
+        change(service, generator.generate(1001));
+        //then
+        assertPagesMatchDatabase(service, 7);
+        assertPagesMatchDatabase(service, 50);
+    }
+
+    @Test
+    void findRowsByBirthDateRange_shouldSkipDeletedUsers() {
+        //given
+        ColumnarUserService service = load(1000);
+        User deleted = loaded.get(3);
+        database.remove(deleted.getId());
+        //when
+        service.deleteUser(deleted.getId());
+        //then
+        List<User> all = service.findRowsByBirthDateRange(FROM, TO, 0, 500);
+        assertFalse(all.contains(deleted), "Deleted user should not be returned");
+        assertPagesMatchDatabase(service, 9);
+    }
+
+    @Test
+    void load_shouldReplayUsersChangedWhileLoading() {
+        //given
+        User createdWhileLoading = generator.generate(1000);
+        database.put(createdWhileLoading.getId(), createdWhileLoading);
+        given(userOutboxRepository.findMaxId()).willReturn(5L);
+        given(userOutboxRepository.findAllAfter(anyLong(), any(Pageable.class))).willAnswer(invocation ->
+                invocation.<Long>getArgument(0) == 5L ? List.of(UserOutboxEvent.builder()
+                        .withId(6L)
+                        .withUserId(createdWhileLoading.getId())
+                        .withChangeType(UserChangeType.CREATED)
+                        .build()) : List.of());
+        //when
+        ColumnarUserService service = load(1000);
+        //then
+        assertTrue(service.findRowsByBirthDateRange(FROM, TO, 0, 500).contains(createdWhileLoading),
+                "User created while loading should be replayed");
+        assertEquals(1, meterRegistry.get("users.columnar.changes").gauge().value());
+    }
+
+    @Test
+    void compact_shouldMergeChangesIntoNewStore() {
+        //given
+        ColumnarUserService service = load(2);
+        User moved = loaded.get(7);
+        change(service, withBirthDate(moved, moved.getBirthDate().plusYears(5)));
+        change(service, generator.generate(1000));
+        User deleted = loaded.get(3);
+        database.remove(deleted.getId());
+        service.deleteUser(deleted.getId());
+        //when
+        service.compact();
+        //then
+        assertEquals(0, meterRegistry.get("users.columnar.changes").gauge().value());
+        assertEquals(database.size(), meterRegistry.get("users.columnar.rows").gauge().value());
+        assertPagesMatchDatabase(service, 11);
+    }
+
+    @Test
+    @SneakyThrows
+    void deleteUser_shouldWaitForRefreshInFlight_soItsLateReadDoesNotBringUserBack() {
+        //given
+        ColumnarUserService service = load(1000);
+        User user = loaded.get(0);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(userRepository.findById(user.getId())).willAnswer(invocation -> {
+            reading.countDown();
+            release.await();
+            return Optional.of(user);
+        });
+        Future<?> refresh = executor.submit(() -> service.onUserChanged(event(user.getId())));
+        reading.await();
+        //when
+        Future<?> delete = executor.submit(() -> service.deleteUser(user.getId()));
+        //then
+        Thread.sleep(50);
+        assertFalse(delete.isDone(), "Delete should wait for the read in flight");
+        release.countDown();
+        refresh.get(5, TimeUnit.SECONDS);
+        delete.get(5, TimeUnit.SECONDS);
+        assertFalse(service.findRowsByBirthDateRange(FROM, TO, 0, 500).contains(user),
+                "Late read should not bring deleted user back");
+    }
+
+    @Test
+    void findRowsByBirthDateRange_shouldReadRangeInsideStoreTogetherWithChangedUsers() {
+        //given
+        ColumnarUserService service = load(1000);
+        List<User> sorted = loaded.stream().sorted(UserOrders.BIRTH_DATE).toList();
+        LocalDate from = sorted.get(50).getBirthDate();
+        LocalDate to = sorted.get(150).getBirthDate();
+        User moved = sorted.get(10);
+        change(service, withBirthDate(moved, from.plusDays(1)));
+        change(service, withBirthDate(generator.generate(1000), to));
+        change(service, withBirthDate(generator.generate(1001), to.plusDays(1)));
+        List<User> expected = database.values().stream()
+                .filter(user -> !user.getBirthDate().isBefore(from) && !user.getBirthDate().isAfter(to))
+                .sorted(UserOrders.BIRTH_DATE)
+                .toList();
+        //when
+        List<User> actual = new ArrayList<>();
+        for (int pageIndex = 0; pageIndex * 13 <= expected.size(); pageIndex++) {
+            actual.addAll(service.findRowsByBirthDateRange(from, to, pageIndex, 13));
+        }
+        //then
+        assertEquals(expected, actual);
+        assertEquals(expected.subList(0, 13).stream().map(User::getId).toList(),
+                service.findAllByBirthDateRange(from, to, 0, 13).stream().map(GetUserDto::getId).toList());
+        assertEquals(expected.subList(13, 26), service.findFieldsByBirthDateRange(from, to, 1, 13,
+                EnumSet.of(UserField.ID), UserSort.BIRTH_DATE));
+    }
+
+    @Test
+    void findRowsByBirthDateRange_shouldReadFromDelegate_untilStoreIsLoaded_andForInvalidRange() {
+        //given
+        ColumnarUserService service = new ColumnarUserService(delegate, userRepository, userOutboxRepository,
+                userBulkLoader, new ModelMapper(), meterRegistry, false, 1000);
+        List<User> rows = List.of(loaded.get(0));
+        given(delegate.findRowsByBirthDateRange(FROM, TO, 0, 10)).willReturn(rows);
+        given(delegate.findRowsByBirthDateRange(TO, FROM, 0, 10)).willThrow(new InvalidDateRangeException(TO, FROM));
+        //when
+        List<User> beforeLoad = service.findRowsByBirthDateRange(FROM, TO, 0, 10);
+        service.onUserChanged(event(loaded.get(1).getId()));
+        service.compact();
+        service.load();
+        //then
+        assertEquals(rows, beforeLoad);
+        assertEquals(0, meterRegistry.get("users.columnar.changes").gauge().value());
+        assertThrows(InvalidDateRangeException.class, () -> service.findRowsByBirthDateRange(TO, FROM, 0, 10));
+    }
+
+    @Test
+    void createUser_shouldShowWrittenUsersRightAway() {
+        //given
+        ColumnarUserService service = load(1000);
+        User created = generator.generate(1000);
+        CreateUserDto createUserDto = new CreateUserDto(created.getEmail(), created.getFirstName(),
+                created.getLastName(), created.getBirthDate(), created.getAddress(), created.getPhoneNumber());
+        UpdateUserDto updateUserDto = new UpdateUserDto(null, null, null, FROM, null, null);
+        given(delegate.createUser(createUserDto)).willAnswer(invocation -> {
+            database.put(created.getId(), created);
+            return created.getId();
+        });
+        willAnswer(invocation -> database.put(created.getId(), withBirthDate(created, FROM)))
+                .given(delegate).updateUser(created.getId(), updateUserDto);
+        //when
+        UUID id = service.createUser(createUserDto);
+        List<User> afterCreate = service.findRowsByBirthDateRange(FROM, TO, 0, 500);
+        service.updateUser(id, updateUserDto);
+        //then
+        assertTrue(afterCreate.contains(created), "Created user should be read from the store");
+        assertEquals(withBirthDate(created, FROM), service.findRowsByBirthDateRange(FROM, TO, 0, 1).get(0));
+        assertPagesMatchDatabase(service, 50);
+    }
+
+    @Test
+    void countByBirthDateRange_shouldDelegateQueriesTheStoreCanNotAnswer() {
+        //given
+        ColumnarUserService service = load(1000);
+        UserCountDto count = new UserCountDto(200, true, 0);
+        List<User> byLastName = List.of(loaded.get(0));
+        List<GetUserDto> birthdays = List.of(new GetUserDto());
+        MultiGetUsersDto multiGetUsersDto = new MultiGetUsersDto(List.of(loaded.get(0).getId()));
+        List<MultiGetUserResultDto> byIds = List.of(new MultiGetUserResultDto(loaded.get(0).getId(), false, null));
+        UserChangesDto changes = new UserChangesDto(List.of(), null, null);
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 0, 0);
+        given(delegate.countByBirthDateRange(FROM, TO)).willReturn(count);
+        given(delegate.findFieldsByBirthDateRange(FROM, TO, 0, 10, EnumSet.of(UserField.ID), UserSort.LAST_NAME))
+                .willReturn(byLastName);
+        given(delegate.findUpcomingBirthdays(7, 0, 10)).willReturn(birthdays);
+        given(delegate.findAllByIds(multiGetUsersDto)).willReturn(byIds);
+        given(delegate.findChangesSince(since, null, 10)).willReturn(changes);
+        //then
+        assertEquals(count, service.countByBirthDateRange(FROM, TO));
+        assertEquals(byLastName, service.findFieldsByBirthDateRange(FROM, TO, 0, 10, EnumSet.of(UserField.ID),
+                UserSort.LAST_NAME));
+        assertEquals(birthdays, service.findUpcomingBirthdays(7, 0, 10));
+        assertEquals(byIds, service.findAllByIds(multiGetUsersDto));
+        assertEquals(changes, service.findChangesSince(since, null, 10));
+    }
+
+    private ColumnarUserService load(int compactionThreshold) {
+        ColumnarUserService service = new ColumnarUserService(delegate, userRepository,
+                userOutboxRepository, userBulkLoader, new ModelMapper(), meterRegistry, false, compactionThreshold);
+        service.load();
+        return service;
+    }
+
+    private void change(ColumnarUserService service, User user) {
+        database.put(user.getId(), user);
+        service.onUserChanged(event(user.getId()));
+    }
+
+    private void assertPagesMatchDatabase(ColumnarUserService service, int pageSize) {
+        List<User> expected = database.values().stream().sorted(UserOrders.BIRTH_DATE).toList();
+        for (int pageIndex = 0; pageIndex * pageSize <= expected.size(); pageIndex++) {
+            List<User> page = expected.subList(pageIndex * pageSize,
+                    Math.min(expected.size(), (pageIndex + 1) * pageSize));
+            assertEquals(page, service.findRowsByBirthDateRange(FROM, TO, pageIndex, pageSize),
+                    "Page %d of size %d".formatted(pageIndex, pageSize));
+        }
+    }
+
+    private static User withBirthDate(User user, LocalDate birthDate) {
+        return new User(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), birthDate,
+                user.getAddress(), user.getPhoneNumber());
+    }
+
+    private static UserChangedEvent event(UUID userId) {
+        return new UserChangedEvent(userId, UserChangeType.UPDATED, null, null, null, false);
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.repository.UserOrders;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarUserStoreTest {
+
+    SyntheticUserGenerator generator = new SyntheticUserGenerator(42, LocalDate.of(2024, 1, 1));
+
+    @Test
+    void build_shouldStoreEveryUserInBirthDateAndIdOrder() {
+        //given
+        List<User> users = LongStream.range(0, 5_000).mapToObj(generator::generate).toList();
+        //when
+        ColumnarUserStore heapStore = build(users, false);
+        ColumnarUserStore offHeapStore = build(users, true);
+        //then
+        List<User> expected = users.stream().sorted(UserOrders.BIRTH_DATE).toList();
+        assertEquals(expected, IntStream.range(0, heapStore.size()).mapToObj(heapStore::userAt).toList());
+        assertEquals(expected, IntStream.range(0, offHeapStore.size()).mapToObj(offHeapStore::userAt).toList());
+    }
+
+    @Test
+    void firstIndexBorn_shouldReturnSliceOfBirthDateRange() {
+        //given
+        List<User> users = LongStream.range(0, 5_000).mapToObj(generator::generate).toList();
+        ColumnarUserStore store = build(users, false);
+        LocalDate from = LocalDate.of(1980, 1, 1);
+        LocalDate to = LocalDate.of(1980, 12, 31);
+        //when
+        int first = store.firstIndexBornOnOrAfter(from);
+        int end = store.firstIndexBornAfter(to);
+        //then
+        List<User> expected = users.stream()
+                .filter(user -> !user.getBirthDate().isBefore(from) && !user.getBirthDate().isAfter(to))
+                .sorted(UserOrders.BIRTH_DATE)
+                .toList();
+        assertTrue(!expected.isEmpty(), "Range should not be empty");
+        assertEquals(expected, IntStream.range(first, end).mapToObj(store::userAt).toList());
+        assertEquals(0, store.firstIndexBornOnOrAfter(LocalDate.of(1000, 1, 1)));
+        assertEquals(store.size(), store.firstIndexBornAfter(LocalDate.of(3000, 1, 1)));
+    }
+
+    @Test
+    void firstIndexBorn_shouldIncludeEveryUserOfSharedBirthDay_andClampDatesOutsideStoredDays() {
+        //given
+        LocalDate birthDate = LocalDate.of(1990, 6, 15);
+        List<User> users = new ArrayList<>(LongStream.range(0, 50).mapToObj(generator::generate).toList());
+        LongStream.range(100, 110)
+                .mapToObj(generator::generate)
+                .map(user -> new User(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), birthDate,
+                        user.getAddress(), user.getPhoneNumber()))
+                .forEach(users::add);
+        ColumnarUserStore store = build(users, false);
+        //when
+        int first = store.firstIndexBornOnOrAfter(birthDate);
+        int end = store.firstIndexBornAfter(birthDate);
+        //then
+        assertEquals(users.stream().filter(user -> user.getBirthDate().equals(birthDate)).count(), end - first);
+        assertEquals(birthDate, store.userAt(first).getBirthDate());
+        assertTrue(first == 0 || store.userAt(first - 1).getBirthDate().isBefore(birthDate),
+                "No user of the day should be before the first index");
+        assertEquals(0, store.firstIndexBornOnOrAfter(LocalDate.MIN));
+        assertEquals(store.size(), store.firstIndexBornAfter(LocalDate.MAX));
+    }
+
+    @Test
+    void userAt_shouldKeepNullsAndNonAsciiValues() {
+        //given
+        User withNulls = new User(generator.generate(1).getId(), "email@gmail.com", "Андрій", "Шевченко",
+                LocalDate.of(1990, 1, 1), null, null);
+        User withValues = new User(generator.generate(2).getId(), "other@gmail.com", "Андрій", "Müller",
+                LocalDate.of(1990, 1, 2), "Україна, Львів", "380123456789");
+        //when
+        ColumnarUserStore store = build(List.of(withValues, withNulls), true);
+        //then
+        assertEquals(withNulls, store.userAt(0));
+        assertEquals(withValues, store.userAt(1));
+        assertEquals(0, store.compareAt(0, withNulls));
+        assertTrue(store.compareAt(0, withValues) < 0, "First user should be ordered before second");
+    }
+
+    private static ColumnarUserStore build(List<User> users, boolean offHeap) {
+        ColumnarUserStore.Builder builder = ColumnarUserStore.builder(offHeap);
+        new ArrayList<>(users).forEach(builder::add);
+        return builder.build();
+    }
+
+}
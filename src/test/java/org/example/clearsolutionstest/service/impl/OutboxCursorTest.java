@@ -0,0 +1,73 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxCursorTest {
+
+    static final long GAP_TIMEOUT = 1_000;
+
+    @Test
+    void advance_shouldMoveWatermarkOverContiguousIds() {
+        //given
+        OutboxCursor cursor = new OutboxCursor(10);
+        //when
+        cursor.markHandled(11);
+        cursor.markHandled(12);
+        cursor.advance(0, GAP_TIMEOUT);
+        //then
+        assertEquals(12, cursor.watermark());
+        assertEquals(12, cursor.highestSeen());
+        assertTrue(cursor.missingIds(Integer.MAX_VALUE).isEmpty(), "Nothing should be missing");
+    }
+
+    @Test
+    void advance_shouldStopAtGap_untilMissingIdIsHandled() {
+        //given
+        OutboxCursor cursor = new OutboxCursor(10);
+        cursor.markHandled(11);
+        cursor.markHandled(13);
+        //when
+        cursor.advance(0, GAP_TIMEOUT);
+        //then
+        assertEquals(11, cursor.watermark());
+        assertEquals(13, cursor.highestSeen());
+        assertEquals(List.of(12L), cursor.missingIds(Integer.MAX_VALUE));
+        //when
+        assertTrue(cursor.markHandled(12), "Late event should be handled");
+        cursor.advance(10, GAP_TIMEOUT);
+        //then
+        assertEquals(13, cursor.watermark());
+        assertTrue(cursor.missingIds(Integer.MAX_VALUE).isEmpty(), "Nothing should be missing");
+    }
+
+    @Test
+    void advance_shouldSkipGap_ifItWasMissingLongerThanTimeout() {
+        //given
+        OutboxCursor cursor = new OutboxCursor(10);
+        cursor.markHandled(12);
+        cursor.advance(0, GAP_TIMEOUT);
+        //when
+        cursor.advance(GAP_TIMEOUT, GAP_TIMEOUT);
+        //then
+        assertEquals(12, cursor.watermark());
+        assertTrue(cursor.missingIds(Integer.MAX_VALUE).isEmpty(), "Rolled back id should be forgotten");
+    }
+
+    @Test
+    void markHandled_shouldRejectEventsHandledBefore() {
+        //given
+        OutboxCursor cursor = new OutboxCursor(10);
+        cursor.markHandled(12);
+        cursor.advance(0, GAP_TIMEOUT);
+        //then
+        assertFalse(cursor.markHandled(9), "Events below watermark were handled");
+        assertFalse(cursor.markHandled(12), "Event above watermark was handled");
+    }
+
+}
@@ -0,0 +1,239 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
+import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.exception.EmailAlreadyExistsException;
+import org.example.clearsolutionstest.exception.InvalidDateRangeException;
+import org.example.clearsolutionstest.exception.UserNotFoundException;
+import org.example.clearsolutionstest.repository.shard.ShardedUserRepository;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.reset;
+
+@SpringBootTest(properties = {
+        "application.sharding.enabled=true",
+        "application.sharding.shards[0].url=jdbc:h2:mem:service-shard-0;DB_CLOSE_DELAY=-1",
+        "application.sharding.shards[0].username=sa",
+        "application.sharding.shards[1].url=jdbc:h2:mem:service-shard-1;DB_CLOSE_DELAY=-1",
+        "application.sharding.shards[1].username=sa",
+        "application.sharding.shards[1].min-birth-year=1970",
+        "application.sharding.shards[2].url=jdbc:h2:mem:service-shard-2;DB_CLOSE_DELAY=-1",
+        "application.sharding.shards[2].username=sa",
+        "application.sharding.shards[2].min-birth-year=1990",
+        "application.outbox.poller.enabled=false"
+})
+class ShardedUserServiceImplTest {
+
+    static final LocalDateTime NOW = LocalDateTime.of(2023, 12, 28, 12, 0);
+
+    static final UUID MISSING_ID = new UUID(0, 1);
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    ShardedUserRepository userRepository;
+
+    @SpyBean
+    TimeService timeService;
+
+    List<UUID> created = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        given(timeService.utcNow()).willReturn(NOW);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        created.forEach(userService::deleteUser);
+        userRepository.deleteTombstonesBefore(LocalDateTime.MAX);
+        reset(timeService);
+    }
+
+    @Test
+    void userService_shouldBeSharded() {
+        //then
+        assertInstanceOf(ShardedUserServiceImpl.class, userService);
+    }
+
+    @Test
+    void createUser_shouldStoreUserOnShardOfItsBirthYear_andFindItById() {
+        //when
+        UUID id = create("first@gmail.com", "Smith", LocalDate.of(1985, 1, 5));
+        //then
+        User user = userRepository.findById(id).orElseThrow();
+        assertEquals("first@gmail.com", user.getEmail());
+        assertEquals(NOW, user.getCreatedAt());
+        assertEquals(NOW, user.getUpdatedAt());
+        assertEquals(List.of(new MultiGetUserResultDto(id, true, dto(user)), new MultiGetUserResultDto(MISSING_ID, false, null)),
+                userService.findAllByIds(new MultiGetUsersDto(List.of(id, MISSING_ID))));
+    }
+
+    @Test
+    void createUser_shouldThrowEmailAlreadyExistsException_ifEmailIsTakenOnAnyShard() {
+        //given
+        create("first@gmail.com", "Smith", LocalDate.of(1960, 1, 5));
+        //then
+        assertThrows(EmailAlreadyExistsException.class, () -> create("first@gmail.com", "Jones", LocalDate.of(1995, 1, 5)));
+        assertEquals(1, userService.countByBirthDateRange(LocalDate.of(1900, 1, 1), LocalDate.of(2020, 1, 1)).getCount());
+    }
+
+    @Test
+    void updateUser_shouldMoveUserToShardOfNewBirthYear_andKeepOtherFields() {
+        //given
+        UUID id = create("first@gmail.com", "Smith", LocalDate.of(1985, 1, 5));
+        given(timeService.utcNow()).willReturn(NOW.plusHours(1));
+        //when
+        userService.updateUser(id, new UpdateUserDto(null, null, "Jones", LocalDate.of(1995, 1, 5), null, null));
+        //then
+        User user = userRepository.findById(id).orElseThrow();
+        assertEquals("first@gmail.com", user.getEmail());
+        assertEquals("Jones", user.getLastName());
+        assertEquals(LocalDate.of(1995, 1, 5), user.getBirthDate());
+        assertEquals(NOW.plusHours(1), user.getUpdatedAt());
+        assertEquals(0, userService.countByBirthDateRange(LocalDate.of(1985, 1, 1), LocalDate.of(1985, 12, 31)).getCount());
+        assertEquals(1, userService.countByBirthDateRange(LocalDate.of(1995, 1, 1), LocalDate.of(1995, 12, 31)).getCount());
+    }
+
+    @Test
+    void updateUser_shouldThrowEmailAlreadyExistsException_ifNewEmailIsTaken() {
+        //given
+        create("first@gmail.com", "Smith", LocalDate.of(1960, 1, 5));
+        UUID id = create("second@gmail.com", "Jones", LocalDate.of(1995, 1, 5));
+        //then
+        assertThrows(EmailAlreadyExistsException.class, () -> userService.updateUser(id,
+                new UpdateUserDto("first@gmail.com", null, null, null, null, null)));
+        assertEquals("second@gmail.com", userRepository.findById(id).orElseThrow().getEmail());
+    }
+
+    @Test
+    void updateUser_shouldThrowUserNotFoundException_ifUserDoesNotExist() {
+        //then
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(MISSING_ID,
+                new UpdateUserDto(null, "first", null, null, null, null)));
+    }
+
+    @Test
+    void deleteUser_shouldRemoveUser_andLeaveTombstoneInChanges() {
+        //given
+        UUID kept = create("first@gmail.com", "Smith", LocalDate.of(1960, 1, 5));
+        UUID deleted = create("second@gmail.com", "Jones", LocalDate.of(1995, 1, 5));
+        //when
+        userService.deleteUser(deleted);
+        created.remove(deleted);
+        userService.deleteUser(MISSING_ID);
+        given(timeService.utcNow()).willReturn(NOW.plusHours(1));
+        UserChangesDto changes = userService.findChangesSince(NOW.minusHours(1), null, 10);
+        //then
+        assertTrue(userRepository.findById(deleted).isEmpty());
+        assertEquals(2, changes.getChanges().size());
+        assertTrue(changes.getChanges().stream().anyMatch(change -> change.getId().equals(deleted) && change.isDeleted()));
+        assertTrue(changes.getChanges().stream().anyMatch(change -> change.getId().equals(kept) && !change.isDeleted()));
+    }
+
+    @Test
+    void findAllByBirthDateRange_shouldMergeShardsInBirthDateOrder() {
+        //given
+        UUID oldest = create("first@gmail.com", "Smith", LocalDate.of(1960, 1, 5));
+        UUID youngest = create("second@gmail.com", "Adams", LocalDate.of(1995, 1, 5));
+        UUID middle = create("third@gmail.com", "Jones", LocalDate.of(1985, 1, 5));
+        LocalDate from = LocalDate.of(1950, 1, 1);
+        LocalDate to = LocalDate.of(2000, 1, 1);
+        //when
+        List<GetUserDto> firstPage = userService.findAllByBirthDateRange(from, to, 0, 2);
+        List<GetUserDto> secondPage = userService.findAllByBirthDateRange(from, to, 1, 2);
+        List<User> byLastName = userService.findFieldsByBirthDateRange(from, to, 0, 3, EnumSet.of(UserField.ID),
+                UserSort.LAST_NAME);
+        List<User> all = userService.findFieldsByBirthDateRange(from, to, 0, 3, UserField.ALL, UserSort.BIRTH_DATE);
+        //then
+        assertEquals(List.of(oldest, middle), firstPage.stream().map(GetUserDto::getId).toList());
+        assertEquals(List.of(youngest), secondPage.stream().map(GetUserDto::getId).toList());
+        assertEquals(List.of(youngest, middle, oldest), byLastName.stream().map(User::getId).toList());
+        assertEquals(List.of(oldest, middle, youngest), all.stream().map(User::getId).toList());
+        assertEquals(3, userService.countByBirthDateRange(from, to).getCount());
+        assertTrue(userService.countByBirthDateRange(from, to).isExact());
+    }
+
+    @Test
+    void findAllByBirthDateRange_shouldThrowInvalidDateRangeException_ifFromIsAfterTo() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(1950, 1, 1);
+        //then
+        assertThrows(InvalidDateRangeException.class, () -> userService.findAllByBirthDateRange(from, to, 0, 10));
+        assertThrows(InvalidDateRangeException.class, () -> userService.findFieldsByBirthDateRange(from, to, 0, 10,
+                EnumSet.of(UserField.ID), UserSort.LAST_NAME));
+        assertThrows(InvalidDateRangeException.class, () -> userService.countByBirthDateRange(from, to));
+    }
+
+    @Test
+    void findUpcomingBirthdays_shouldReadWindowAcrossNewYearFromEveryShard() {
+        //given
+        UUID newYear = create("first@gmail.com", "Smith", LocalDate.of(1995, 1, 5));
+        UUID endOfYear = create("second@gmail.com", "Jones", LocalDate.of(1960, 12, 30));
+        create("third@gmail.com", "Adams", LocalDate.of(1985, 6, 1));
+        //when
+        List<GetUserDto> firstPage = userService.findUpcomingBirthdays(10, 0, 1);
+        List<GetUserDto> secondPage = userService.findUpcomingBirthdays(10, 1, 1);
+        List<GetUserDto> thirdPage = userService.findUpcomingBirthdays(10, 2, 1);
+        //then
+        assertEquals(List.of(endOfYear), firstPage.stream().map(GetUserDto::getId).toList());
+        assertEquals(List.of(newYear), secondPage.stream().map(GetUserDto::getId).toList());
+        assertTrue(thirdPage.isEmpty());
+    }
+
+    @Test
+    void purgeTombstones_shouldRemoveTombstonesOlderThanRetention() {
+        //given
+        UUID id = create("first@gmail.com", "Smith", LocalDate.of(1985, 1, 5));
+        userService.deleteUser(id);
+        created.remove(id);
+        given(timeService.utcNow()).willReturn(NOW.plusDays(31));
+        //when
+        ((ShardedUserServiceImpl) userService).purgeTombstones();
+        //then
+        assertFalse(userRepository.findDeletedSince(NOW.minusDays(1), MISSING_ID, NOW.plusDays(1), 10).stream()
+                .anyMatch(tombstone -> tombstone.getUserId().equals(id)));
+    }
+
+    private UUID create(String email, String lastName, LocalDate birthDate) {
+        UUID id = userService.createUser(new CreateUserDto(email, "first", lastName, birthDate, "Ukraine, Lviv",
+                "380123123131"));
+        created.add(id);
+        return id;
+    }
+
+    private static GetUserDto dto(User user) {
+        return new GetUserDto(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), user.getBirthDate(),
+                user.getAddress(), user.getPhoneNumber());
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.example.clearsolutionstest.service.impl;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    SingleFlight<String, List<String>> singleFlight = new SingleFlight<>(ArrayList::new);
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @SneakyThrows
+    void execute_shouldRunLoaderOnce_forConcurrentCallsWithSameKey() {
+        //given
+        Future<List<String>> leader = executor.submit(() -> singleFlight.execute("key", this::blockingLoad));
+        awaitUntil(() -> singleFlight.executedCount() == 1);
+        List<Future<List<String>>> followers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute("key", this::blockingLoad)));
+        }
+        awaitUntil(() -> singleFlight.sharedCount() == 10);
+        //when
+        release.countDown();
+        //then
+        List<String> leaderResult = leader.get();
+        for (Future<List<String>> follower : followers) {
+            assertEquals(leaderResult, follower.get());
+            assertNotSame(leaderResult, follower.get(), "Followers should get copies");
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, singleFlight.executedCount());
+    }
+
+    @Test
+    @SneakyThrows
+    void execute_shouldRunLoaderAgain_afterPreviousCallFinished_orForOtherKey() {
+        //given
+        release.countDown();
+        //when
+        singleFlight.execute("key", this::blockingLoad);
+        singleFlight.execute("key", this::blockingLoad);
+        singleFlight.execute("other key", this::blockingLoad);
+        //then
+        assertEquals(3, loads.get());
+        assertEquals(0, singleFlight.sharedCount());
+    }
+
+    @Test
+    @SneakyThrows
+    void execute_shouldThrowLoaderExceptionToEveryCaller() {
+        //given
+        Future<List<String>> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            blockingLoad();
+            throw new IllegalStateException("Database is down");
+        }));
+        awaitUntil(() -> singleFlight.executedCount() == 1);
+        Future<List<String>> follower = executor.submit(() -> singleFlight.execute("key", this::blockingLoad));
+        awaitUntil(() -> singleFlight.sharedCount() == 1);
+        //when
+        release.countDown();
+        //then
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, leader::get).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, follower::get).getCause());
+        assertEquals(List.of("result"), singleFlight.execute("key", () -> List.of("result")),
+                "Failed call should not be remembered");
+    }
+
+    @SneakyThrows
+    private List<String> blockingLoad() {
+        loads.incrementAndGet();
+        release.await();
+        return List.of("a", "b");
+    }
+
+    @SneakyThrows
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition was not met in time");
+            Thread.sleep(1);
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.validation.Validator;
+import org.example.clearsolutionstest.config.TestValidationConfig;
+import org.example.clearsolutionstest.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = {TestValidationConfig.class})
+class SyntheticUserGeneratorTest {
+
+    @Autowired
+    Validator validator;
+
+    LocalDate referenceDate = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void generate_shouldReturnSameUser_forSameSeedAndIndex() {
+        //given
+        SyntheticUserGenerator generator = new SyntheticUserGenerator(42, referenceDate);
+        SyntheticUserGenerator sameSeedGenerator = new SyntheticUserGenerator(42, referenceDate);
+        SyntheticUserGenerator otherSeedGenerator = new SyntheticUserGenerator(43, referenceDate);
+        //then
+        assertEquals(generator.generate(7), sameSeedGenerator.generate(7));
+        assertNotEquals(generator.generate(7), otherSeedGenerator.generate(7));
+    }
+
+    @Test
+    void generate_shouldReturnValidAdultUsersWithUniqueIdsAndEmails() {
+        //given
+        SyntheticUserGenerator generator = new SyntheticUserGenerator(42, referenceDate);
+        //when
+        List<User> users = LongStream.range(0, 10_000).mapToObj(generator::generate).toList();
+        //then
+        Set<UUID> ids = users.stream().map(User::getId).collect(Collectors.toSet());
+        Set<String> emails = users.stream().map(User::getEmail).collect(Collectors.toSet());
+        assertEquals(users.size(), ids.size(), "Ids should be unique");
+        assertEquals(users.size(), emails.size(), "Emails should be unique");
+        assertTrue(users.stream().allMatch(user -> validator.validate(user).isEmpty()), "Users should be valid");
+        assertTrue(users.stream().allMatch(user -> !user.getBirthDate().isAfter(referenceDate.minusYears(18))),
+                "Users should be at least 18");
+        assertTrue(users.stream().allMatch(user -> user.getBirthDate().isAfter(referenceDate.minusYears(92))),
+                "Users should not be older than 91");
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserChangeType;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class UserCacheInvalidatorTest {
+
+    EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+
+    Cache cache = mock(Cache.class);
+
+    UserCacheInvalidator invalidator = new UserCacheInvalidator(entityManagerFactory);
+
+    @Test
+    void onUserChanged_shouldEvictUserAndQueryRegions_ifOtherInstanceChangedIt() {
+        //given
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        given(entityManagerFactory.unwrap(SessionFactory.class)).willReturn(sessionFactory);
+        given(sessionFactory.getCache()).willReturn(cache);
+        UUID id = UUID.randomUUID();
+        //when
+        invalidator.onUserChanged(new UserChangedEvent(id, UserChangeType.UPDATED, null, null, null, false));
+        //then
+        verify(cache).evictEntityData(User.class, id);
+        verify(cache).evictQueryRegion(UserRepository.BIRTH_DATE_RANGE_CACHE_REGION);
+        verify(cache).evictQueryRegion(UserRepository.EMAIL_CACHE_REGION);
+    }
+
+    @Test
+    void onUserChanged_shouldKeepCaches_ifThisInstanceChangedUser() {
+        //when
+        invalidator.onUserChanged(new UserChangedEvent(UUID.randomUUID(), UserChangeType.UPDATED, null, null, null,
+                true));
+        //then
+        verifyNoInteractions(entityManagerFactory);
+    }
+
+}
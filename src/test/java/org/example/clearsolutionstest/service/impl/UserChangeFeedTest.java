@@ -0,0 +1,71 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.UserChangeDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserTombstone;
+import org.example.clearsolutionstest.exception.ChangeFeedExpiredException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserChangeFeedTest {
+
+    static final LocalDateTime SINCE = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Test
+    void page_shouldMergeUpdatesAndDeletionsByTimeThenUnsignedId_andContinueAfterLastChange() {
+        //given
+        LocalDateTime changedAt = SINCE.plusSeconds(1);
+        User low = user(new UUID(1, 1), changedAt);
+        User earlier = user(new UUID(-1, -1), SINCE);
+        UserTombstone high = new UserTombstone(new UUID(-1, 0), changedAt);
+        UserTombstone last = new UserTombstone(new UUID(0, 5), SINCE.plusSeconds(2));
+        //when
+        UserChangesDto page = UserChangeFeed.page(SINCE, null, 3, List.of(low, earlier), List.of(last, high),
+                user -> new GetUserDto(user.getId(), null, null, null, null, null, null));
+        //then
+        assertEquals(List.of(earlier.getId(), low.getId(), high.getUserId()),
+                page.getChanges().stream().map(UserChangeDto::getId).toList());
+        assertEquals(List.of(false, false, true), page.getChanges().stream().map(UserChangeDto::isDeleted).toList());
+        assertEquals(changedAt, page.getNextSince());
+        assertEquals(high.getUserId(), page.getNextAfterId());
+    }
+
+    @Test
+    void page_shouldReturnSameCursor_ifThereAreNoChanges() {
+        //given
+        UUID afterId = UUID.randomUUID();
+        //when
+        UserChangesDto page = UserChangeFeed.page(SINCE, afterId, 10, List.of(), List.of(), user -> null);
+        //then
+        assertEquals(new UserChangesDto(List.of(), SINCE, afterId), page);
+    }
+
+    @Test
+    void requireRetained_shouldThrowChangeFeedExpiredException_ifDeletionsMayBePurged() {
+        //given
+        UserChangeFeed feed = new UserChangeFeed(Duration.ofSeconds(2), Duration.ofDays(30));
+        LocalDateTime now = SINCE.plusDays(30);
+        //then
+        assertDoesNotThrow(() -> feed.requireRetained(SINCE, now));
+        assertThrows(ChangeFeedExpiredException.class, () -> feed.requireRetained(SINCE, now.plusSeconds(1)));
+        assertEquals(now.minusSeconds(2), feed.until(now));
+    }
+
+    private static User user(UUID id, LocalDateTime updatedAt) {
+        User user = new User(id, "email@gmail.com", "first", "last", LocalDate.of(1990, 1, 1), null, null);
+        user.setUpdatedAt(updatedAt);
+        return user;
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.dto.UserCountDto;
+import org.example.clearsolutionstest.entity.UserBirthDateCount;
+import org.example.clearsolutionstest.entity.UserChangeType;
+import org.example.clearsolutionstest.exception.InvalidDateRangeException;
+import org.example.clearsolutionstest.repository.UserBirthDateCountRepository;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class UserCountServiceImplTest {
+
+    static final LocalDate FROM = LocalDate.of(1990, 1, 1);
+
+    static final LocalDate TO = LocalDate.of(2000, 1, 1);
+
+    UserBirthDateCountRepository userBirthDateCountRepository = mock(UserBirthDateCountRepository.class);
+
+    UserCountServiceImpl service = new UserCountServiceImpl(userBirthDateCountRepository, 366);
+
+    @Test
+    void countByBirthDateRange_shouldSumRows_untilSnapshotIsTaken_andForShortRanges() {
+        //given
+        given(userBirthDateCountRepository.sumByBirthDateRange(FROM, TO)).willReturn(5L);
+        given(userBirthDateCountRepository.sumByBirthDateRange(FROM, FROM.plusDays(30))).willReturn(2L);
+        //when
+        UserCountDto beforeSnapshot = service.countByBirthDateRange(FROM, TO);
+        service.refreshSnapshot();
+        UserCountDto shortRange = service.countByBirthDateRange(FROM, FROM.plusDays(30));
+        //then
+        assertEquals(new UserCountDto(5, true, 0), beforeSnapshot);
+        assertEquals(new UserCountDto(2, true, 0), shortRange);
+    }
+
+    @Test
+    void countByBirthDateRange_shouldReadLongRangesFromSnapshot_withBirthDateChangesSinceItAsErrorBound() {
+        //given
+        given(userBirthDateCountRepository.findAll()).willReturn(List.of(
+                new UserBirthDateCount(FROM, 3), new UserBirthDateCount(TO.plusDays(1), 4)));
+        service.refreshSnapshot();
+        //when
+        service.onUserChanged(event(null, FROM));
+        service.onUserChanged(event(FROM, TO));
+        service.onUserChanged(event(TO, TO));
+        UserCountDto count = service.countByBirthDateRange(FROM, TO);
+        service.refreshSnapshot();
+        //then
+        assertEquals(new UserCountDto(3, false, 2), count);
+        assertEquals(new UserCountDto(3, false, 0), service.countByBirthDateRange(FROM, TO));
+        assertEquals(OptionalLong.of(7), service.countFromSnapshot(FROM, TO.plusDays(1)));
+    }
+
+    @Test
+    void countFromSnapshot_shouldBeEmpty_untilSnapshotIsTaken() {
+        //then
+        assertEquals(OptionalLong.empty(), service.countFromSnapshot(FROM, TO));
+    }
+
+    @Test
+    void countByBirthDateRange_shouldThrowInvalidDateRangeException_ifFromIsAfterTo() {
+        //then
+        assertThrows(InvalidDateRangeException.class, () -> service.countByBirthDateRange(TO, FROM));
+    }
+
+    private static UserChangedEvent event(LocalDate previousBirthDate, LocalDate birthDate) {
+        return new UserChangedEvent(UUID.randomUUID(), UserChangeType.UPDATED, previousBirthDate, birthDate, null,
+                false);
+    }
+
+}
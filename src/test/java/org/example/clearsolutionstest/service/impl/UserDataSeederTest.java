@@ -0,0 +1,107 @@
+package org.example.clearsolutionstest.service.impl;
+
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.repository.UserBirthDateCountRepository;
+import org.example.clearsolutionstest.repository.UserBulkLoader;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.service.UserCountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "application.seeder.enabled=true",
+        "application.seeder.users=" + UserDataSeederTest.USERS,
+        "application.seeder.batch-size=" + UserDataSeederTest.BATCH_SIZE,
+        "application.seeder.threads=2",
+        "application.seeder.reference-date=2024-01-01",
+        "application.outbox.poller.enabled=false"
+})
+class UserDataSeederTest {
+
+    static final int USERS = 300;
+
+    static final int BATCH_SIZE = 40;
+
+    static final LocalDate REFERENCE_DATE = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    UserDataSeeder userDataSeeder;
+
+    @Autowired
+    UserBulkLoader userBulkLoader;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserBirthDateCountRepository userBirthDateCountRepository;
+
+    @Autowired
+    UserCountService userCountService;
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAllInBatch();
+        userBirthDateCountRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void run_shouldSeedSameUsersOnEveryRun_andCountThem() throws Exception {
+        //given
+        Set<User> expected = LongStream.range(0, USERS)
+                .mapToObj(new SyntheticUserGenerator(42, REFERENCE_DATE)::generate)
+                .collect(Collectors.toSet());
+        userRepository.deleteAllInBatch();
+        userDataSeeder.run(new DefaultApplicationArguments());
+        Set<User> seeded = readAll();
+        userRepository.deleteAllInBatch();
+        //when
+        userDataSeeder.run(new DefaultApplicationArguments());
+        //then
+        assertEquals(expected, seeded);
+        assertEquals(seeded, readAll());
+        assertEquals(USERS, userRepository.count());
+        assertEquals(USERS, userCountService.countByBirthDateRange(LocalDate.of(1900, 1, 1), REFERENCE_DATE).getCount());
+    }
+
+    @Test
+    void load_shouldKeepCommittedBatches_ifLaterBatchFails() {
+        //given
+        userRepository.deleteAllInBatch();
+        SyntheticUserGenerator generator = new SyntheticUserGenerator(7, REFERENCE_DATE);
+        List<User> users = new ArrayList<>(LongStream.range(0, 100).mapToObj(generator::generate).toList());
+        // Same id as the first user, in the third batch
+        users.add(90, users.get(0));
+        LocalDateTime loadedAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        //when
+        assertThrows(DuplicateKeyException.class, () -> userBulkLoader.load(users.iterator(), BATCH_SIZE, loadedAt));
+        //then
+        assertEquals(2 * BATCH_SIZE, userRepository.count());
+        assertEquals(Set.copyOf(users.subList(0, 2 * BATCH_SIZE)), readAll());
+        assertEquals(2 * BATCH_SIZE, userBulkLoader.delete(users.iterator(), BATCH_SIZE));
+        assertEquals(0, userRepository.count());
+    }
+
+    private Set<User> readAll() {
+        Set<User> users = new HashSet<>();
+        assertEquals(userRepository.count(), userBulkLoader.readAll(users::add, BATCH_SIZE));
+        return users;
+    }
+
+}
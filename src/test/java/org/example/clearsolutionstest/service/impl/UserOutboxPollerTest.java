@@ -0,0 +1,178 @@
+package org.example.clearsolutionstest.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.clearsolutionstest.entity.UserChangeType;
+import org.example.clearsolutionstest.entity.UserOutboxEvent;
+import org.example.clearsolutionstest.repository.UserOutboxRepository;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserChangedEvent;
+import org.example.clearsolutionstest.service.UserOutboxService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class UserOutboxPollerTest {
+
+    static final int BATCH_SIZE = 2;
+
+    static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    UserOutboxRepository userOutboxRepository = mock(UserOutboxRepository.class);
+
+    Map<Long, UserOutboxEvent> committed = new TreeMap<>();
+
+    List<List<Long>> missingLookups = new ArrayList<>();
+
+    List<Long> published = new ArrayList<>();
+
+    Map<UUID, Long> idsByUser = new TreeMap<>();
+
+    UUID failingUser;
+
+    AtomicLong nanoClock = new AtomicLong();
+
+    UserOutboxPoller poller;
+
+    @BeforeEach
+    void init() {
+        given(userOutboxRepository.findMaxId()).willAnswer(invocation ->
+                committed.keySet().stream().mapToLong(Long::longValue).max().orElse(0));
+        given(userOutboxRepository.findAllAfter(anyLong(), any(Pageable.class))).willAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            return committed.values().stream()
+                    .filter(event -> event.getId() > after)
+                    .limit(pageable.getPageSize())
+                    .toList();
+        });
+        given(userOutboxRepository.findAllById(any())).willAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>();
+            invocation.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            missingLookups.add(ids);
+            return ids.stream().filter(committed::containsKey).map(committed::get).toList();
+        });
+        UserOutboxService userOutboxService = mock(UserOutboxService.class);
+        given(userOutboxService.getNodeId()).willReturn("node");
+        TimeService timeService = mock(TimeService.class);
+        given(timeService.utcNow()).willReturn(NOW);
+        poller = new UserOutboxPoller(userOutboxRepository, userOutboxService, this::publish, timeService,
+                meterRegistry, BATCH_SIZE, 1, 24, nanoClock::get);
+        poller.poll();
+    }
+
+    @Test
+    void poll_shouldHandleEventCommittedOutOfOrder_once() {
+        //given
+        commit(1, 3);
+        poller.poll();
+        //when
+        commit(2);
+        poller.poll();
+        poller.poll();
+        //then
+        assertEquals(List.of(1L, 3L, 2L), published);
+        assertEquals(0, gauge("users.outbox.missing"));
+    }
+
+    @Test
+    void poll_shouldStopLookingUpRolledBackId_afterGapTimeout() {
+        //given
+        commit(1, 3);
+        poller.poll();
+        assertEquals(1, gauge("users.outbox.missing"));
+        //when
+        nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        poller.poll();
+        int lookups = missingLookups.size();
+        poller.poll();
+        //then
+        assertEquals(0, gauge("users.outbox.missing"));
+        assertEquals(lookups, missingLookups.size(), "Abandoned id should not be looked up again");
+        assertEquals(List.of(1L, 3L), published);
+    }
+
+    @Test
+    void poll_shouldLookUpAtMostBatchSizeMissingIds_andEachOfThemInTurn() {
+        //given
+        commit(1, 12);
+        poller.poll();
+        assertEquals(10, gauge("users.outbox.missing"));
+        //when
+        for (int i = 0; i < 5; i++) {
+            poller.poll();
+        }
+        //then
+        assertTrue(missingLookups.stream().allMatch(ids -> ids.size() <= BATCH_SIZE),
+                () -> "Lookups should be capped, were " + missingLookups);
+        assertEquals(new HashSet<>(LongStream.rangeClosed(2, 11).boxed().toList()),
+                new HashSet<>(missingLookups.stream().flatMap(List::stream).toList()),
+                "Every missing id should have been looked up");
+    }
+
+    @Test
+    void poll_shouldHandleOtherEventsAndMoveOn_ifListenerThrows() {
+        //given
+        commit(1, 2);
+        failingUser = userOf(1);
+        //when
+        poller.poll();
+        poller.poll();
+        //then
+        assertEquals(List.of(1L, 2L), published, "Failed event should not be delivered again");
+        assertEquals(2, meterRegistry.get("users.outbox.handled").counter().count());
+        assertEquals(0, gauge("users.outbox.missing"));
+    }
+
+    private void publish(Object event) {
+        UUID userId = ((UserChangedEvent) event).userId();
+        published.add(idsByUser.get(userId));
+        if (userId.equals(failingUser)) {
+            throw new IllegalStateException("listener failed");
+        }
+    }
+
+    private void commit(long... ids) {
+        for (long id : ids) {
+            UUID userId = UUID.randomUUID();
+            idsByUser.put(userId, id);
+            committed.put(id, UserOutboxEvent.builder()
+                    .withId(id)
+                    .withUserId(userId)
+                    .withChangeType(UserChangeType.CREATED)
+                    .withBirthDate(LocalDate.of(2000, 1, 1))
+                    .withNodeId("node")
+                    .withCreatedAt(NOW)
+                    .build());
+        }
+    }
+
+    private UUID userOf(long id) {
+        return committed.get(id).getUserId();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+}
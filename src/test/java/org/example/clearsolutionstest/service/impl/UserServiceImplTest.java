@@ -5,8 +5,17 @@ import jakarta.validation.ConstraintViolationException;
 import org.example.clearsolutionstest.ClearSolutionsTestApplication;
 import org.example.clearsolutionstest.dto.CreateUserDto;
 import org.example.clearsolutionstest.dto.GetUserDto;
+import org.example.clearsolutionstest.dto.MultiGetUserResultDto;
+import org.example.clearsolutionstest.dto.MultiGetUsersDto;
 import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.dto.UserChangesDto;
 import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.entity.UserBirthDateCount;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.exception.ErrorCode;
+import org.example.clearsolutionstest.exception.UserDomainException;
+import org.example.clearsolutionstest.repository.UserBirthDateCountRepository;
 import org.example.clearsolutionstest.repository.UserRepository;
 import org.example.clearsolutionstest.service.TimeService;
 import org.junit.jupiter.api.AfterEach;
@@ -20,6 +29,7 @@ import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -27,9 +37,11 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.refEq;
 import static org.mockito.BDDMockito.given;
@@ -39,7 +51,7 @@ import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
-@SpringBootTest(classes = ClearSolutionsTestApplication.class)
+@SpringBootTest(classes = ClearSolutionsTestApplication.class, properties = "application.outbox.poller.enabled=false")
 class UserServiceImplTest {
 
     @MockBean
@@ -54,9 +66,17 @@ class UserServiceImplTest {
     @Autowired
     ApplicationContext context;
 
+    @Autowired
+    UserBirthDateCountRepository userBirthDateCountRepository;
+
+    @Autowired
+    UserCountServiceImpl userCountService;
+
     @AfterEach
     void resetMocks() {
         reset(userRepository, timeService);
+        userBirthDateCountRepository.deleteAll();
+        userCountService.refreshSnapshot();
     }
 
     @Test
@@ -79,6 +99,9 @@ class UserServiceImplTest {
                 createUserDto.getAddress(),
                 createUserDto.getPhoneNumber()
         );
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 1, 1);
+        expectedUser.setCreatedAt(now);
+        expectedUser.setUpdatedAt(now);
         User savedUser = new User(
                 UUID.randomUUID(),
                 createUserDto.getEmail(),
@@ -88,6 +111,7 @@ class UserServiceImplTest {
                 createUserDto.getAddress(),
                 createUserDto.getPhoneNumber()
         );
+        given(timeService.utcNow()).willReturn(now);
         given(userRepository.save(refEq(expectedUser, "id"))).willReturn(savedUser);
         //when
         UUID actualId = userService.createUser(createUserDto);
@@ -231,6 +255,8 @@ class UserServiceImplTest {
         //then
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> userService.updateUser(id, updateUserDto));
         assertEquals("User with id '%s' not found".formatted(id), ex.getMessage());
+        assertEquals(ErrorCode.USER_NOT_FOUND, ((UserDomainException) ex).getErrorCode());
+        assertEquals(0, ex.getStackTrace().length, "Domain exceptions should not capture stack traces");
     }
 
     @Test
@@ -304,7 +330,7 @@ class UserServiceImplTest {
         //when
         userService.deleteUser(id);
         //then
-        verify(userRepository, times(1)).deleteById(id);
+        verify(userRepository, times(1)).delete(mockedUser);
     }
 
     @Test
@@ -320,7 +346,7 @@ class UserServiceImplTest {
         UUID id = UUID.randomUUID();
         //then
         assertDoesNotThrow(() -> userService.deleteUser(id));
-        verify(userRepository, times(1)).deleteById(id);
+        verify(userRepository, never()).delete(any(User.class));
     }
 
     @Test
@@ -330,7 +356,7 @@ class UserServiceImplTest {
         LocalDate to = LocalDate.of(2000, 5, 1);
         Integer pageIndex = 0;
         Integer pageSize = 50;
-        PageRequest pageable = PageRequest.of(pageIndex, pageSize);
+        PageRequest pageable = PageRequest.of(pageIndex, pageSize, UserSort.BIRTH_DATE.getSort());
         List<User> usersFromDb = List.of(
                 new User(UUID.randomUUID(), "email1@gmail.com", "first 1", "last 1",
                         LocalDate.of(2000, 1, 1), "Country 1, City 1", "3803424234242"),
@@ -350,6 +376,29 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).getAllByBirthDateRange(from, to, pageable);
     }
 
+    @Test
+    void findFieldsByBirthDateRange_shouldReadIndexInOrder_onlyIfRangeIsLongAndHoldsEnoughUsers() {
+        //given
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2000, 12, 31);
+        LocalDate shortTo = from.plusDays(10);
+        PageRequest pageable = PageRequest.of(0, 10, UserSort.LAST_NAME.getSort());
+        userBirthDateCountRepository.saveAll(List.of(
+                new UserBirthDateCount(LocalDate.of(2000, 1, 5), 1000),
+                new UserBirthDateCount(LocalDate.of(1950, 1, 1), 10)
+        ));
+        userCountService.refreshSnapshot();
+        //when
+        userService.findFieldsByBirthDateRange(from, to, 0, 10, UserField.ALL, UserSort.LAST_NAME);
+        userService.findFieldsByBirthDateRange(from, shortTo, 0, 10, UserField.ALL, UserSort.LAST_NAME);
+        //then
+        verify(userRepository, times(1))
+                .getFieldsByBirthDateRangeInIndexOrder(from, to, UserField.ALL, UserSort.LAST_NAME, pageable);
+        verify(userRepository, times(1)).getAllByBirthDateRange(from, shortTo, pageable);
+        verify(userRepository, never()).getFieldsByBirthDateRangeInIndexOrder(eq(from), eq(shortTo), any(), any(),
+                any());
+    }
+
     @Test
     void findAllByBirthDateRange_shouldThrowConstraintViolationException_ifGivenArgsAreNull() {
         //then
@@ -369,6 +418,18 @@ class UserServiceImplTest {
         assertTrue(ex.getMessage().contains("findAllByBirthDateRange.pageSize: must be less than or equal to 500"), "should have to is null message");
     }
 
+    @Test
+    void findRowsByBirthDateRange_shouldThrowConstraintViolationException_ifGivenPageIndexIsNegative() {
+        //given
+        LocalDate from = LocalDate.of(2000, 5, 1);
+        LocalDate to = LocalDate.of(2000, 6, 1);
+        //then
+        ConstraintViolationException ex = assertThrows(ConstraintViolationException.class,
+                () -> userService.findRowsByBirthDateRange(from, to, -1, 50));
+        assertEquals("findRowsByBirthDateRange.pageIndex: must be greater than or equal to 0", ex.getMessage());
+        verify(userRepository, never()).getAllByBirthDateRange(any(), any(), any());
+    }
+
     @Test
     void findAllByBirthDateRange_shouldThrowIllegalArgumentException_ifGivenFromDateIsAfterToDate() {
         //given
@@ -382,4 +443,74 @@ class UserServiceImplTest {
         verify(userRepository, never()).getAllByBirthDateRange(eq(from), eq(to), any());
     }
 
+    @Test
+    void findAllByIds_shouldReturnResultPerRequestedIdInOrder_andFlagMissingIds() {
+        //given
+        User user = new User(UUID.randomUUID(), "email1@gmail.com", "first 1", "last 1",
+                LocalDate.of(2000, 1, 1), "Country 1, City 1", "3803424234242");
+        UUID missingId = UUID.randomUUID();
+        List<UUID> ids = List.of(missingId, user.getId(), user.getId());
+        given(userRepository.findAllByIdInOrder(eq(ids), anyInt())).willReturn(Arrays.asList(null, user, user));
+        //when
+        List<MultiGetUserResultDto> results = userService.findAllByIds(new MultiGetUsersDto(ids));
+        //then
+        assertEquals(List.of(missingId, user.getId(), user.getId()),
+                results.stream().map(MultiGetUserResultDto::getId).toList());
+        assertEquals(List.of(false, true, true), results.stream().map(MultiGetUserResultDto::isFound).toList());
+        assertNull(results.get(0).getUser());
+        assertEquals(user.getEmail(), results.get(1).getUser().getEmail());
+    }
+
+    @Test
+    void findAllByIds_shouldThrowConstraintViolationException_ifTooManyIdsAreGiven() {
+        //given
+        List<UUID> ids = Collections.nCopies(MultiGetUsersDto.MAX_IDS + 1, UUID.randomUUID());
+        //then
+        ConstraintViolationException ex = assertThrows(ConstraintViolationException.class,
+                () -> userService.findAllByIds(new MultiGetUsersDto(ids)));
+        assertTrue(ex.getMessage().contains("findAllByIds.multiGetUsersDto.ids: size must be between 1 and 5000"),
+                "should have size message");
+        verify(userRepository, never()).findAllByIdInOrder(any(), anyInt());
+    }
+
+    @Test
+    void findUpcomingBirthdays_shouldPageWindowAcrossNewYear() {
+        //given
+        User endOfYear = new User(UUID.randomUUID(), "email1@gmail.com", "first 1", "last 1",
+                LocalDate.of(1990, 12, 30), "Country 1, City 1", "3803424234242");
+        User newYear = new User(UUID.randomUUID(), "email2@gmail.com", "first 2", "last 2",
+                LocalDate.of(1995, 1, 5), "Country 2, City 2", "3803424234243");
+        given(timeService.utcNow()).willReturn(LocalDateTime.of(2023, 12, 28, 12, 0));
+        given(userRepository.countByBirthMonthDayRange(1228, 1231)).willReturn(1L);
+        given(userRepository.getAllByBirthMonthDayRange(eq(1228), eq(1231), eq(0L), anyInt()))
+                .willReturn(List.of(endOfYear));
+        given(userRepository.getAllByBirthMonthDayRange(eq(101), eq(106), eq(0L), anyInt()))
+                .willReturn(List.of(newYear));
+        //when
+        List<GetUserDto> firstPage = userService.findUpcomingBirthdays(10, 0, 2);
+        List<GetUserDto> secondPage = userService.findUpcomingBirthdays(10, 1, 1);
+        //then
+        assertEquals(List.of(endOfYear.getId(), newYear.getId()), firstPage.stream().map(GetUserDto::getId).toList());
+        assertEquals(List.of(newYear.getId()), secondPage.stream().map(GetUserDto::getId).toList());
+    }
+
+    @Test
+    void findChangesSince_shouldReturnUsersChangedBeforeSettledTime() {
+        //given
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        User user = new User(UUID.randomUUID(), "email1@gmail.com", "first 1", "last 1",
+                LocalDate.of(2000, 1, 1), "Country 1, City 1", "3803424234242");
+        user.setUpdatedAt(now.minusMinutes(30));
+        given(timeService.utcNow()).willReturn(now);
+        given(userRepository.findChangedSince(eq(now.minusHours(1)), any(), any(), eq(10))).willReturn(List.of(user));
+        //when
+        UserChangesDto changes = userService.findChangesSince(now.minusHours(1), null, 10);
+        //then
+        assertEquals(1, changes.getChanges().size());
+        assertEquals(user.getId(), changes.getChanges().get(0).getId());
+        assertEquals(user.getEmail(), changes.getChanges().get(0).getUser().getEmail());
+        assertEquals(now.minusMinutes(30), changes.getNextSince());
+        verify(userRepository).findChangedSince(now.minusHours(1), new UUID(0, 0), now.minusSeconds(2), 10);
+    }
+
 }
@@ -0,0 +1,211 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.dto.UpdateUserDto;
+import org.example.clearsolutionstest.entity.UserField;
+import org.example.clearsolutionstest.entity.UserSort;
+import org.example.clearsolutionstest.repository.StatementRecorder;
+import org.example.clearsolutionstest.repository.UserBirthDateCountRepository;
+import org.example.clearsolutionstest.repository.UserOutboxRepository;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.repository.UserTombstoneRepository;
+import org.example.clearsolutionstest.service.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.example.clearsolutionstest.repository.StatementRecorder.assertWithinBudget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Holds every write and range query of {@link UserService} to the statements, rows and flushes it needs, so a change
+ * adding a round trip fails the build. The caches are emptied before each measured call, so the budgets are those
+ * of a cold read. Raise a budget only for a round trip the change really needs.
+ */
+@SpringBootTest(properties = "application.outbox.poller.enabled=false")
+class UserServiceStatementBudgetTest {
+
+    static final LocalDate FROM = LocalDate.of(2000, 1, 1);
+
+    static final LocalDate TO = LocalDate.of(2000, 12, 31);
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    UserTombstoneRepository userTombstoneRepository;
+
+    @Autowired
+    UserBirthDateCountRepository userBirthDateCountRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    List<UUID> ids;
+
+    @TestConfiguration
+    static class StatementRecorderConfig {
+
+        @Bean
+        static BeanPostProcessor statementRecordingDataSource() {
+            return new BeanPostProcessor() {
+
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? StatementRecorder.wrap(dataSource) : bean;
+                }
+
+            };
+        }
+
+    }
+
+    @BeforeEach
+    void init() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        ids = IntStream.range(0, 3)
+                .mapToObj(i -> userService.createUser(createUserDto(i)))
+                .toList();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAll();
+        userTombstoneRepository.deleteAll();
+        userOutboxRepository.deleteAll();
+        userBirthDateCountRepository.deleteAll();
+        evictCaches();
+    }
+
+    @Test
+    void createUser_shouldInsertUserOutboxEventAndCount() {
+        //when
+        StatementRecorder.Recording recording = record(() -> userService.createUser(createUserDto(3)));
+        //then
+        assertWithinBudget(recording, 3, 1, 2);
+    }
+
+    @Test
+    void updateUser_shouldReadUserOnce_andWriteUserAndOutboxEvent_ifBirthDateIsKept() {
+        //given
+        UpdateUserDto updateUserDto = new UpdateUserDto();
+        updateUserDto.setFirstName("changed");
+        //when
+        StatementRecorder.Recording recording = record(() -> userService.updateUser(ids.get(0), updateUserDto));
+        //then
+        assertWithinBudget(recording, 3, 2, 1);
+    }
+
+    @Test
+    void updateUser_shouldAlsoCheckEmailAndMoveCount_ifEmailAndBirthDateChange() {
+        //given
+        UpdateUserDto updateUserDto = new UpdateUserDto();
+        updateUserDto.setEmail("changed@gmail.com");
+        updateUserDto.setBirthDate(LocalDate.of(2001, 1, 1));
+        //when
+        StatementRecorder.Recording recording = record(() -> userService.updateUser(ids.get(0), updateUserDto));
+        //then
+        assertWithinBudget(recording, 6, 2, 3);
+    }
+
+    @Test
+    void deleteUser_shouldReadUserOnce_andWriteTombstoneOutboxEventAndCount() {
+        //when
+        StatementRecorder.Recording recording = record(() -> userService.deleteUser(ids.get(0)));
+        //then
+        assertWithinBudget(recording, 5, 2, 3);
+    }
+
+    @Test
+    void deleteUser_shouldOnlyReadUser_ifUserDoesNotExist() {
+        //when
+        StatementRecorder.Recording recording = record(() -> userService.deleteUser(UUID.randomUUID()));
+        //then
+        assertWithinBudget(recording, 1, 0, 0);
+    }
+
+    @Test
+    void findRowsByBirthDateRange_shouldReadPageInOneStatement() {
+        //when
+        StatementRecorder.Recording recording = record(() -> userService.findRowsByBirthDateRange(FROM, TO, 0, 10));
+        //then
+        assertWithinBudget(recording, 1, 3, 0);
+    }
+
+    @Test
+    void findAllByBirthDateRange_shouldReadPageInOneStatement() {
+        //when
+        StatementRecorder.Recording recording = record(() -> userService.findAllByBirthDateRange(FROM, TO, 0, 10));
+        //then
+        assertWithinBudget(recording, 1, 3, 0);
+    }
+
+    @Test
+    void findFieldsByBirthDateRange_shouldReadSelectedColumnsInOneStatement() {
+        //when
+        StatementRecorder.Recording recording = record(() -> userService.findFieldsByBirthDateRange(FROM, TO, 0, 10,
+                Set.of(UserField.EMAIL), UserSort.BIRTH_DATE));
+        //then
+        assertWithinBudget(recording, 1, 3, 0);
+        assertEquals(1, recording.statements().size());
+        assertFalse(recording.statements().get(0).contains("first_name"),
+                "Should not read columns that were not asked for");
+    }
+
+    @Test
+    void findFieldsByBirthDateRange_shouldReadPageInOtherOrderInOneStatement() {
+        //when
+        StatementRecorder.Recording shortRange = record(() -> userService.findFieldsByBirthDateRange(FROM, FROM, 0, 10,
+                UserField.ALL, UserSort.LAST_NAME));
+        StatementRecorder.Recording longRange = record(() -> userService.findFieldsByBirthDateRange(FROM, TO, 0, 10,
+                UserField.ALL, UserSort.LAST_NAME));
+        //then
+        assertWithinBudget(shortRange, 1, 1, 0);
+        assertWithinBudget(longRange, 1, 3, 0);
+    }
+
+    private StatementRecorder.Recording record(Runnable operation) {
+        evictCaches();
+        return StatementRecorder.record(operation, statistics::getFlushCount);
+    }
+
+    private void evictCaches() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private static CreateUserDto createUserDto(int i) {
+        CreateUserDto createUserDto = new CreateUserDto();
+        createUserDto.setEmail("email%d@gmail.com".formatted(i));
+        createUserDto.setFirstName("first " + i);
+        createUserDto.setLastName("last " + i);
+        createUserDto.setBirthDate(FROM.plusMonths(i));
+        createUserDto.setAddress("Country %d, City %d".formatted(i, i));
+        createUserDto.setPhoneNumber("3803424234242");
+        return createUserDto;
+    }
+
+}
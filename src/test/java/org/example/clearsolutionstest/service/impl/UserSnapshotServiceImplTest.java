@@ -0,0 +1,153 @@
+package org.example.clearsolutionstest.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.clearsolutionstest.entity.User;
+import org.example.clearsolutionstest.repository.UserBulkLoader;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.repository.UserSnapshotFile;
+import org.example.clearsolutionstest.service.TimeService;
+import org.example.clearsolutionstest.service.UserCountService;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class UserSnapshotServiceImplTest {
+
+    static final int BATCH_SIZE = 10;
+
+    static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    SyntheticUserGenerator generator = new SyntheticUserGenerator(42, LocalDate.of(2024, 1, 1));
+
+    UserBulkLoader userBulkLoader = mock(UserBulkLoader.class);
+
+    UserRepository userRepository = mock(UserRepository.class);
+
+    UserCountService userCountService = mock(UserCountService.class);
+
+    TimeService timeService = mock(TimeService.class);
+
+    Map<UUID, User> table = new ConcurrentHashMap<>();
+
+    UUID failingUser;
+
+    UserSnapshotServiceImpl service;
+
+    @BeforeEach
+    void init() {
+        given(timeService.utcNow()).willReturn(NOW);
+        given(userRepository.count()).willAnswer(invocation -> (long) table.size());
+        // Commits per batch like the real loader, a failing user rolls back only its own batch
+        given(userBulkLoader.load(any(), anyInt(), any())).willAnswer(invocation -> {
+            Iterator<User> users = invocation.getArgument(0);
+            Map<UUID, User> batch = new ConcurrentHashMap<>();
+            long inserted = 0;
+            while (users.hasNext()) {
+                User user = users.next();
+                if (user.getId().equals(failingUser)) {
+                    throw new IllegalStateException("insert failed");
+                }
+                batch.put(user.getId(), user);
+                if (batch.size() == BATCH_SIZE || !users.hasNext()) {
+                    table.putAll(batch);
+                    inserted += batch.size();
+                    batch.clear();
+                }
+            }
+            return inserted;
+        });
+        given(userBulkLoader.delete(any(), anyInt())).willAnswer(invocation -> {
+            Iterator<User> users = invocation.getArgument(0);
+            long deleted = 0;
+            while (users.hasNext()) {
+                deleted += table.remove(users.next().getId()) == null ? 0 : 1;
+            }
+            return deleted;
+        });
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        given(entityManagerFactory.unwrap(SessionFactory.class))
+                .willReturn(mock(SessionFactory.class, RETURNS_DEEP_STUBS));
+        service = new UserSnapshotServiceImpl(userBulkLoader, userRepository, userCountService, entityManagerFactory,
+                timeService, BATCH_SIZE, 2);
+    }
+
+    @Test
+    void restore_shouldLoadEveryUserOfSnapshot_andRebuildCounts() {
+        //given
+        List<User> users = users(95);
+        Path path = snapshot(users);
+        //when
+        long restored = service.restore(path);
+        //then
+        assertEquals(users.size(), restored);
+        assertEquals(users.size(), table.size());
+        verify(userCountService).rebuild();
+    }
+
+    @Test
+    void restore_shouldRemoveCommittedBatches_ifLoadFails_soRestoreCanBeRetried() {
+        //given
+        List<User> users = users(95);
+        Path path = snapshot(users);
+        failingUser = users.get(55).getId();
+        //when
+        assertThrows(IllegalStateException.class, () -> service.restore(path));
+        //then
+        assertTrue(table.isEmpty(), () -> table.size() + " users of the failed restore were left behind");
+        verify(userCountService, never()).rebuild();
+        failingUser = null;
+        assertEquals(users.size(), service.restore(path));
+        assertEquals(users.size(), table.size());
+        verify(userCountService, times(1)).rebuild();
+    }
+
+    @Test
+    void restore_shouldThrowIllegalStateException_ifTableIsNotEmpty() {
+        //given
+        Path path = snapshot(users(5));
+        User existing = generator.generate(1000);
+        table.put(existing.getId(), existing);
+        //then
+        assertThrows(IllegalStateException.class, () -> service.restore(path));
+        assertEquals(1, table.size());
+    }
+
+    private List<User> users(int count) {
+        return LongStream.range(0, count).mapToObj(generator::generate).toList();
+    }
+
+    private Path snapshot(List<User> users) {
+        Path path = directory.resolve("users.snapshot");
+        try (UserSnapshotFile.Writer writer = UserSnapshotFile.create(path)) {
+            users.forEach(writer::add);
+        }
+        return path;
+    }
+
+}
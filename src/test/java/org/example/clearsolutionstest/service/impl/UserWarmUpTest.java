@@ -0,0 +1,68 @@
+package org.example.clearsolutionstest.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.clearsolutionstest.dto.CreateUserDto;
+import org.example.clearsolutionstest.repository.UserBirthDateCountRepository;
+import org.example.clearsolutionstest.repository.UserOutboxRepository;
+import org.example.clearsolutionstest.repository.UserRepository;
+import org.example.clearsolutionstest.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "application.warm-up.enabled=true",
+        "application.warm-up.iterations=5",
+        "application.warm-up.users-per-iteration=2",
+        "application.warm-up.probe-samples=2",
+        "application.outbox.poll-interval-millis=3600000"
+})
+class UserWarmUpTest {
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserOutboxPoller userOutboxPoller;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    UserBirthDateCountRepository userBirthDateCountRepository;
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAll();
+        userOutboxRepository.deleteAll();
+        userBirthDateCountRepository.deleteAll();
+    }
+
+    @Test
+    void warmUp_shouldUseUpNoOutboxIds_soPollerFindsNothingMissingAfterIt() {
+        //given
+        userOutboxPoller.poll();
+        double handled = meterRegistry.get("users.outbox.handled").counter().count();
+        //when
+        userService.createUser(new CreateUserDto("email@gmail.com", "first", "last", LocalDate.of(2000, 1, 1),
+                "Ukraine, Lviv", "380123123131"));
+        userOutboxPoller.poll();
+        userOutboxPoller.poll();
+        //then
+        assertEquals(handled + 1, meterRegistry.get("users.outbox.handled").counter().count());
+        assertEquals(0, meterRegistry.get("users.outbox.missing").gauge().value());
+        assertEquals(0, meterRegistry.get("users.outbox.backlog").gauge().value());
+    }
+
+}